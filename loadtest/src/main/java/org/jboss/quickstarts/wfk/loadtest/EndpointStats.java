@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.loadtest;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>The measurements of one operation: the latency of its successful calls and a count of every outcome, keyed by HTTP
+ * status or, for calls which got no response, by exception type.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+final class EndpointStats {
+
+    /** Outcome of arrivals which could not be sent because the operation had nothing to act on. */
+    static final String SKIPPED = "skipped";
+
+    /** Outcome of arrivals which could not be queued because the client backlog was full. */
+    static final String BACKLOG_FULL = "backlog full";
+
+    private final Operation operation;
+
+    private final Histogram latencies = new Histogram();
+
+    private final AtomicLong succeeded = new AtomicLong();
+
+    private final ConcurrentMap<String, AtomicLong> outcomes = new ConcurrentHashMap<>();
+
+    EndpointStats(Operation operation) {
+        this.operation = operation;
+    }
+
+    Operation getOperation() {
+        return operation;
+    }
+
+    void success(int status, long micros) {
+        succeeded.incrementAndGet();
+        latencies.record(micros);
+        outcome(String.valueOf(status));
+    }
+
+    void failure(String outcome) {
+        outcome(outcome);
+    }
+
+    long getSucceeded() {
+        return succeeded.get();
+    }
+
+    /**
+     * <p>Returns the number of arrivals which were sent, or could not be queued, and did not get an expected response.</p>
+     */
+    long getFailed() {
+        long failed = 0;
+        for (Map.Entry<String, AtomicLong> outcome : outcomes.entrySet()) {
+            if (!SKIPPED.equals(outcome.getKey())) {
+                failed += outcome.getValue().get();
+            }
+        }
+        return failed - succeeded.get();
+    }
+
+    Histogram getLatencies() {
+        return latencies;
+    }
+
+    Map<String, Long> getOutcomes() {
+        Map<String, Long> outcomes = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> outcome : this.outcomes.entrySet()) {
+            outcomes.put(outcome.getKey(), outcome.getValue().get());
+        }
+        return outcomes;
+    }
+
+    private void outcome(String outcome) {
+        AtomicLong count = outcomes.get(outcome);
+        if (count == null) {
+            AtomicLong created = new AtomicLong();
+            count = outcomes.putIfAbsent(outcome, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+    }
+}
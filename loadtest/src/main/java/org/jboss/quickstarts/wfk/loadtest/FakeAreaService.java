@@ -0,0 +1,198 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A stand-in for the upstream area code service, so that contact writes can be load tested without the real host.</p>
+ *
+ * <p>It serves the two resources of <code>org.jboss.quickstarts.wfk.area.AreaService</code>: GET /areas and
+ * GET /areas/{id}. Every US style area code (a first digit of 2 to 9 and a middle digit of 0 to 8) exists and maps to a
+ * fixed state; any other code is 404 NOT_FOUND. Each response is delayed by <code>area.latencyMillis</code> plus a
+ * uniformly random jitter of up to <code>area.jitterMillis</code>, and a fraction <code>area.errorRate</code> of
+ * responses are 503 SERVICE_UNAVAILABLE.</p>
+ *
+ * <p>Point the application at it with <code>-Dupstream.area.url=http://localhost:9090/</code>.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+public class FakeAreaService {
+
+    private static final String[][] STATES = {
+            {"New York", "NY"}, {"California", "CA"}, {"Texas", "TX"}, {"Florida", "FL"}, {"Illinois", "IL"},
+            {"Pennsylvania", "PA"}, {"Ohio", "OH"}, {"Georgia", "GA"}, {"Michigan", "MI"}, {"Washington", "WA"}};
+
+    private final int port;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final int threads;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FakeAreaService(int port, long latencyMillis, long jitterMillis, double errorRate, int threads) {
+        this.port = port;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.threads = threads;
+    }
+
+    /**
+     * <p>Creates the service from the <code>area.*</code> system properties.</p>
+     */
+    static FakeAreaService fromSystemProperties() {
+        return new FakeAreaService(
+                Integer.getInteger("area.port", 9090),
+                Long.getLong("area.latencyMillis", 20),
+                Long.getLong("area.jitterMillis", 10),
+                Double.parseDouble(System.getProperty("area.errorRate", "0")),
+                Integer.getInteger("area.threads", 64));
+    }
+
+    public static void main(String[] args) throws IOException {
+        FakeAreaService service = fromSystemProperties();
+        service.start();
+        System.out.println("Fake area code service listening on " + service.getUrl());
+    }
+
+    public void start() throws IOException {
+        executor = Executors.newFixedThreadPool(threads);
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/areas", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    respond(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        Random random = ThreadLocalRandom.current();
+        long delay = latencyMillis + (jitterMillis > 0 ? (long) (random.nextDouble() * jitterMillis) : 0);
+        if (delay > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, null);
+            return;
+        }
+        if (random.nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            send(exchange, 503, null);
+            return;
+        }
+
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/areas") || path.equals("/areas/")) {
+            StringBuilder json = new StringBuilder("[");
+            for (int code = 200; code < 1000; code++) {
+                if (exists(code)) {
+                    if (json.length() > 1) {
+                        json.append(',');
+                    }
+                    json.append(area(code));
+                }
+            }
+            send(exchange, 200, json.append(']').toString());
+            return;
+        }
+
+        int code;
+        try {
+            code = Integer.parseInt(path.substring("/areas/".length()));
+        } catch (RuntimeException e) {
+            send(exchange, 404, null);
+            return;
+        }
+        if (exists(code)) {
+            send(exchange, 200, area(code));
+        } else {
+            send(exchange, 404, null);
+        }
+    }
+
+    private static boolean exists(int code) {
+        return code >= 200 && code < 1000 && (code / 10) % 10 != 9;
+    }
+
+    private static String area(int code) {
+        String[] state = code == 212 ? STATES[0] : STATES[code % STATES.length];
+        return "{\"id\":" + code + ",\"state\":\"" + state[0] + "\",\"abbr\":\"" + state[1] + "\"}";
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>Drives a weighted mix of the REST endpoints at a fixed arrival rate and reports throughput, latency percentiles and
+ * outcomes per endpoint.</p>
+ *
+ * <p>The load is an open model: requests arrive on a schedule (Poisson or evenly spaced) whether or not earlier
+ * requests have completed, as they would from many independent clients. Latency is measured from the time a request
+ * was scheduled to arrive, not from the time a connection became free to send it, so a saturated server shows up as
+ * growing latency instead of being hidden by a slower client (coordinated omission). Arrivals which find the client's
+ * backlog full are counted rather than delayed.</p>
+ *
+ * <p>Settings are system properties:</p>
+ * <ul>
+ *   <li><code>target</code> - base URL of the REST API, default <code>http://localhost:8080/api</code></li>
+ *   <li><code>rate</code> - arrivals per second, default 100</li>
+ *   <li><code>arrival</code> - <code>poisson</code> (default) or <code>constant</code></li>
+ *   <li><code>durationSeconds</code> / <code>warmupSeconds</code> - measured run and unmeasured warm up, default 60 / 10</li>
+ *   <li><code>connections</code> - concurrent requests in flight, default 64</li>
+ *   <li><code>maxBacklog</code> - arrivals waiting for a connection before further arrivals are dropped, default 10000</li>
+ *   <li><code>timeoutMillis</code> - connect and read timeout, default 10000</li>
+ *   <li><code>mix</code> - weighted operations, see {@link Operation}</li>
+ *   <li><code>fakeArea</code> - also start a {@link FakeAreaService} (configured by the <code>area.*</code> properties)</li>
+ *   <li><code>report</code> - file to write the results to as JSON</li>
+ * </ul>
+ *
+ * @author Jiaxuan Xu
+ */
+public final class LoadTest {
+
+    private static final String DEFAULT_MIX = "getContact=30,getContacts=10,getContactByEmail=10,createContact=10,"
+            + "getUsers=5,createUser=5,getRestaurants=10,createRestaurant=2,createReview=5,getReviewsByUser=13";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final String target;
+    private final double rate;
+    private final boolean poisson;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final int timeoutMillis;
+
+    private final Operation[] mix;
+    private final Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+    private final Workload workload = new Workload();
+    private final ThreadPoolExecutor connections;
+
+    private volatile long measureFrom;
+    private volatile long measureUntil;
+
+    private LoadTest() {
+        target = stripTrailingSlash(System.getProperty("target", "http://localhost:8080/api"));
+        rate = Double.parseDouble(System.getProperty("rate", "100"));
+        poisson = !"constant".equals(System.getProperty("arrival", "poisson"));
+        durationNanos = TimeUnit.SECONDS.toNanos(Long.getLong("durationSeconds", 60));
+        warmupNanos = TimeUnit.SECONDS.toNanos(Long.getLong("warmupSeconds", 10));
+        timeoutMillis = Integer.getInteger("timeoutMillis", 10000);
+        mix = parseMix(System.getProperty("mix", DEFAULT_MIX));
+        for (Operation operation : mix) {
+            if (!stats.containsKey(operation)) {
+                stats.put(operation, new EndpointStats(operation));
+            }
+        }
+
+        int threads = Integer.getInteger("connections", 64);
+        connections = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(Integer.getInteger("maxBacklog", 10000)));
+        connections.prestartAllCoreThreads();
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Keep connections to the target alive across requests
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", System.getProperty("connections", "64"));
+
+        FakeAreaService area = null;
+        if (Boolean.getBoolean("fakeArea")) {
+            area = FakeAreaService.fromSystemProperties();
+            area.start();
+            System.out.println("Fake area code service listening on " + area.getUrl()
+                    + " (start the application with -Dupstream.area.url=" + area.getUrl() + ")");
+        }
+
+        LoadTest test = new LoadTest();
+        try {
+            test.run();
+        } finally {
+            if (area != null) {
+                area.stop();
+            }
+        }
+
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        test.printTable(out);
+        if (area != null) {
+            out.printf(Locale.ROOT, "%nFake area code service: %d requests, %d errors%n", area.getRequests(), area.getErrors());
+        }
+        out.flush();
+
+        String report = System.getProperty("report");
+        if (report != null) {
+            try (PrintWriter json = new PrintWriter(new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8))) {
+                test.printJson(json);
+            }
+            System.out.println("Report written to " + report);
+        }
+    }
+
+    /**
+     * <p>Schedules arrivals until the warm up and the measured duration have passed, then waits for the requests in flight.</p>
+     */
+    private void run() throws InterruptedException {
+        System.out.printf(Locale.ROOT, "Driving %s at %.1f requests/s (%s arrivals) for %ds after a %ds warm up%n", target,
+                rate, poisson ? "poisson" : "constant", TimeUnit.NANOSECONDS.toSeconds(durationNanos),
+                TimeUnit.NANOSECONDS.toSeconds(warmupNanos));
+
+        long start = System.nanoTime();
+        measureFrom = start + warmupNanos;
+        measureUntil = measureFrom + durationNanos;
+
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long intended = start;
+        while (intended < measureUntil) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            arrive(mix[ThreadLocalRandom.current().nextInt(mix.length)], intended);
+
+            double gap = poisson ? -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanGapNanos : meanGapNanos;
+            intended += (long) gap;
+        }
+
+        connections.shutdown();
+        connections.awaitTermination(timeoutMillis + TimeUnit.NANOSECONDS.toMillis(durationNanos), TimeUnit.MILLISECONDS);
+    }
+
+    private void arrive(final Operation operation, final long intended) {
+        try {
+            connections.execute(new Runnable() {
+                @Override
+                public void run() {
+                    call(operation, intended);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (isMeasured(intended)) {
+                stats.get(operation).failure(EndpointStats.BACKLOG_FULL);
+            }
+        }
+    }
+
+    private void call(Operation operation, long intended) {
+        EndpointStats endpoint = stats.get(operation);
+        Operation.Request request = operation.request(workload);
+        if (request == null) {
+            if (isMeasured(intended)) {
+                endpoint.failure(EndpointStats.SKIPPED);
+            }
+            return;
+        }
+
+        int status;
+        String body;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(target + request.getPath()).openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setRequestMethod(request.getMethod());
+            connection.setRequestProperty("Accept", "application/json");
+            if (request.getBody() != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(request.getBody().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            status = connection.getResponseCode();
+            body = readFully(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+        } catch (IOException e) {
+            if (isMeasured(intended)) {
+                endpoint.failure(e.getClass().getSimpleName());
+            }
+            return;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+
+        operation.completed(workload, request, status, body);
+        if (!isMeasured(intended)) {
+            return;
+        }
+        if (operation.isExpected(status)) {
+            endpoint.success(status, micros);
+        } else {
+            endpoint.failure(String.valueOf(status));
+        }
+    }
+
+    private boolean isMeasured(long intended) {
+        return intended >= measureFrom && intended < measureUntil;
+    }
+
+    /**
+     * <p>Reads the whole response, which lets HttpURLConnection return the connection to its keep-alive pool.</p>
+     */
+    private static String readFully(InputStream in) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        try (InputStream body = in) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void printTable(PrintWriter out) {
+        double seconds = durationNanos / 1e9;
+        out.printf(Locale.ROOT, "%n%-18s %8s %8s %8s %9s %9s %9s %9s %9s  %s%n", "endpoint", "count", "ok", "ok/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "outcomes");
+        for (EndpointStats endpoint : stats.values()) {
+            Histogram latencies = endpoint.getLatencies();
+            out.printf(Locale.ROOT, "%-18s %8d %8d %8.1f", endpoint.getOperation().getKey(),
+                    endpoint.getSucceeded() + endpoint.getFailed(), endpoint.getSucceeded(), endpoint.getSucceeded() / seconds);
+            for (double quantile : QUANTILES) {
+                out.printf(Locale.ROOT, " %9.2f", latencies.valueAt(quantile) / 1000.0);
+            }
+            out.printf(Locale.ROOT, " %9.2f  %s%n", latencies.valueAt(1) / 1000.0, endpoint.getOutcomes());
+        }
+    }
+
+    private void printJson(PrintWriter out) {
+        out.printf(Locale.ROOT, "{\"target\":\"%s\",\"rate\":%.3f,\"arrival\":\"%s\",\"durationSeconds\":%d,\"endpoints\":{",
+                target, rate, poisson ? "poisson" : "constant", TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+        String separator = "";
+        for (EndpointStats endpoint : stats.values()) {
+            Histogram latencies = endpoint.getLatencies();
+            out.printf(Locale.ROOT, "%s\"%s\":{\"succeeded\":%d,\"failed\":%d,\"throughput\":%.3f,\"latencyMillis\":{",
+                    separator, endpoint.getOperation().getKey(), endpoint.getSucceeded(), endpoint.getFailed(),
+                    endpoint.getSucceeded() / (durationNanos / 1e9));
+            for (double quantile : QUANTILES) {
+                out.printf(Locale.ROOT, "\"p%s\":%.3f,", Double.toString(quantile * 100).replaceAll("\\.0$", ""),
+                        latencies.valueAt(quantile) / 1000.0);
+            }
+            out.printf(Locale.ROOT, "\"max\":%.3f},\"outcomes\":{", latencies.valueAt(1) / 1000.0);
+            String outcomeSeparator = "";
+            for (Map.Entry<String, Long> outcome : endpoint.getOutcomes().entrySet()) {
+                out.printf(Locale.ROOT, "%s\"%s\":%d", outcomeSeparator, outcome.getKey(), outcome.getValue());
+                outcomeSeparator = ",";
+            }
+            out.print("}}");
+            separator = ",";
+        }
+        out.println("}}");
+    }
+
+    /**
+     * <p>Expands a mix such as <code>getContact=3,createContact=1</code> into a table with one entry per unit of weight,
+     * so that picking an operation is a single random index.</p>
+     */
+    static Operation[] parseMix(String mix) {
+        List<Operation> table = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] keyAndWeight = entry.trim().split("=");
+            Operation operation = Operation.forKey(keyAndWeight[0].trim());
+            int weight = keyAndWeight.length > 1 ? Integer.parseInt(keyAndWeight[1].trim()) : 1;
+            for (int i = 0; i < weight; i++) {
+                table.add(operation);
+            }
+        }
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operations");
+        }
+        return table.toArray(new Operation[table.size()]);
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>The REST calls a load test can make. Each operation builds its request from the shared {@link Workload} and, once
+ * it completes, records what it created there so that later reads have something to find.</p>
+ *
+ * <p>The <code>mix</code> of a load test refers to the operations by their key, e.g.
+ * <code>getContact=40,createContact=10</code>.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+enum Operation {
+
+    CREATE_CONTACT("createContact") {
+        @Override
+        Request request(Workload workload) {
+            long n = workload.next();
+            return new Request("POST", "/contacts", "{\"firstName\":\"Load\",\"lastName\":\"" + Workload.letters(n)
+                    + "\",\"email\":\"" + workload.email("contact", n) + "\",\"phoneNumber\":\"(" + Workload.areaCode()
+                    + ") 555-" + String.format("%04d", n % 10000) + "\",\"birthDate\":\"1980-01-01\"}");
+        }
+
+        @Override
+        void completed(Workload workload, Request request, int status, String body) {
+            if (status == 201) {
+                workload.contacts().add(Workload.id(body));
+            }
+        }
+    },
+
+    GET_CONTACTS("getContacts") {
+        @Override
+        Request request(Workload workload) {
+            return new Request("GET", "/contacts?limit=20", null);
+        }
+    },
+
+    GET_CONTACT("getContact") {
+        @Override
+        Request request(Workload workload) {
+            return new Request("GET", "/contacts/" + workload.contacts().random(), null);
+        }
+    },
+
+    /** Looks up a seeded email half of the time and an unknown one the other half; both answers are expected. */
+    GET_CONTACT_BY_EMAIL("getContactByEmail") {
+        @Override
+        Request request(Workload workload) {
+            String email = ThreadLocalRandom.current().nextBoolean()
+                    ? "john.smith@mailinator.com" : workload.email("unknown", workload.next());
+            return new Request("GET", "/contacts/email/" + email, null);
+        }
+
+        @Override
+        boolean isExpected(int status) {
+            return super.isExpected(status) || status == 404;
+        }
+    },
+
+    CREATE_USER("createUser") {
+        @Override
+        Request request(Workload workload) {
+            long n = workload.next();
+            return new Request("POST", "/user", "{\"name\":\"Load " + Workload.letters(n) + "\",\"email\":\""
+                    + workload.email("user", n) + "\",\"phonenumber\":\"0" + String.format("%010d", n) + "\"}");
+        }
+
+        @Override
+        void completed(Workload workload, Request request, int status, String body) {
+            if (status == 201) {
+                long id = Workload.id(body);
+                workload.users().add(id);
+                workload.usersWithoutReview().add(id);
+            }
+        }
+    },
+
+    GET_USERS("getUsers") {
+        @Override
+        Request request(Workload workload) {
+            return new Request("GET", "/user", null);
+        }
+    },
+
+    CREATE_RESTAURANT("createRestaurant") {
+        @Override
+        Request request(Workload workload) {
+            long n = workload.next();
+            return new Request("POST", "/restaurants", "{\"name\":\"Load" + Workload.letters(n)
+                    + "\",\"phonenumber\":\"0" + String.format("%010d", n) + "\",\"postcode\":\"LT"
+                    + String.format("%04d", n % 10000) + "\"}");
+        }
+
+        @Override
+        void completed(Workload workload, Request request, int status, String body) {
+            if (status == 201) {
+                workload.restaurants().add(Workload.id(body));
+            }
+        }
+    },
+
+    GET_RESTAURANTS("getRestaurants") {
+        @Override
+        Request request(Workload workload) {
+            return new Request("GET", "/restaurants", null);
+        }
+    },
+
+    /** Reviews a restaurant as a user created by this run, so that the review never repeats a user and restaurant pair. */
+    CREATE_REVIEW("createReview") {
+        @Override
+        Request request(Workload workload) {
+            Long user = workload.usersWithoutReview().poll();
+            if (user == null) {
+                return null;
+            }
+            return new Request("POST", "/reviews", "{\"review\":\"Load test review\",\"rating\":"
+                    + ThreadLocalRandom.current().nextInt(6) + ",\"user\":{\"id\":" + user + "},\"restaurant\":{\"id\":"
+                    + workload.restaurants().random() + "}}");
+        }
+    },
+
+    GET_REVIEWS_BY_USER("getReviewsByUser") {
+        @Override
+        Request request(Workload workload) {
+            return new Request("GET", "/reviews/getByUserId?userId=" + workload.users().random(), null);
+        }
+    };
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * <p>Builds the next request of this operation, or returns null if there is nothing to act on yet.</p>
+     */
+    abstract Request request(Workload workload);
+
+    /**
+     * <p>Called with the response to a request of this operation.</p>
+     */
+    void completed(Workload workload, Request request, int status, String body) {
+    }
+
+    /**
+     * <p>Whether a response with the given status is a success for this operation.</p>
+     */
+    boolean isExpected(int status) {
+        return (status >= 200 && status < 300) || status == 304;
+    }
+
+    static Operation forKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation " + key);
+    }
+
+    /**
+     * <p>A single HTTP request: method, path relative to the target and an optional JSON body.</p>
+     */
+    static final class Request {
+
+        private final String method;
+        private final String path;
+        private final String body;
+
+        Request(String method, String path, String body) {
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+
+        String getMethod() {
+            return method;
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        String getBody() {
+            return body;
+        }
+    }
+}
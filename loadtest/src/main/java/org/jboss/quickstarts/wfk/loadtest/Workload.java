@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.loadtest;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>The data the operations of a load test share: counters which keep created records unique, and the ids of records
+ * created so far, which the read operations and review creation pick from.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+final class Workload {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    /** Area codes known to the {@link FakeAreaService}. */
+    private static final int[] AREA_CODES = {201, 212, 305, 312, 415, 512, 617, 702, 808, 917};
+
+    /** Number of recently created ids remembered per kind of record. */
+    private static final int REMEMBERED = 1024;
+
+    /** Identifies the run, so that repeated runs against the same database do not collide. */
+    private final String run = Long.toString(System.currentTimeMillis() % 1000000000L, 36);
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Ids contacts = new Ids(10001, 10002);
+    private final Ids users = new Ids(1, 2, 3);
+    private final Ids restaurants = new Ids(1, 2);
+
+    /** Users created by this run which have not written a Review yet; a user may review each restaurant once. */
+    private final Queue<Long> usersWithoutReview = new ConcurrentLinkedQueue<>();
+
+    long next() {
+        return sequence.incrementAndGet();
+    }
+
+    String email(String kind, long n) {
+        return kind + "-" + run + "-" + n + "@loadtest.example.com";
+    }
+
+    /**
+     * <p>Writes a number with letters only, for the name fields which do not allow digits.</p>
+     */
+    static String letters(long n) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return letters.toString();
+    }
+
+    static int areaCode() {
+        return AREA_CODES[ThreadLocalRandom.current().nextInt(AREA_CODES.length)];
+    }
+
+    Ids contacts() {
+        return contacts;
+    }
+
+    Ids users() {
+        return users;
+    }
+
+    Ids restaurants() {
+        return restaurants;
+    }
+
+    Queue<Long> usersWithoutReview() {
+        return usersWithoutReview;
+    }
+
+    /**
+     * <p>Returns the id in a JSON response body, or -1 if there is none.</p>
+     */
+    static long id(String json) {
+        if (json == null) {
+            return -1;
+        }
+        Matcher matcher = ID.matcher(json);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    /**
+     * <p>The most recent ids of one kind of record, in a ring which starts with the ids seeded by import.sql.</p>
+     */
+    static final class Ids {
+
+        private final AtomicLongArray ring = new AtomicLongArray(REMEMBERED);
+        private final AtomicLong added = new AtomicLong();
+
+        Ids(long... seeded) {
+            for (long id : seeded) {
+                add(id);
+            }
+        }
+
+        void add(long id) {
+            ring.set((int) (added.getAndIncrement() % REMEMBERED), id);
+        }
+
+        long random() {
+            int size = (int) Math.min(added.get(), REMEMBERED);
+            return ring.get(ThreadLocalRandom.current().nextInt(size));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.benchmark;
+
+import org.jboss.quickstarts.wfk.contact.Contact;
+import org.jboss.quickstarts.wfk.review.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Cost of the entities' equals and hashCode in collection operations.</p>
+ *
+ * <p>The intersection benchmarks repeat what GET /contacts used to do to combine its first and last name filters, a
+ * List.retainAll of two query results (a quadratic number of equals calls), against the same intersection through a
+ * HashSet. The Review benchmarks build a set of Reviews, whose hashCode and equals also call those of the User and
+ * Restaurant.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EqualityBenchmark {
+
+    /** Number of Contacts matching each of the two filters. */
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private List<Contact> byFirstName;
+    private List<Contact> byLastName;
+    private List<Review> reviews;
+
+    @Setup
+    public void setUp() {
+        // Two overlapping results, built from distinct instances as two queries would return them outside one
+        // persistence context.
+        byFirstName = new ArrayList<>(size);
+        byLastName = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            byFirstName.add(Fixtures.contact(i));
+            byLastName.add(Fixtures.contact(i + size / 2));
+        }
+        reviews = Fixtures.reviews(size);
+    }
+
+    @Benchmark
+    public List<Contact> intersectWithListRetainAll() {
+        List<Contact> contacts = new ArrayList<>(byFirstName);
+        contacts.retainAll(byLastName);
+        return contacts;
+    }
+
+    @Benchmark
+    public List<Contact> intersectWithHashSet() {
+        Set<Contact> lastNames = new HashSet<>(byLastName);
+        List<Contact> contacts = new ArrayList<>(byFirstName);
+        contacts.retainAll(lastNames);
+        return contacts;
+    }
+
+    @Benchmark
+    public Set<Review> buildReviewSet() {
+        return new HashSet<>(reviews);
+    }
+
+    @Benchmark
+    public int hashReviews() {
+        int hash = 0;
+        for (Review review : reviews) {
+            hash += review.hashCode();
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.benchmark;
+
+import org.jboss.quickstarts.wfk.contact.Contact;
+import org.jboss.quickstarts.wfk.restaurant.Restaurant;
+import org.jboss.quickstarts.wfk.review.Review;
+import org.jboss.quickstarts.wfk.user.User;
+
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+/**
+ * <p>Builds valid entities, like those in import.sql, for the benchmarks.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+final class Fixtures {
+
+    private static final String[] NAMES = {"Alice", "Bob", "Carol", "Dave", "Erin", "Frank", "Grace", "Heidi", "Ivan", "Judy"};
+
+    private Fixtures() {
+    }
+
+    static Contact contact(int i) {
+        Contact contact = new Contact();
+        contact.setId(100000L + i);
+        contact.setFirstName(NAMES[i % NAMES.length]);
+        contact.setLastName(NAMES[(i / NAMES.length) % NAMES.length] + "son");
+        contact.setEmail("contact" + i + "@example.com");
+        contact.setPhoneNumber("(212) 555-" + String.format("%04d", i % 10000));
+        contact.setBirthDate(new GregorianCalendar(1980 + i % 30, i % 12, 1 + i % 28).getTime());
+        contact.setState("NY");
+        contact.setVersion(0L);
+        return contact;
+    }
+
+    static User user(int i) {
+        User user = new User();
+        user.setId(100000L + i);
+        user.setName(NAMES[i % NAMES.length] + " Smith");
+        user.setEmail("user" + i + "@example.com");
+        user.setPhonenumber("0" + (7000000000L + i));
+        return user;
+    }
+
+    static Restaurant restaurant(int i) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(100000L + i);
+        restaurant.setName("Restaurant" + letters(i));
+        restaurant.setPhonenumber("0" + (1910000000L + i));
+        restaurant.setPostcode("NE" + String.format("%04d", i % 10000));
+        return restaurant;
+    }
+
+    static Review review(int i, User user, Restaurant restaurant) {
+        Review review = new Review();
+        review.setId(100000L + i);
+        review.setReview("Review number " + i + " of " + restaurant.getName());
+        review.setRating(i % 6);
+        review.setUser(user);
+        review.setRestaurant(restaurant);
+        return review;
+    }
+
+    static List<Contact> contacts(int size) {
+        List<Contact> contacts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            contacts.add(contact(i));
+        }
+        return contacts;
+    }
+
+    static List<Review> reviews(int size) {
+        List<Review> reviews = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            reviews.add(review(i, user(i % 50), restaurant(i % 20)));
+        }
+        return reviews;
+    }
+
+    /**
+     * <p>Restaurant names must be alphabetical, so numbers are written with letters.</p>
+     */
+    private static String letters(int i) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.append((char) ('a' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return letters.toString();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.benchmark;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+/**
+ * <p>Throughput of concurrent inserts with each of the id generation strategies used by the entities: the TABLE
+ * generator Contact had, the IDENTITY columns User, Restaurant and Review had, and the sequence with the pooled-lo
+ * optimizer (allocationSize 50) they all use now.</p>
+ *
+ * <p>Hibernate is bootstrapped on an in-memory H2 database with the id generation, JDBC batching and insert ordering
+ * settings of persistence.xml. Each operation persists <code>rowsPerTransaction</code> rows in a transaction of its own,
+ * from four threads at once. The rows are small entities of the benchmark's own, one per strategy, so that only the id
+ * generation differs between them.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class IdGenerationBenchmark {
+
+    /** The id generation strategy. */
+    @Param({"TABLE", "IDENTITY", "SEQUENCE"})
+    public GenerationType strategy;
+
+    /** The number of rows persisted by each transaction; a single insert, or one JDBC batch. */
+    @Param({"1", "50"})
+    public int rowsPerTransaction;
+
+    private StandardServiceRegistry registry;
+
+    private SessionFactory sessionFactory;
+
+    private final AtomicLong rows = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DRIVER, "org.h2.Driver")
+                .applySetting(AvailableSettings.URL, "jdbc:h2:mem:ids;DB_CLOSE_DELAY=-1")
+                .applySetting(AvailableSettings.USER, "sa")
+                .applySetting(AvailableSettings.PASS, "")
+                .applySetting(AvailableSettings.DIALECT, "org.hibernate.dialect.H2Dialect")
+                .applySetting(AvailableSettings.POOL_SIZE, "8")
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .applySetting(AvailableSettings.USE_NEW_ID_GENERATOR_MAPPINGS, "true")
+                .applySetting(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, "pooled-lo")
+                .applySetting(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                .applySetting(AvailableSettings.ORDER_INSERTS, "true")
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(TableRow.class)
+                .addAnnotatedClass(IdentityRow.class)
+                .addAnnotatedClass(SequenceRow.class)
+                .buildMetadata()
+                .buildSessionFactory();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    @Benchmark
+    public void persist() {
+        Session session = sessionFactory.openSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            for (int i = 0; i < rowsPerTransaction; i++) {
+                session.persist(newRow("Row " + rows.incrementAndGet()));
+            }
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+    }
+
+    private Row newRow(String name) {
+        Row row;
+        switch (strategy) {
+            case TABLE:
+                row = new TableRow();
+                break;
+            case IDENTITY:
+                row = new IdentityRow();
+                break;
+            default:
+                row = new SequenceRow();
+                break;
+        }
+        row.name = name;
+        return row;
+    }
+
+    @MappedSuperclass
+    public abstract static class Row {
+
+        @Column(name = "name")
+        String name;
+    }
+
+    /** Mapped as Contact's id was before the sequences: a row of a shared generator table, updated under a lock. */
+    @Entity
+    @Table(name = "table_row")
+    public static class TableRow extends Row {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.TABLE)
+        Long id;
+    }
+
+    /** Mapped as the ids of User, Restaurant and Review were: generated by the INSERT, so it can not be batched. */
+    @Entity
+    @Table(name = "identity_row")
+    public static class IdentityRow extends Row {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+    }
+
+    /** Mapped as the ids of all four entities are now. */
+    @Entity
+    @Table(name = "sequence_row")
+    public static class SequenceRow extends Row {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequence_row_seq")
+        @SequenceGenerator(name = "sequence_row_seq", sequenceName = "sequence_row_seq", initialValue = 100000,
+                allocationSize = 50)
+        Long id;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.jboss.quickstarts.wfk.contact.Contact;
+import org.jboss.quickstarts.wfk.restaurant.Restaurant;
+import org.jboss.quickstarts.wfk.review.Review;
+import org.jboss.quickstarts.wfk.user.User;
+import org.jboss.quickstarts.wfk.util.JacksonConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Cost of turning entities into JSON and back with the ObjectMapper configured by {@link JacksonConfig}, as the REST
+ * endpoints do.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    /** Number of entities in the list benchmarks. */
+    @Param({"1", "100"})
+    public int size;
+
+    private ObjectWriter writer;
+    private ObjectReader contactReader;
+    private ObjectReader contactListReader;
+    private ObjectReader userReader;
+    private ObjectReader restaurantReader;
+    private ObjectReader reviewReader;
+
+    private Contact contact;
+    private User user;
+    private Restaurant restaurant;
+    private Review review;
+    private List<Contact> contacts;
+    private List<Review> reviews;
+
+    private byte[] contactJson;
+    private byte[] userJson;
+    private byte[] restaurantJson;
+    private byte[] reviewJson;
+    private byte[] contactsJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = new JacksonConfig().getContext(Object.class);
+        writer = mapper.writer();
+        contactReader = mapper.readerFor(Contact.class);
+        contactListReader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, Contact.class));
+        userReader = mapper.readerFor(User.class);
+        restaurantReader = mapper.readerFor(Restaurant.class);
+        reviewReader = mapper.readerFor(Review.class);
+
+        contact = Fixtures.contact(1);
+        user = Fixtures.user(1);
+        restaurant = Fixtures.restaurant(1);
+        review = Fixtures.review(1, user, restaurant);
+        contacts = Fixtures.contacts(size);
+        reviews = Fixtures.reviews(size);
+
+        contactJson = writer.writeValueAsBytes(contact);
+        userJson = writer.writeValueAsBytes(user);
+        restaurantJson = writer.writeValueAsBytes(restaurant);
+        reviewJson = writer.writeValueAsBytes(review);
+        contactsJson = writer.writeValueAsBytes(contacts);
+    }
+
+    @Benchmark
+    public byte[] writeContact() throws IOException {
+        return writer.writeValueAsBytes(contact);
+    }
+
+    @Benchmark
+    public byte[] writeUser() throws IOException {
+        return writer.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] writeRestaurant() throws IOException {
+        return writer.writeValueAsBytes(restaurant);
+    }
+
+    @Benchmark
+    public byte[] writeReview() throws IOException {
+        return writer.writeValueAsBytes(review);
+    }
+
+    @Benchmark
+    public byte[] writeContactList() throws IOException {
+        return writer.writeValueAsBytes(contacts);
+    }
+
+    @Benchmark
+    public byte[] writeReviewList() throws IOException {
+        return writer.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public Contact readContact() throws IOException {
+        return contactReader.readValue(contactJson);
+    }
+
+    @Benchmark
+    public User readUser() throws IOException {
+        return userReader.readValue(userJson);
+    }
+
+    @Benchmark
+    public Restaurant readRestaurant() throws IOException {
+        return restaurantReader.readValue(restaurantJson);
+    }
+
+    @Benchmark
+    public Review readReview() throws IOException {
+        return reviewReader.readValue(reviewJson);
+    }
+
+    @Benchmark
+    public List<Contact> readContactList() throws IOException {
+        return contactListReader.readValue(contactsJson);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.benchmark;
+
+import org.jboss.quickstarts.wfk.contact.Contact;
+import org.jboss.quickstarts.wfk.restaurant.Restaurant;
+import org.jboss.quickstarts.wfk.review.Review;
+import org.jboss.quickstarts.wfk.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+
+/**
+ * <p>Cost of the Bean Validation which the validator classes (for example
+ * {@link org.jboss.quickstarts.wfk.contact.ContactValidator}) run on every write, for valid entities and for an invalid
+ * Contact, which also builds the violation messages.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    private ValidatorFactory factory;
+    private Validator validator;
+
+    private Contact contact;
+    private Contact invalidContact;
+    private User user;
+    private Restaurant restaurant;
+    private Review review;
+
+    @Setup
+    public void setUp() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+
+        contact = Fixtures.contact(1);
+        invalidContact = Fixtures.contact(2);
+        invalidContact.setFirstName("R2-D2");
+        invalidContact.setEmail("not an email");
+        invalidContact.setPhoneNumber("555");
+        user = Fixtures.user(1);
+        restaurant = Fixtures.restaurant(1);
+        review = Fixtures.review(1, user, restaurant);
+    }
+
+    @TearDown
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Contact>> validateContact() {
+        return validator.validate(contact);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Contact>> validateInvalidContact() {
+        return validator.validate(invalidContact);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<User>> validateUser() {
+        return validator.validate(user);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Restaurant>> validateRestaurant() {
+        return validator.validate(restaurant);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Review>> validateReview() {
+        return validator.validate(review);
+    }
+}
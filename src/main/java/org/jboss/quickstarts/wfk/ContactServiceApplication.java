@@ -18,10 +18,14 @@ package org.jboss.quickstarts.wfk;
 
 import org.jboss.quickstarts.wfk.review.ReviewRestService;
 import org.jboss.quickstarts.wfk.contact.ContactRestService;
+import org.jboss.quickstarts.wfk.monitoring.MetricsRestService;
+import org.jboss.quickstarts.wfk.monitoring.MonitoringRestService;
+import org.jboss.quickstarts.wfk.monitoring.RequestMetricsFilter;
 import org.jboss.quickstarts.wfk.user.UserRestService;
 import org.jboss.quickstarts.wfk.restaurant.RestaurantRestService;
 import org.jboss.quickstarts.wfk.util.JacksonConfig;
 import org.jboss.quickstarts.wfk.util.RestServiceExceptionHandler;
+import org.jboss.quickstarts.wfk.util.UnexpectedExceptionHandler;
 import org.jboss.resteasy.plugins.providers.RegisterBuiltin;
 import org.jboss.resteasy.spi.ResteasyProviderFactory;
 
@@ -62,7 +66,8 @@ public class ContactServiceApplication extends Application {
         		        "org.jboss.quickstarts.wfk.contact," +
 				        "org.jboss.quickstarts.wfk.user," +
 				        "org.jboss.quickstarts.wfk.restaurant," +
-				        "org.jboss.quickstarts.wfk.review,");
+				        "org.jboss.quickstarts.wfk.review," +
+				        "org.jboss.quickstarts.wfk.monitoring,");
         beanConfig.setScan(true);
 
         //Do not edit below
@@ -78,6 +83,12 @@ public class ContactServiceApplication extends Application {
         services.add(UserRestService.class);
         services.add(RestaurantRestService.class);
         services.add(ReviewRestService.class);
+        services.add(MonitoringRestService.class);
+        services.add(MetricsRestService.class);
+
+        //Request latency metrics, served by MetricsRestService
+        services.add(RequestMetricsFilter.class);
+        services.add(UnexpectedExceptionHandler.class);
 
         //Do not edit below
         services.add(RestServiceExceptionHandler.class);
@@ -0,0 +1,340 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.area;
+
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.CircuitBreaker;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.UpstreamClientFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.Response;
+
+/**
+ * <p>In-process cache of US area codes which sits in front of the upstream {@link AreaService}.</p>
+ *
+ * <p>Area codes are three digit numbers, so rather than a map the cache is a flat table indexed directly by the code. The
+ * table is warmed in bulk from {@link AreaService#getAreas()} when the application starts and is rebuilt in the
+ * background every <code>area.cache.refreshMinutes</code> minutes. Codes which the upstream service reports as 404 NOT_FOUND
+ * are kept as negative entries, so that invalid codes are rejected without another remote call.</p>
+ *
+ * <p>Every remote call goes through a {@link CircuitBreaker} (configured by the <code>area.breaker.*</code> settings) and
+ * a bulkhead which allows at most <code>area.bulkhead.maxConcurrent</code> lookups at once. When the upstream is failing,
+ * slow, or saturated, lookups of codes which are not cached fail fast with an {@link AreaServiceUnavailableException}
+ * instead of holding a thread until the socket times out.</p>
+ *
+ * <p>If <code>upstream.area.url</code> is not set the cache starts empty and every call to the upstream counts as a
+ * failure, so the circuit breaker soon opens and lookups fail fast.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see AreaService
+ * @see UpstreamClientFactory
+ * @see CircuitBreaker
+ */
+@ApplicationScoped
+public class AreaCodeCache {
+
+    static final int TABLE_SIZE = 1000;
+
+    /** Marker stored in the table for codes which the upstream service does not recognise. */
+    private static final Area NOT_FOUND = new Area();
+
+    @Inject
+    private Log log;
+
+    @Inject
+    private ApplicationConfig config;
+
+    @Inject
+    private UpstreamClientFactory upstream;
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    private AreaService areaService;
+
+    private ScheduledFuture<?> refreshTask;
+
+    private CircuitBreaker breaker;
+
+    private Semaphore bulkhead;
+
+    private long bulkheadWaitMillis;
+
+    private volatile AtomicReferenceArray<Area> table = new AtomicReferenceArray<>(TABLE_SIZE);
+
+    private volatile long lastRefresh;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final AtomicLong bulkheadRejections = new AtomicLong();
+
+    /**
+     * <p>Schedules the background refresh as soon as the application has started.</p>
+     *
+     * <p>The first refresh runs straight away on the scheduler rather than here, so that deployment does not wait on the
+     * upstream service. Lookups made before it completes are fetched one by one.</p>
+     *
+     * @param event The (unused) payload of the application scope initialisation event
+     */
+    void init(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        try {
+            areaService = upstream.proxy(AreaService.class, "area");
+        } catch (IllegalStateException e) {
+            log.severe("AreaCodeCache.init() - {0}, area codes can not be looked up", e.getMessage());
+        }
+        breaker = CircuitBreaker.fromConfig("area", config, log);
+        bulkhead = new Semaphore(config.getInt("area.bulkhead.maxConcurrent", 10));
+        bulkheadWaitMillis = config.getLong("area.bulkhead.maxWaitMillis", 0);
+
+        long interval = config.getLong("area.cache.refreshMinutes", 15);
+        refreshTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                refresh();
+            }
+        }, 0, interval, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void destroy() {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+        }
+    }
+
+    /**
+     * <p>Returns the Area for the given area code, only calling the upstream service if the code has not been seen before.</p>
+     *
+     * @param code The three digit area code
+     * @return The Area with the provided code
+     * @throws InvalidAreaCodeException If the upstream service does not recognise the area code
+     * @throws AreaServiceUnavailableException If the code is not cached and the upstream service can not be asked
+     */
+    public Area getAreaById(int code) throws InvalidAreaCodeException, AreaServiceUnavailableException {
+        if (code < 0 || code >= TABLE_SIZE) {
+            throw new InvalidAreaCodeException("The area code provided does not exist");
+        }
+
+        AtomicReferenceArray<Area> current = table;
+        Area area = current.get(code);
+        if (area == NOT_FOUND) {
+            negativeHits.incrementAndGet();
+            throw new InvalidAreaCodeException("The area code provided does not exist");
+        }
+        if (area != null) {
+            hits.incrementAndGet();
+            return area;
+        }
+
+        misses.incrementAndGet();
+        try {
+            area = fetch(code);
+            remember(code, area);
+            return area;
+        } catch (ClientErrorException e) {
+            if (e.getResponse().getStatusInfo() == Response.Status.NOT_FOUND) {
+                remember(code, NOT_FOUND);
+                throw new InvalidAreaCodeException("The area code provided does not exist", e);
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * <p>Stores an entry fetched after a miss in the current table.</p>
+     *
+     * <p>The fetch may have taken long enough for {@link #refresh()} to swap in a new table, so the table is read again
+     * after the write and, while it has changed, the entry is also put into the newer table. It is only put where the
+     * code has no entry, so that it never overwrites what the refresh loaded.</p>
+     *
+     * @param code The three digit area code
+     * @param area The Area, or {@link #NOT_FOUND}
+     */
+    private void remember(int code, Area area) {
+        AtomicReferenceArray<Area> written = table;
+        written.set(code, area);
+        for (AtomicReferenceArray<Area> latest = table; latest != written; latest = table) {
+            latest.compareAndSet(code, null, area);
+            written = latest;
+        }
+    }
+
+    /**
+     * <p>Asks the upstream service for a single Area, through the bulkhead and the circuit breaker.</p>
+     *
+     * <p>Client errors, such as 404 NOT_FOUND, are answers from a healthy upstream and are passed on as they are. Anything
+     * else counts as a failure of the upstream.</p>
+     *
+     * @param code The three digit area code
+     * @return The Area with the provided code
+     * @throws AreaServiceUnavailableException If the call is refused or fails
+     */
+    private Area fetch(int code) throws AreaServiceUnavailableException {
+        boolean admitted;
+        try {
+            admitted = bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            bulkheadRejections.incrementAndGet();
+            throw new AreaServiceUnavailableException("Too many area code lookups in progress", 1);
+        }
+
+        try {
+            if (!breaker.tryAcquirePermission()) {
+                throw new AreaServiceUnavailableException("The area code service is unavailable",
+                        breaker.getRetryAfterSeconds());
+            }
+
+            long start = System.nanoTime();
+            try {
+                Area area = areaService().getAreaById(code);
+                breaker.onSuccess(System.nanoTime() - start);
+                return area;
+            } catch (ClientErrorException e) {
+                breaker.onSuccess(System.nanoTime() - start);
+                throw e;
+            } catch (RuntimeException e) {
+                breaker.onError(System.nanoTime() - start);
+                throw new AreaServiceUnavailableException("The area code service is unavailable",
+                        breaker.getRetryAfterSeconds(), e);
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * @return The proxy for the upstream service
+     * @throws IllegalStateException If no URL is configured for it
+     */
+    private AreaService areaService() {
+        if (areaService == null) {
+            throw new IllegalStateException("No URL configured for upstream area");
+        }
+        return areaService;
+    }
+
+    /**
+     * <p>Reloads every Area from the upstream service in a single call and swaps the new table in.</p>
+     *
+     * <p>Negative entries are carried over for codes which are still missing from the upstream list. If the upstream service
+     * can not be reached, or its circuit breaker is open, the current table is kept.</p>
+     */
+    void refresh() {
+        if (!breaker.tryAcquirePermission()) {
+            refreshFailures.incrementAndGet();
+            log.warning("AreaCodeCache.refresh() - Skipped, the area code service circuit breaker is {0}", breaker.getState());
+            return;
+        }
+
+        List<Area> areas;
+        long start = System.nanoTime();
+        try {
+            areas = areaService().getAreas();
+            breaker.onSuccess(System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            breaker.onError(System.nanoTime() - start);
+            refreshFailures.incrementAndGet();
+            log.warning("AreaCodeCache.refresh() - Could not load area codes from upstream: {0}", e.getMessage());
+            return;
+        }
+
+        AtomicReferenceArray<Area> previous = table;
+        AtomicReferenceArray<Area> fresh = new AtomicReferenceArray<>(TABLE_SIZE);
+        for (int code = 0; code < TABLE_SIZE; code++) {
+            if (previous.get(code) == NOT_FOUND) {
+                fresh.set(code, NOT_FOUND);
+            }
+        }
+        for (Area area : areas) {
+            if (area.getId() >= 0 && area.getId() < TABLE_SIZE) {
+                fresh.set(area.getId(), area);
+            }
+        }
+
+        table = fresh;
+        lastRefresh = System.currentTimeMillis();
+        refreshes.incrementAndGet();
+        log.info("AreaCodeCache.refresh() - Loaded {0} area codes", areas.size());
+    }
+
+    /**
+     * <p>Returns the hit, miss and refresh counters of the cache along with the number of entries it holds.</p>
+     *
+     * @return Map of statistic name to value
+     */
+    public Map<String, Object> getStatistics() {
+        AtomicReferenceArray<Area> current = table;
+        int entries = 0;
+        int negativeEntries = 0;
+        for (int code = 0; code < TABLE_SIZE; code++) {
+            Area area = current.get(code);
+            if (area == NOT_FOUND) {
+                negativeEntries++;
+            } else if (area != null) {
+                entries++;
+            }
+        }
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("hits", hits.get());
+        statistics.put("negativeHits", negativeHits.get());
+        statistics.put("misses", misses.get());
+        statistics.put("refreshes", refreshes.get());
+        statistics.put("refreshFailures", refreshFailures.get());
+        statistics.put("entries", entries);
+        statistics.put("negativeEntries", negativeEntries);
+        statistics.put("lastRefreshMillis", lastRefresh);
+        return statistics;
+    }
+
+    /**
+     * <p>Returns the state and counters of the circuit breaker and bulkhead guarding the upstream service.</p>
+     *
+     * @return Map of statistic name to value
+     */
+    public Map<String, Object> getUpstreamStatistics() {
+        Map<String, Object> statistics = breaker.getStatistics();
+        statistics.put("bulkheadAvailable", bulkhead.availablePermits());
+        statistics.put("bulkheadRejections", bulkheadRejections.get());
+        return statistics;
+    }
+}
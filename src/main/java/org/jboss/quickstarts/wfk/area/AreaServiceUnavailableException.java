@@ -0,0 +1,51 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.area;
+
+/**
+ * <p>RuntimeException which is thrown when the upstream {@link AreaService} can not be asked about an area code, either
+ * because it failed, because its circuit breaker is open or because too many calls to it are already in progress.</p>
+ *
+ * <p>Unlike an {@link InvalidAreaCodeException} this says nothing about the area code itself, so callers may choose to
+ * accept the data and look the code up later.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see AreaCodeCache
+ */
+public class AreaServiceUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public AreaServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public AreaServiceUnavailableException(String message, long retryAfterSeconds, Throwable cause) {
+        super(message, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return Whole seconds after which the upstream service is worth trying again
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
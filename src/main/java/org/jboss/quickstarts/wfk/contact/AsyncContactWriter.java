@@ -0,0 +1,221 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.contact;
+
+import org.jboss.quickstarts.wfk.area.InvalidAreaCodeException;
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.RestServiceException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.OptimisticLockException;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+
+/**
+ * <p>Completes suspended contact create and update requests away from the container's request threads.</p>
+ *
+ * <p>The area code lookup in {@link ContactService} may have to wait on the upstream Area service. Rather than hold a
+ * servlet worker while it does, {@link ContactRestService} suspends the request and hands it to this class, which runs the
+ * lookup, validation and persistence on the container's managed executor and then resumes the request with the outcome.
+ * At most <code>contact.async.maxInFlight</code> writes are queued or running at once; further writes are refused with
+ * 503 SERVICE_UNAVAILABLE so that a slow upstream can not build an unbounded backlog.</p>
+ *
+ * <p>Setting <code>contact.async.enabled</code> to false completes writes on the calling thread instead.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ContactRestService
+ * @see ContactService
+ */
+@ApplicationScoped
+public class AsyncContactWriter {
+
+    private static final String CONFLICT_ON_CREATE = "Bad Request";
+    private static final String CONFLICT_ON_UPDATE = "Contact details supplied in request body conflict with another Contact";
+
+    @Inject
+    private Log log;
+
+    @Inject
+    private ApplicationConfig config;
+
+    @Inject
+    private ContactService service;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private boolean enabled;
+
+    private Semaphore inFlight;
+
+    @PostConstruct
+    void init() {
+        enabled = config.getBoolean("contact.async.enabled", true);
+        inFlight = new Semaphore(config.getInt("contact.async.maxInFlight", 64));
+    }
+
+    /**
+     * <p>Creates the provided Contact and resumes the suspended request with 201 (Resource created) or the mapped error.</p>
+     *
+     * @param contact The Contact object to be created via {@link ContactService#create(Contact)}
+     * @param response The suspended response of the create request
+     */
+    void create(final Contact contact, AsyncResponse response) {
+        submit(new Write(response, Response.Status.CREATED, CONFLICT_ON_CREATE) {
+            @Override
+            Contact apply() throws Exception {
+                return service.create(contact);
+            }
+        });
+    }
+
+    /**
+     * <p>Updates the provided Contact and resumes the suspended request with 200 (OK) or the mapped error.</p>
+     *
+     * @param contact The Contact object to be updated via {@link ContactService#update(Contact)}
+     * @param response The suspended response of the update request
+     */
+    void update(final Contact contact, AsyncResponse response) {
+        submit(new Write(response, Response.Status.OK, CONFLICT_ON_UPDATE) {
+            @Override
+            Contact apply() throws Exception {
+                return service.update(contact);
+            }
+        });
+    }
+
+    private void submit(final Write write) {
+        if (!enabled) {
+            write.run();
+            return;
+        }
+
+        if (!inFlight.tryAcquire()) {
+            write.response.resume(new RestServiceException("Too many Contact writes in progress, please try again later",
+                    Response.Status.SERVICE_UNAVAILABLE));
+            return;
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        write.run();
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            write.response.resume(new RestServiceException("Too many Contact writes in progress, please try again later",
+                    Response.Status.SERVICE_UNAVAILABLE, e));
+        }
+    }
+
+    /**
+     * <p>Maps the exceptions thrown while creating or updating a Contact onto the same RestServiceExceptions (and therefore
+     * the same responses) as the synchronous endpoints. A missing Contact gives 404 and a stale version (see
+     * {@link ContactRepository#update(Contact)}) gives 412 PRECONDITION_FAILED.</p>
+     *
+     * @param e The exception thrown by the {@link ContactService}
+     * @param conflictMessage The message to use for a unique email violation
+     * @return The RestServiceException to resume the request with
+     */
+    static RestServiceException toRestServiceException(Exception e, String conflictMessage) {
+        if (e instanceof RestServiceException) {
+            return (RestServiceException) e;
+
+        } else if (e instanceof ConstraintViolationException) {
+            //Handle bean validation issues
+            Map<String, String> responseObj = new HashMap<>();
+
+            for (ConstraintViolation<?> violation : ((ConstraintViolationException) e).getConstraintViolations()) {
+                responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+            }
+            return new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
+
+        } else if (e instanceof UniqueEmailException) {
+            // Handle the unique constraint violation
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("email", "That email is already used, please use a unique email");
+            return new RestServiceException(conflictMessage, responseObj, Response.Status.CONFLICT, e);
+
+        } else if (e instanceof EntityNotFoundException) {
+            return new RestServiceException(e.getMessage(), Response.Status.NOT_FOUND, e);
+
+        } else if (e instanceof OptimisticLockException) {
+            return new RestServiceException("The Contact has been modified since it was read, please fetch it again",
+                    Response.Status.PRECONDITION_FAILED, e);
+
+        } else if (e instanceof InvalidAreaCodeException) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("area_code", "The telephone area code provided is not recognised, please provide another");
+            return new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
+
+        } else {
+            // Handle generic exceptions
+            return new RestServiceException(e);
+        }
+    }
+
+    /**
+     * <p>A single contact write together with the suspended request waiting for its outcome.</p>
+     */
+    private abstract class Write implements Runnable {
+
+        private final AsyncResponse response;
+        private final Response.Status successStatus;
+        private final String conflictMessage;
+
+        Write(AsyncResponse response, Response.Status successStatus, String conflictMessage) {
+            this.response = response;
+            this.successStatus = successStatus;
+            this.conflictMessage = conflictMessage;
+        }
+
+        abstract Contact apply() throws Exception;
+
+        @Override
+        public void run() {
+            Contact contact;
+            try {
+                contact = apply();
+            } catch (Exception e) {
+                response.resume(toRestServiceException(e, conflictMessage));
+                return;
+            }
+
+            log.info("Contact write completed. Contact = {0}", contact.getId());
+            response.resume(Response.status(successStatus).entity(contact).tag(ContactRestService.entityTag(contact)).build());
+        }
+    }
+}
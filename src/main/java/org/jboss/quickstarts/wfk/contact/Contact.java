@@ -23,17 +23,21 @@ import java.io.Serializable;
 import java.util.Date;
 import java.util.Objects;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Past;
 import javax.validation.constraints.Pattern;
@@ -54,21 +58,47 @@ import javax.xml.bind.annotation.XmlRootElement;
  * form of query in JPA though is it more error prone due to the syntax being in a String.  This makes it harder to debug.
  */
 @Entity
+@Cacheable
 @NamedQueries({
         @NamedQuery(name = Contact.FIND_ALL, query = "SELECT c FROM Contact c ORDER BY c.lastName ASC, c.firstName ASC"),
-        @NamedQuery(name = Contact.FIND_BY_EMAIL, query = "SELECT c FROM Contact c WHERE c.email = :email")
+        @NamedQuery(name = Contact.FIND_PAGE, query = "SELECT c FROM Contact c ORDER BY c.lastName ASC, c.firstName ASC, c.id ASC"),
+        @NamedQuery(name = Contact.FIND_PAGE_AFTER, query = "SELECT c FROM Contact c WHERE c.lastName > :lastName"
+                + " OR (c.lastName = :lastName AND (c.firstName > :firstName OR (c.firstName = :firstName AND c.id > :id)))"
+                + " ORDER BY c.lastName ASC, c.firstName ASC, c.id ASC"),
+        @NamedQuery(name = Contact.FIND_NAMES, query = "SELECT c.id, c.firstName, c.lastName FROM Contact c"),
+        @NamedQuery(name = Contact.FIND_ALL_EMAILS, query = "SELECT c.email FROM Contact c"),
+        @NamedQuery(name = Contact.FIND_EXISTING_EMAILS, query = "SELECT c.email FROM Contact c WHERE c.email IN :emails"),
+        @NamedQuery(name = Contact.FIND_BY_EMAIL, query = "SELECT c FROM Contact c WHERE c.email = :email"),
+        @NamedQuery(name = Contact.FIND_VERSION, query = "SELECT c.version FROM Contact c WHERE c.id = :id"),
+        @NamedQuery(name = Contact.FIND_PENDING_ENRICHMENT, query = "SELECT c FROM Contact c WHERE c.enrichmentPending = true ORDER BY c.id")
 })
 @XmlRootElement
-@Table(name = "contact", uniqueConstraints = @UniqueConstraint(columnNames = "email"))
+@Table(name = "contact", uniqueConstraints = @UniqueConstraint(name = Contact.EMAIL_CONSTRAINT, columnNames = "email"),
+        indexes = @Index(name = "contact_name_idx", columnList = "last_name, first_name, id"))
 public class Contact implements Serializable {
     /** Default value included to remove warning. Remove or modify at will. **/
     private static final long serialVersionUID = 1L;
 
     public static final String FIND_ALL = "Contact.findAll";
+    public static final String EMAIL_CONSTRAINT = "contact_email_uk";
+    public static final String FIND_PAGE = "Contact.findPage";
+    public static final String FIND_PAGE_AFTER = "Contact.findPageAfter";
+    public static final String FIND_NAMES = "Contact.findNames";
     public static final String FIND_BY_EMAIL = "Contact.findByEmail";
-
+    public static final String FIND_VERSION = "Contact.findVersion";
+    public static final String FIND_ALL_EMAILS = "Contact.findAllEmails";
+    public static final String FIND_EXISTING_EMAILS = "Contact.findExistingEmails";
+    public static final String FIND_PENDING_ENRICHMENT = "Contact.findPendingEnrichment";
+
+    /*
+     * Ids come from a database sequence through Hibernate's pooled-lo optimizer (see persistence.xml): one sequence call
+     * reserves allocationSize ids, which are then handed out in memory. Unlike a TABLE generator this takes no row lock,
+     * and unlike IDENTITY the id is known before the INSERT, so inserts can be batched. The sequence starts above the ids
+     * used by import.sql.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.TABLE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "contact_seq")
+    @SequenceGenerator(name = "contact_seq", sequenceName = "contact_seq", initialValue = 100000, allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -102,6 +132,15 @@ public class Contact implements Serializable {
     @Column(name = "state")
     private String state;
 
+    /** Incremented on every update; used for optimistic locking and as part of the Contact's ETag. */
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    /** Set when the contact was accepted while the area code service was unavailable and its state is still unknown. */
+    @Column(name = "enrichment_pending")
+    private boolean enrichmentPending;
+
     public Long getId() {
         return id;
     }
@@ -158,6 +197,22 @@ public class Contact implements Serializable {
         return this.state;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public boolean isEnrichmentPending() {
+        return enrichmentPending;
+    }
+
+    public void setEnrichmentPending(boolean enrichmentPending) {
+        this.enrichmentPending = enrichmentPending;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
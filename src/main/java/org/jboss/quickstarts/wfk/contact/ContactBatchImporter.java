@@ -0,0 +1,166 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.contact;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.JsonRecordReader;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.RestServiceException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.ws.rs.core.Response;
+
+/**
+ * <p>Streams a bulk Contact upload into the database, writing a result line for every record as it goes.</p>
+ *
+ * <p>Records are read one at a time with a {@link JsonRecordReader} and collected into chunks of
+ * <code>contact.batch.chunkSize</code>. Each chunk is written by {@link ContactService#importChunk(List)} in its own
+ * transaction, after which its results are written and flushed to the client and the chunk is dropped. Neither the upload
+ * nor the report is ever held in memory as a whole.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ContactService#importChunk(List)
+ */
+public class ContactBatchImporter {
+
+    @Inject
+    private Log log;
+
+    @Inject
+    private ApplicationConfig config;
+
+    @Inject
+    private ContactService service;
+
+    /**
+     * <p>Imports every record of the upload and writes one NDJSON result line per record, in upload order.</p>
+     *
+     * @param in The upload, as a JSON array or NDJSON
+     * @param out The stream the results are written to
+     * @param mapper The ObjectMapper used to read the Contacts and write the results
+     * @throws IOException If either stream fails
+     */
+    void importAll(InputStream in, OutputStream out, ObjectMapper mapper) throws IOException {
+        int chunkSize = config.getInt("contact.batch.chunkSize", 500);
+
+        try (JsonRecordReader reader = new JsonRecordReader(mapper, in);
+             JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+
+            List<Contact> contacts = new ArrayList<>(chunkSize);
+            List<ContactImportResult> results = new ArrayList<>(chunkSize);
+            int index = 0;
+            int created = 0;
+
+            while (true) {
+                JsonNode node;
+                try {
+                    node = reader.next();
+                } catch (JsonProcessingException e) {
+                    // The rest of the upload can not be read, so report the problem and stop after the records read so far.
+                    created += writeChunk(generator, contacts, results, index - results.size());
+                    ContactImportResult result = ContactImportResult.failed(null, new RestServiceException(
+                            "Malformed JSON at line " + reader.getLineNumber(), Response.Status.BAD_REQUEST, e));
+                    result.setIndex(index);
+                    generator.writeObject(result);
+                    break;
+                }
+                if (node == null) {
+                    created += writeChunk(generator, contacts, results, index - results.size());
+                    break;
+                }
+
+                try {
+                    contacts.add(mapper.treeToValue(node, Contact.class));
+                    results.add(null);
+                } catch (JsonProcessingException e) {
+                    results.add(ContactImportResult.failed(null, new RestServiceException(
+                            "The record could not be read as a Contact", Response.Status.BAD_REQUEST, e)));
+                }
+                index++;
+
+                if (results.size() == chunkSize) {
+                    created += writeChunk(generator, contacts, results, index - results.size());
+                }
+            }
+
+            log.info("ContactBatchImporter.importAll() - Created {0} of {1} Contacts", created, index);
+        }
+    }
+
+    /**
+     * <p>Imports the Contacts of one chunk, writes the results of the whole chunk and empties it.</p>
+     *
+     * @return The number of Contacts created
+     */
+    private int writeChunk(JsonGenerator generator, List<Contact> contacts, List<ContactImportResult> results,
+                           int firstIndex) throws IOException {
+        if (results.isEmpty()) {
+            return 0;
+        }
+
+        List<ContactImportResult> imported;
+        if (contacts.isEmpty()) {
+            imported = Collections.emptyList();
+        } else {
+            try {
+                imported = service.importChunk(contacts);
+            } catch (Exception e) {
+                // The whole chunk has been rolled back.
+                log.warning("ContactBatchImporter.writeChunk() - Chunk starting at {0} failed: {1}", firstIndex, e);
+                RestServiceException failure = AsyncContactWriter.toRestServiceException(e, "Bad Request");
+                imported = new ArrayList<>(contacts.size());
+                for (Contact contact : contacts) {
+                    imported.add(ContactImportResult.failed(contact, failure));
+                }
+            }
+        }
+
+        int created = 0;
+        Iterator<ContactImportResult> importedResults = imported.iterator();
+        for (int i = 0; i < results.size(); i++) {
+            ContactImportResult result = results.get(i);
+            if (result == null) {
+                result = importedResults.next();
+            }
+            if (result.getStatus() == Response.Status.CREATED.getStatusCode()) {
+                created++;
+            }
+            result.setIndex(firstIndex + i);
+            generator.writeObject(result);
+        }
+        generator.flush();
+
+        contacts.clear();
+        results.clear();
+        return created;
+    }
+}
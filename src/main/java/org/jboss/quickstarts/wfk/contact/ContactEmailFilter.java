@@ -0,0 +1,242 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.contact;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.Log;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+
+/**
+ * <p>In-memory Bloom filter of the email addresses of every Contact, used to answer lookups of unknown addresses without
+ * querying the database.</p>
+ *
+ * <p>A Bloom filter never reports a stored address as missing, but may report a missing address as present with a
+ * probability of about <code>contact.emailFilter.fpp</code>. So when {@link #mightContain(String)} returns false the
+ * Contact certainly does not exist, and otherwise the database has to be asked.</p>
+ *
+ * <p>Bloom filters do not support removal. Addresses of deleted Contacts, and old addresses of updated ones, stay in the
+ * filter until the next rebuild; that only costs a database query for them, never a wrong answer. The filter is rebuilt
+ * from the database at startup and every <code>contact.emailFilter.rebuildMinutes</code> minutes.</p>
+ *
+ * <p>Addresses are added as soon as a Contact is written, before the transaction commits, so there is no window in which
+ * a committed Contact could be reported missing. They are added again after the commit, so that a rebuild which read the
+ * database just before the commit does not lose them.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ContactChangedEvent
+ */
+@ApplicationScoped
+public class ContactEmailFilter {
+
+    @Inject
+    private Log log;
+
+    @Inject
+    private ApplicationConfig config;
+
+    @Inject
+    private ContactRepository crud;
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    private ScheduledFuture<?> rebuildTask;
+
+    private int expectedInsertions;
+
+    private double fpp;
+
+    private volatile BloomFilter<CharSequence> filter;
+
+    /** The filter being built while a rebuild runs, which also receives every address added meanwhile. */
+    private volatile BloomFilter<CharSequence> building;
+
+    private volatile long lastRebuild;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong definiteMisses = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    /**
+     * <p>Builds the filter as soon as the application has started and schedules the periodic rebuild.</p>
+     *
+     * @param event The (unused) payload of the application scope initialisation event
+     */
+    void init(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        expectedInsertions = config.getInt("contact.emailFilter.expectedInsertions", 100000);
+        fpp = config.getDouble("contact.emailFilter.fpp", 0.01);
+
+        rebuild();
+        long interval = config.getLong("contact.emailFilter.rebuildMinutes", 60);
+        rebuildTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warning("ContactEmailFilter.rebuild() - Rebuild failed, keeping the current filter: {0}", e);
+                }
+            }
+        }, interval, interval, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void destroy() {
+        if (rebuildTask != null) {
+            rebuildTask.cancel(false);
+        }
+    }
+
+    /**
+     * <p>Adds the address of a Contact being written, as soon as it is written.</p>
+     *
+     * @param event The change to a Contact
+     */
+    void onContactWritten(@Observes ContactChangedEvent event) {
+        if (event.getType() != ContactChangedEvent.Type.DELETED) {
+            put(event.getEmail());
+        }
+    }
+
+    /**
+     * <p>Adds the address of a Contact again once the write has committed.</p>
+     *
+     * @param event The change to a Contact
+     */
+    void onContactCommitted(@Observes(during = TransactionPhase.AFTER_SUCCESS) ContactChangedEvent event) {
+        if (event.getType() != ContactChangedEvent.Type.DELETED) {
+            put(event.getEmail());
+        }
+    }
+
+    /**
+     * <p>Checks whether a Contact with the email address might exist.</p>
+     *
+     * @param email The email address
+     * @return false if there is certainly no Contact with the address; true if there may be one
+     */
+    public boolean mightContain(String email) {
+        lookups.incrementAndGet();
+        BloomFilter<CharSequence> current = filter;
+        if (current == null || email == null) {
+            return true;
+        }
+        if (current.mightContain(normalize(email))) {
+            return true;
+        }
+        definiteMisses.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * <p>Builds a new filter from the email addresses in the database and swaps it in.</p>
+     *
+     * <p>The new filter is sized for twice the current number of addresses, or <code>expectedInsertions</code> if that
+     * is larger, so that it keeps its false positive rate as the table grows.</p>
+     */
+    void rebuild() {
+        BloomFilter<CharSequence> current = filter;
+        long size = current == null ? 0 : current.approximateElementCount();
+        BloomFilter<CharSequence> fresh = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                Math.max(expectedInsertions, 2 * size), fpp);
+
+        building = fresh;
+        try {
+            List<String> emails = crud.findAllEmails();
+            for (String email : emails) {
+                fresh.put(normalize(email));
+            }
+            filter = fresh;
+            lastRebuild = System.currentTimeMillis();
+            rebuilds.incrementAndGet();
+            log.info("ContactEmailFilter.rebuild() - Loaded {0} email addresses", emails.size());
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * <p>Returns the size, accuracy and effectiveness of the filter.</p>
+     *
+     * @return Map of statistic name to value
+     */
+    public Map<String, Object> getStatistics() {
+        BloomFilter<CharSequence> current = filter;
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("lookups", lookups.get());
+        statistics.put("definiteMisses", definiteMisses.get());
+        statistics.put("rebuilds", rebuilds.get());
+        statistics.put("lastRebuildMillis", lastRebuild);
+        statistics.put("configuredFpp", fpp);
+        if (current != null) {
+            long elements = current.approximateElementCount();
+            statistics.put("approximateElements", elements);
+            statistics.put("expectedFpp", current.expectedFpp());
+            statistics.put("memoryBytes", optimalBits(Math.max(expectedInsertions, 2 * elements), fpp) / 8);
+        }
+        return statistics;
+    }
+
+    private void put(String email) {
+        if (email == null) {
+            return;
+        }
+        String key = normalize(email);
+        BloomFilter<CharSequence> current = filter;
+        if (current != null) {
+            current.put(key);
+        }
+        BloomFilter<CharSequence> next = building;
+        if (next != null) {
+            next.put(key);
+        }
+    }
+
+    /**
+     * <p>Email addresses are compared case-insensitively by the filter; this only adds false positives.</p>
+     */
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * <p>Returns the number of bits Guava allocates for a Bloom filter of n elements with false positive rate p.</p>
+     */
+    private static long optimalBits(long n, double p) {
+        return (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.contact;
+
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.Log;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+/**
+ * <p>Background job which fills in the state of Contacts that were accepted while the area code service was unavailable
+ * (see the <code>defer</code> fallback of {@link ContactService}).</p>
+ *
+ * <p>Every <code>contact.enrichment.intervalSeconds</code> seconds up to <code>contact.enrichment.batchSize</code> pending
+ * Contacts are looked up, in a single transaction.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ContactService#enrichPending(int)
+ */
+@ApplicationScoped
+public class ContactEnrichmentJob {
+
+    @Inject
+    private Log log;
+
+    @Inject
+    private ApplicationConfig config;
+
+    @Inject
+    private ContactService service;
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    private ScheduledFuture<?> task;
+
+    /**
+     * <p>Schedules the job as soon as the application has started.</p>
+     *
+     * @param event The (unused) payload of the application scope initialisation event
+     */
+    void init(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        final int batchSize = config.getInt("contact.enrichment.batchSize", 100);
+        long interval = config.getLong("contact.enrichment.intervalSeconds", 60);
+        task = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int enriched = service.enrichPending(batchSize);
+                    if (enriched > 0) {
+                        log.info("ContactEnrichmentJob - Enriched {0} Contacts", enriched);
+                    }
+                } catch (RuntimeException e) {
+                    log.warning("ContactEnrichmentJob - Enrichment failed: {0}", e.getMessage());
+                }
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void destroy() {
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+}
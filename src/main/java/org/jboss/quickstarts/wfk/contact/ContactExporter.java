@@ -0,0 +1,162 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.contact;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.StatelessSession;
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+
+import javax.inject.Inject;
+
+/**
+ * <p>Writes every Contact to a stream, as NDJSON or CSV, in constant memory.</p>
+ *
+ * <p>Contacts are read through a forward-only cursor of a stateless session (see
+ * {@link ContactRepository#scrollAllOrderedByName(StatelessSession, int)}), so they are never attached to a persistence
+ * context, and each one is written out as soon as it is read. The first row is flushed straight away so that clients see
+ * the export start immediately.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ContactRepository
+ */
+public class ContactExporter {
+
+    /** The formats Contacts can be exported in. */
+    public enum Format {
+        NDJSON("application/x-ndjson"), CSV("text/csv");
+
+        private final String mediaType;
+
+        Format(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+    }
+
+    private static final String CSV_HEADER = "id,first_name,last_name,email,phone_number,birth_date,state";
+
+    @Inject
+    private Log log;
+
+    @Inject
+    private ApplicationConfig config;
+
+    @Inject
+    private ContactRepository crud;
+
+    /**
+     * <p>Writes every Contact, sorted alphabetically by last name, to the stream.</p>
+     *
+     * @param out The stream to write to
+     * @param format The format to write in
+     * @param mapper The ObjectMapper used to write NDJSON
+     * @throws IOException If the stream fails
+     */
+    void export(OutputStream out, Format format, ObjectMapper mapper) throws IOException {
+        long rows = 0;
+        try (StatelessSession session = crud.openStatelessSession();
+             ScrollableResults results = crud.scrollAllOrderedByName(session, config.getInt("contact.export.fetchSize", 500))) {
+
+            if (format == Format.CSV) {
+                rows = writeCsv(results, out);
+            } else {
+                rows = writeNdjson(results, out, mapper);
+            }
+        } finally {
+            log.info("ContactExporter.export() - Exported {0} Contacts as {1}", rows, format);
+        }
+    }
+
+    private long writeNdjson(ScrollableResults results, OutputStream out, ObjectMapper mapper) throws IOException {
+        long rows = 0;
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            while (results.next()) {
+                generator.writeObject(results.get(0));
+                if (++rows == 1) {
+                    generator.flush();
+                }
+            }
+            if (rows > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        return rows;
+    }
+
+    private long writeCsv(ScrollableResults results, OutputStream out) throws IOException {
+        long rows = 0;
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.write(CSV_HEADER);
+            writer.write("\r\n");
+            while (results.next()) {
+                Contact contact = (Contact) results.get(0);
+                writer.write(String.valueOf(contact.getId()));
+                writer.write(',');
+                writeCsvField(writer, contact.getFirstName());
+                writer.write(',');
+                writeCsvField(writer, contact.getLastName());
+                writer.write(',');
+                writeCsvField(writer, contact.getEmail());
+                writer.write(',');
+                writeCsvField(writer, contact.getPhoneNumber());
+                writer.write(',');
+                writeCsvField(writer, contact.getBirthDate() == null ? null : dateFormat.format(contact.getBirthDate()));
+                writer.write(',');
+                writeCsvField(writer, contact.getState());
+                writer.write("\r\n");
+                if (++rows == 1) {
+                    writer.flush();
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * <p>Writes a CSV field, quoting it (RFC 4180) if it contains a separator, quote or line break.</p>
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
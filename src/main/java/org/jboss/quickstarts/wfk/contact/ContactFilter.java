@@ -0,0 +1,76 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.contact;
+
+/**
+ * <p>The search criteria for a Contact listing. Every criterion which is set narrows the result, and all of them are
+ * applied together in a single query by {@link ContactRepository#findAll(ContactFilter)}.</p>
+ *
+ * <p>Names are matched exactly by default. They can instead be matched ignoring case, as a prefix, or both.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ContactRepository
+ */
+public class ContactFilter {
+
+    private String firstName;
+
+    private String lastName;
+
+    private boolean ignoreCase;
+
+    private boolean prefix;
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    public void setIgnoreCase(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+    public boolean isPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(boolean prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * @return true if no criterion is set, so every Contact matches
+     */
+    public boolean isEmpty() {
+        return firstName == null && lastName == null;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.contact;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import org.jboss.quickstarts.wfk.util.RestServiceException;
+
+import java.util.Map;
+
+/**
+ * <p>The outcome of importing one record of a bulk Contact upload.</p>
+ *
+ * <p>The status mirrors the response the single Contact endpoint would have given for the same record: 201 with the
+ * new id, or the error status with the same message and reasons.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ContactBatchImporter
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ContactImportResult {
+
+    private int index;
+    private int status;
+    private Long id;
+    private String email;
+    private String error;
+    private Map<String, String> reasons;
+
+    static ContactImportResult created(Contact contact) {
+        ContactImportResult result = new ContactImportResult();
+        result.status = 201;
+        result.id = contact.getId();
+        result.email = contact.getEmail();
+        return result;
+    }
+
+    static ContactImportResult failed(Contact contact, RestServiceException e) {
+        ContactImportResult result = new ContactImportResult();
+        result.status = e.getStatus().getStatusCode();
+        result.email = contact == null ? null : contact.getEmail();
+        result.error = e.getMessage();
+        result.reasons = e.getReasons().isEmpty() ? null : e.getReasons();
+        return result;
+    }
+
+    /**
+     * @return The position of the record in the upload, starting from 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Map<String, String> getReasons() {
+        return reasons;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.contact;
+
+import org.jboss.quickstarts.wfk.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+
+/**
+ * <p>In-memory prefix index over Contact names, used for type-ahead search without querying the database.</p>
+ *
+ * <p>Every Contact is indexed under its normalized (trimmed, lower case) first name, last name and "first last" full name.
+ * The keys live in a sorted {@link ConcurrentSkipListMap}, so all keys starting with a prefix form one contiguous range
+ * which is found in O(log n) and walked only as far as the number of suggestions wanted. Each key is suffixed with the
+ * Contact id to keep keys of people with the same name distinct.</p>
+ *
+ * <p>The index is loaded from the database when the application starts and is then kept up to date from the
+ * {@link ContactChangedEvent}s fired by {@link ContactService}, which are only delivered once the change has committed.
+ * Changes which arrive while the index is loading are held back and applied after it. Changes are applied one at a time
+ * under the monitor of the index, while suggestions are read without locking.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ContactChangedEvent
+ */
+@ApplicationScoped
+public class ContactNameIndex {
+
+    private static final char ID_SEPARATOR = '\u0000';
+
+    @Inject
+    private Log log;
+
+    @Inject
+    private ContactRepository crud;
+
+    private final ConcurrentNavigableMap<String, Long> keys = new ConcurrentSkipListMap<>();
+
+    private final ConcurrentMap<Long, ContactSuggestion> suggestions = new ConcurrentHashMap<>();
+
+    /** Changes which arrived before the initial load finished, or null once it has. Guarded by this. */
+    private List<ContactChangedEvent> pending = new ArrayList<>();
+
+    /**
+     * <p>Loads the names of every Contact as soon as the application has started.</p>
+     *
+     * @param event The (unused) payload of the application scope initialisation event
+     */
+    void init(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        List<Object[]> rows = crud.findAllNames();
+        synchronized (this) {
+            for (Object[] row : rows) {
+                put(new ContactSuggestion((Long) row[0], (String) row[1], (String) row[2]));
+            }
+            for (ContactChangedEvent change : pending) {
+                apply(change);
+            }
+            pending = null;
+        }
+        log.info("ContactNameIndex.init() - Indexed {0} Contacts", suggestions.size());
+    }
+
+    /**
+     * <p>Applies a committed change to the index.</p>
+     *
+     * @param event The change to a Contact
+     */
+    synchronized void onContactChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ContactChangedEvent event) {
+        if (pending != null) {
+            pending.add(event);
+        } else {
+            apply(event);
+        }
+    }
+
+    private void apply(ContactChangedEvent event) {
+        if (event.getType() == ContactChangedEvent.Type.DELETED) {
+            remove(event.getId());
+        } else {
+            put(new ContactSuggestion(event.getId(), event.getFirstName(), event.getLastName()));
+        }
+    }
+
+    /**
+     * <p>Returns the Contacts with a first name, last name or full name starting with the given text, in alphabetical
+     * order of the matching name.</p>
+     *
+     * @param text The text typed so far
+     * @param limit The maximum number of suggestions to return
+     * @return Up to <code>limit</code> suggestions; none if the text is blank
+     */
+    public List<ContactSuggestion> suggest(String text, int limit) {
+        String prefix = normalize(text);
+        List<ContactSuggestion> result = new ArrayList<>();
+        if (prefix.isEmpty()) {
+            return result;
+        }
+
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Long id : keys.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (ids.add(id)) {
+                ContactSuggestion suggestion = suggestions.get(id);
+                if (suggestion != null) {
+                    result.add(suggestion);
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of Contacts in the index
+     */
+    public int size() {
+        return suggestions.size();
+    }
+
+    private synchronized void put(ContactSuggestion suggestion) {
+        ContactSuggestion previous = suggestions.put(suggestion.getId(), suggestion);
+        if (previous != null) {
+            removeKeys(previous);
+        }
+        for (String key : keysOf(suggestion)) {
+            keys.put(key, suggestion.getId());
+        }
+    }
+
+    private synchronized void remove(Long id) {
+        ContactSuggestion previous = suggestions.remove(id);
+        if (previous != null) {
+            removeKeys(previous);
+        }
+    }
+
+    private void removeKeys(ContactSuggestion suggestion) {
+        for (String key : keysOf(suggestion)) {
+            keys.remove(key, suggestion.getId());
+        }
+    }
+
+    private static List<String> keysOf(ContactSuggestion suggestion) {
+        String first = normalize(suggestion.getFirstName());
+        String last = normalize(suggestion.getLastName());
+        String suffix = ID_SEPARATOR + String.valueOf(suggestion.getId());
+
+        List<String> result = new ArrayList<>(3);
+        result.add(first + suffix);
+        result.add(last + suffix);
+        result.add(first + " " + last + suffix);
+        return result;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
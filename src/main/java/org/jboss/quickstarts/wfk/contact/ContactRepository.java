@@ -16,15 +16,30 @@
  */
 package org.jboss.quickstarts.wfk.contact;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.UniqueConstraints;
+
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.Locale;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.FlushModeType;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceException;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
@@ -43,7 +58,7 @@ import javax.validation.ValidationException;
 public class ContactRepository {
 
     @Inject
-    private @Named("logger") Logger log;
+    private Log log;
 
     @Inject
     private EntityManager em;
@@ -58,6 +73,119 @@ public class ContactRepository {
         return query.getResultList();
     }
 
+    /**
+     * <p>Opens a Hibernate StatelessSession on its own connection. A stateless session has no persistence context, so
+     * the entities it reads are never attached and can not accumulate in memory. The caller must close the session.</p>
+     *
+     * @return A new StatelessSession
+     */
+    StatelessSession openStatelessSession() {
+        return em.getEntityManagerFactory().unwrap(SessionFactory.class).openStatelessSession();
+    }
+
+    /**
+     * <p>Opens a forward-only, read-only cursor over every Contact, sorted alphabetically by last name. Rows are fetched
+     * from the database <code>fetchSize</code> at a time as the cursor advances.</p>
+     *
+     * @param session The session to read with, from {@link #openStatelessSession()}
+     * @param fetchSize The number of rows to fetch per round trip
+     * @return The cursor, which the caller must close
+     */
+    ScrollableResults scrollAllOrderedByName(StatelessSession session, int fetchSize) {
+        return session.getNamedQuery(Contact.FIND_ALL)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    /**
+     * <p>Returns the Contacts matching every criterion of the filter, sorted alphabetically by last name.</p>
+     *
+     * <p>All of the criteria are combined into the WHERE clause of one query, so adding criteria does not add queries.</p>
+     *
+     * @param filter The criteria the Contacts must match
+     * @return The matching Contacts
+     */
+    List<Contact> findAll(ContactFilter filter) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Contact> criteria = cb.createQuery(Contact.class);
+        Root<Contact> contact = criteria.from(Contact.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getFirstName() != null) {
+            predicates.add(matches(cb, contact.<String>get("firstName"), filter.getFirstName(), filter));
+        }
+        if (filter.getLastName() != null) {
+            predicates.add(matches(cb, contact.<String>get("lastName"), filter.getLastName(), filter));
+        }
+
+        criteria.select(contact)
+                .where(predicates.toArray(new Predicate[predicates.size()]))
+                .orderBy(cb.asc(contact.get("lastName")), cb.asc(contact.get("firstName")));
+        return em.createQuery(criteria).getResultList();
+    }
+
+    private static Predicate matches(CriteriaBuilder cb, Expression<String> field, String value, ContactFilter filter) {
+        if (filter.isIgnoreCase()) {
+            field = cb.lower(field);
+            value = value.toLowerCase(Locale.ROOT);
+        }
+        if (filter.isPrefix()) {
+            String escaped = value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            return cb.like(field, escaped + "%", '\\');
+        }
+        return cb.equal(field, value);
+    }
+
+    /**
+     * <p>Returns the first <code>max</code> Contacts in (lastName, firstName, id) order.</p>
+     *
+     * @param max The maximum number of Contacts to return
+     * @return The first Contacts in name order
+     */
+    List<Contact> findPage(int max) {
+        TypedQuery<Contact> query = em.createNamedQuery(Contact.FIND_PAGE, Contact.class).setMaxResults(max);
+        return query.getResultList();
+    }
+
+    /**
+     * <p>Returns up to <code>max</code> Contacts which sort after the given (lastName, firstName, id) key.</p>
+     *
+     * <p>The query seeks along the contact_name_idx index, so it costs the same however deep into the table the key is.</p>
+     *
+     * @param lastName The lastName of the last Contact already returned
+     * @param firstName The firstName of the last Contact already returned
+     * @param id The id of the last Contact already returned
+     * @param max The maximum number of Contacts to return
+     * @return The next Contacts in name order
+     */
+    List<Contact> findPageAfter(String lastName, String firstName, Long id, int max) {
+        TypedQuery<Contact> query = em.createNamedQuery(Contact.FIND_PAGE_AFTER, Contact.class)
+                .setParameter("lastName", lastName)
+                .setParameter("firstName", firstName)
+                .setParameter("id", id)
+                .setMaxResults(max);
+        return query.getResultList();
+    }
+
+    /**
+     * <p>Returns the id, firstName and lastName of every Contact, without loading the Contacts themselves.</p>
+     *
+     * @return One (id, firstName, lastName) row per Contact
+     */
+    List<Object[]> findAllNames() {
+        return em.createNamedQuery(Contact.FIND_NAMES, Object[].class).getResultList();
+    }
+
+    /**
+     * <p>Returns the email address of every Contact, without loading the Contacts themselves.</p>
+     *
+     * @return List of email addresses
+     */
+    List<String> findAllEmails() {
+        return em.createNamedQuery(Contact.FIND_ALL_EMAILS, String.class).getResultList();
+    }
+
     /**
      * <p>Returns a single Contact object, specified by a Long id.<p/>
      *
@@ -81,6 +209,27 @@ public class ContactRepository {
         return query.getSingleResult();
     }
 
+    /**
+     * <p>Returns up to <code>max</code> Contacts whose state could not be looked up when they were written, oldest first.</p>
+     *
+     * @param max The maximum number of Contacts to return
+     * @return The Contacts waiting for their state
+     */
+    List<Contact> findPendingEnrichment(int max) {
+        TypedQuery<Contact> query = em.createNamedQuery(Contact.FIND_PENDING_ENRICHMENT, Contact.class).setMaxResults(max);
+        return query.getResultList();
+    }
+
+    /**
+     * <p>Returns which of the given email addresses already belong to a Contact, in a single query.</p>
+     *
+     * @param emails The email addresses to check; must not be empty
+     * @return The email addresses which are already in use
+     */
+    List<String> findExistingEmails(Collection<String> emails) {
+        return em.createNamedQuery(Contact.FIND_EXISTING_EMAILS, String.class).setParameter("emails", emails).getResultList();
+    }
+
     /**
      * <p>Returns a list of Contact objects, specified by a String firstName.<p/>
      *
@@ -121,41 +270,116 @@ public class ContactRepository {
      *
      * <p>persist(Object) will set the @GeneratedValue @Id for an object.</p>
      *
+     * <p>The insert is flushed straight away so that the database can enforce the unique email constraint here, rather
+     * than at commit.</p>
+     *
      * @param contact The Contact object to be persisted
      * @return The Contact object that has been persisted
+     * @throws UniqueEmailException If another Contact already has the email address
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Contact create(Contact contact) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("ContactRepository.create() - Creating " + contact.getFirstName() + " " + contact.getLastName());
+        log.info("ContactRepository.create() - Creating {0} {1}", contact.getFirstName(), contact.getLastName());
 
         // Write the contact to the database.
         em.persist(contact);
+        flush();
 
         return contact;
     }
 
+    /**
+     * <p>Persists all of the provided Contact objects, then flushes them to the database and clears the persistence
+     * context.</p>
+     *
+     * <p>With <code>hibernate.jdbc.batch_size</code> set the inserts are sent to the database in JDBC batches, and clearing
+     * the context afterwards stops the persisted Contacts from piling up in memory over a long import.</p>
+     *
+     * @param contacts The Contact objects to be persisted
+     */
+    void createAll(List<Contact> contacts) {
+        log.info("ContactRepository.createAll() - Creating {0} Contacts", contacts.size());
+
+        for (Contact contact : contacts) {
+            em.persist(contact);
+        }
+        em.flush();
+        em.clear();
+    }
+
     /**
      * <p>Updates an existing Contact object in the application database with the provided Contact object.</p>
      *
-     * <p>{@link javax.persistence.EntityManager#merge(Object) merge(Object)} creates a new instance of your entity,
-     * copies the state from the supplied entity, and makes the new copy managed. The instance you pass in will not be
-     * managed (any changes you make will not be part of the transaction - unless you call merge again).</p>
+     * <p>Unlike {@link javax.persistence.EntityManager#merge(Object) merge(Object)}, which loads the stored entity and
+     * copies the supplied state onto it, Hibernate's {@link Session#update(Object) update(Object)} makes the supplied
+     * instance itself managed. It must have an object with the @Id already generated.</p>
      *
-     * <p>merge(Object) however must have an object with the @Id already generated.</p>
+     * <p>The Contact is not loaded first. It is reattached as it is, so the flush writes it with a single
+     * <code>UPDATE ... WHERE id = ? AND version = ?</code>, and updates its entry in the second-level cache rather than
+     * evicting the whole region as a bulk UPDATE would. Only if no row was updated is the stored version read, to tell a
+     * missing Contact from a stale one. A Contact supplied without a version overwrites whichever version is stored.</p>
      *
-     * @param contact The Contact object to be merged with an existing Contact
-     * @return The Contact that has been merged
+     * @param contact The Contact object to be written over an existing Contact
+     * @return The supplied Contact, now managed and with its new version
+     * @throws EntityNotFoundException If there is no Contact with the id
+     * @throws OptimisticLockException If the Contact has been modified since the supplied version
+     * @throws UniqueEmailException If another Contact already has the email address
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Contact update(Contact contact) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("ContactRepository.update() - Updating " + contact.getFirstName() + " " + contact.getLastName());
+        log.info("ContactRepository.update() - Updating {0} {1}", contact.getFirstName(), contact.getLastName());
+
+        if (contact.getVersion() == null) {
+            Long stored = findVersion(contact.getId());
+            if (stored == null) {
+                throw new EntityNotFoundException("No Contact with the id " + contact.getId() + " was found!");
+            }
+            contact.setVersion(stored);
+        }
 
-        // Either update the contact or add it if it can't be found.
-        em.merge(contact);
+        em.unwrap(Session.class).update(contact);
 
+        // Flush here so that a missing or stale Contact surfaces as an OptimisticLockException, and a taken email address
+        // as a UniqueEmailException, from this method.
+        try {
+            flush();
+        } catch (OptimisticLockException e) {
+            Long stored = findVersion(contact.getId());
+            if (stored == null) {
+                throw new EntityNotFoundException("No Contact with the id " + contact.getId() + " was found!");
+            }
+            throw new OptimisticLockException("Contact " + contact.getId() + " is at version " + stored
+                    + ", not " + contact.getVersion(), e);
+        }
         return contact;
     }
 
+    /**
+     * <p>Reads the stored version of a Contact, without loading it. The query does not flush the persistence context
+     * first, so it can be run after a failed flush.</p>
+     *
+     * @param id The id of the Contact
+     * @return The version of the Contact, or null if there is no Contact with the id
+     */
+    private Long findVersion(Long id) {
+        List<Long> versions = em.createNamedQuery(Contact.FIND_VERSION, Long.class)
+                .setParameter("id", id)
+                .setFlushMode(FlushModeType.COMMIT)
+                .getResultList();
+        return versions.isEmpty() ? null : versions.get(0);
+    }
+
+    private void flush() throws UniqueEmailException {
+        try {
+            em.flush();
+        } catch (PersistenceException e) {
+            if (UniqueConstraints.isViolated(e, Contact.EMAIL_CONSTRAINT)) {
+                throw new UniqueEmailException("Unique Email Violation", e);
+            }
+            throw e;
+        }
+    }
+
     /**
      * <p>Deletes the provided Contact object from the application database if found there</p>
      *
@@ -164,7 +388,7 @@ public class ContactRepository {
      * @throws Exception
      */
     Contact delete(Contact contact) throws Exception {
-        log.info("ContactRepository.delete() - Deleting " + contact.getFirstName() + " " + contact.getLastName());
+        log.info("ContactRepository.delete() - Deleting {0} {1}", contact.getFirstName(), contact.getLastName());
 
         if (contact.getId() != null) {
             /*
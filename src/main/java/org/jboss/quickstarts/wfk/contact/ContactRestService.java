@@ -16,32 +16,49 @@
  */
 package org.jboss.quickstarts.wfk.contact;
 
-import org.jboss.quickstarts.wfk.area.InvalidAreaCodeException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.ErrorMessage;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.Page;
 import org.jboss.quickstarts.wfk.util.RestServiceException;
 import org.jboss.resteasy.annotations.cache.Cache;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.logging.Logger;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.persistence.NoResultException;
-import javax.validation.ConstraintViolation;
-import javax.validation.ConstraintViolationException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Link;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.Providers;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -64,6 +81,7 @@ import io.swagger.annotations.ApiResponses;
  * 
  * @author Joshua Wilson
  * @see ContactService
+ * @see AsyncContactWriter
  * @see javax.ws.rs.core.Response
  */
 @Path("/contacts")
@@ -73,11 +91,23 @@ import io.swagger.annotations.ApiResponses;
 @Stateless
 public class ContactRestService {
     @Inject
-    private @Named("logger") Logger log;
+    private Log log;
     
     @Inject
     private ContactService service;
 
+    @Inject
+    private AsyncContactWriter writer;
+
+    @Inject
+    private ContactBatchImporter importer;
+
+    @Inject
+    private ContactExporter exporter;
+
+    @Inject
+    private ApplicationConfig config;
+
     /**
      * <p>Return all the Contacts.  They are sorted alphabetically by name.</p>
      *
@@ -85,28 +115,185 @@ public class ContactRestService {
      *
      * <p>Examples: <pre>GET api/contacts?firstname=John</pre>, <pre>GET api/contacts?firstname=John&lastname=Smith</pre></p>
      *
+     * <p>Names are matched exactly unless <code>ignorecase</code> and/or <code>prefix</code> are set, e.g.
+     * <pre>GET api/contacts?lastname=smi&ignorecase=true&prefix=true</pre></p>
+     *
+     * <p>Alternatively the Contacts may be fetched a page at a time by supplying <code>limit</code>. The cursor of the next
+     * page is returned in the X-Next-Cursor header and as a Link with rel="next"; pass it back as <code>after</code>.</p>
+     *
+     * <p>Example: <pre>GET api/contacts?limit=100&after=AwAFSm9uZXM...</pre></p>
+     *
+     * @param firstname The firstName of the Contacts to return
+     * @param lastname The lastName of the Contacts to return
+     * @param ignoreCase Whether names are matched ignoring case
+     * @param prefix Whether names are matched as prefixes
+     * @param limit The maximum number of Contacts to return on one page
+     * @param after The cursor of the page to return
+     * @param uriInfo Used to build the link to the next page
      * @return A Response containing a list of Contacts
      */
     @GET
     @ApiOperation(value = "Fetch all Contacts", notes = "Returns a JSON array of all stored Contact objects.")
-    public Response retrieveAllContacts(@QueryParam("firstname") String firstname, @QueryParam("lastname") String lastname) {
-        //Create an empty collection to contain the intersection of Contacts to be returned
-        List<Contact> contacts;
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Contacts found"),
+            @ApiResponse(code = 400, message = "Invalid paging parameters supplied")
+    })
+    public Response retrieveAllContacts(
+            @QueryParam("firstname") String firstname,
+            @QueryParam("lastname") String lastname,
+            @ApiParam(value = "Match names ignoring case")
+            @QueryParam("ignorecase")
+            @DefaultValue("false")
+            boolean ignoreCase,
+            @ApiParam(value = "Match names which start with the values given")
+            @QueryParam("prefix")
+            @DefaultValue("false")
+            boolean prefix,
+            @ApiParam(value = "Maximum number of Contacts to return on one page", allowableValues = "range[1, infinity]")
+            @QueryParam("limit")
+            Integer limit,
+            @ApiParam(value = "Cursor of the page to return, from the X-Next-Cursor header of the previous page")
+            @QueryParam("after")
+            String after,
+            @Context
+            UriInfo uriInfo) {
+
+        if (limit != null || after != null) {
+            return retrievePageOfContacts(firstname, lastname, limit, after, uriInfo);
+        }
 
-        if(firstname == null && lastname == null) {
+        ContactFilter filter = new ContactFilter();
+        filter.setFirstName(firstname);
+        filter.setLastName(lastname);
+        filter.setIgnoreCase(ignoreCase);
+        filter.setPrefix(prefix);
+
+        List<Contact> contacts;
+        if (filter.isEmpty()) {
             contacts = service.findAllOrderedByName();
-        } else if(lastname == null) {
-                contacts = service.findAllByFirstName(firstname);
-        } else if(firstname == null) {
-                contacts = service.findAllByLastName(lastname);
         } else {
-                contacts = service.findAllByFirstName(firstname);
-                contacts.retainAll(service.findAllByLastName(lastname));
+            // Every supplied name is applied in the same query.
+            contacts = service.findAll(filter);
         }
 
         return Response.ok(contacts).build();
     }
 
+    private Response retrievePageOfContacts(String firstname, String lastname, Integer limit, String after, UriInfo uriInfo) {
+        if (firstname != null || lastname != null) {
+            throw new RestServiceException("Paging is only supported when listing all Contacts", Response.Status.BAD_REQUEST);
+        }
+
+        int maxLimit = config.getInt("contact.page.maxLimit", 1000);
+        int pageSize = limit == null ? config.getInt("contact.page.defaultLimit", 50) : limit;
+        if (pageSize < 1 || pageSize > maxLimit) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("limit", "The limit must be between 1 and " + maxLimit);
+            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST);
+        }
+
+        Page<Contact> page;
+        try {
+            page = service.findPage(after, pageSize);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("after", "The cursor is not valid, please use one returned by a previous page");
+            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
+        }
+
+        Response.ResponseBuilder builder = Response.ok(page.getItems());
+        if (page.getNext() != null) {
+            builder.header("X-Next-Cursor", page.getNext())
+                    .links(Link.fromUriBuilder(uriInfo.getRequestUriBuilder()
+                            .replaceQueryParam("limit", pageSize)
+                            .replaceQueryParam("after", page.getNext())).rel("next").build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * <p>Export every Contact, sorted alphabetically by name, as newline delimited JSON (one Contact per line) or as CSV.</p>
+     *
+     * <p>The Contacts are streamed straight from the database to the client, so exports of any size use the same memory.</p>
+     *
+     * <p>Examples: <pre>GET api/contacts/export</pre>, <pre>GET api/contacts/export?format=csv</pre></p>
+     *
+     * @param format ndjson (the default) or csv
+     * @param providers Used to find the application's configured ObjectMapper
+     * @return A Response streaming every Contact
+     */
+    @GET
+    @Path("/export")
+    @Produces({"application/x-ndjson", "text/csv"})
+    @ApiOperation(value = "Export all Contacts", notes = "Streams every Contact as NDJSON or CSV.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Export started"),
+            @ApiResponse(code = 400, message = "Invalid format supplied")
+    })
+    public Response exportContacts(
+            @ApiParam(value = "Format of the export", allowableValues = "ndjson, csv")
+            @QueryParam("format")
+            @DefaultValue("ndjson")
+            String format,
+            @Context
+            Providers providers) {
+
+        final ContactExporter.Format exportFormat;
+        try {
+            exportFormat = ContactExporter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("format", "The format must be ndjson or csv");
+            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
+        }
+
+        final ObjectMapper mapper = providers.getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE)
+                .getContext(Contact.class);
+
+        StreamingOutput output = new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                exporter.export(out, exportFormat, mapper);
+            }
+        };
+        return Response.ok(output, exportFormat.getMediaType()).build();
+    }
+
+    /**
+     * <p>Return the Contacts whose first name, last name or full name starts with the text typed so far. Suggestions are
+     * served from an in-memory index and do not query the database.</p>
+     *
+     * <p>Example: <pre>GET api/contacts/suggest?q=jo&limit=5</pre></p>
+     *
+     * @param q The text typed so far
+     * @param limit The maximum number of suggestions to return
+     * @return A Response containing a list of suggestions, each with the Contact's id, firstName and lastName
+     */
+    @GET
+    @Path("/suggest")
+    @ApiOperation(value = "Suggest Contacts by name prefix", notes = "Returns up to limit Contacts whose name starts with q.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Suggestions found"),
+            @ApiResponse(code = 400, message = "Invalid limit supplied")
+    })
+    public Response suggestContacts(
+            @ApiParam(value = "Start of the first name, last name or full name", required = true)
+            @QueryParam("q")
+            String q,
+            @ApiParam(value = "Maximum number of suggestions to return", allowableValues = "range[1, 100]")
+            @QueryParam("limit")
+            @DefaultValue("10")
+            int limit) {
+
+        if (limit < 1 || limit > 100) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("limit", "The limit must be between 1 and 100");
+            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST);
+        }
+
+        return Response.ok(service.suggest(q, limit)).build();
+    }
+
     /**
      * <p>Search for and return a Contact identified by email address.<p/>
      *
@@ -114,11 +301,18 @@ public class ContactRestService {
      * <strong>DO NOT</strong> attempt to use this regex to validate email addresses.</p>
      *
      *
+     * <p>The response carries the Contact's ETag, and a request with a matching If-None-Match is answered with 304
+     * (Not Modified) and no body.</p>
+     *
+     * <p>Most lookups of unknown addresses are answered with 404 straight from the in-memory {@link ContactEmailFilter},
+     * without a database query.</p>
+     *
      * @param email The string parameter value provided as a Contact's email
+     * @param request Used to evaluate the If-None-Match precondition
      * @return A Response containing a single Contact
      */
     @GET
-    @Cache
+    @Cache(maxAge = 0, mustRevalidate = true)
     @Path("/email/{email:.+[%40|@].+}")
     @ApiOperation(
             value = "Fetch a Contact by Email",
@@ -126,12 +320,21 @@ public class ContactRestService {
     )
     @ApiResponses(value = {
             @ApiResponse(code = 200, message ="Contact found"),
+            @ApiResponse(code = 304, message = "Contact not modified"),
             @ApiResponse(code = 404, message = "Contact with email not found")
     })
     public Response retrieveContactsByEmail(
             @ApiParam(value = "Email of Contact to be fetched", required = true)
             @PathParam("email")
-            String email) {
+            String email,
+            @Context
+            Request request) {
+
+        if (!service.mightHaveEmail(email)) {
+            // A definite miss is an expected outcome here, so answer it directly rather than log it as an error.
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(new ErrorMessage("No Contact with the email " + email + " was found!")).build();
+        }
 
         Contact contact;
         try {
@@ -140,17 +343,21 @@ public class ContactRestService {
             // Verify that the contact exists. Return 404, if not present.
             throw new RestServiceException("No Contact with the email " + email + " was found!", Response.Status.NOT_FOUND);
         }
-        return Response.ok(contact).build();
+        return conditionalResponse(contact, request);
     }
 
     /**
      * <p>Search for and return a Contact identified by id.</p>
      *
+     * <p>The response carries the Contact's ETag, and a request with a matching If-None-Match is answered with 304
+     * (Not Modified) and no body.</p>
+     *
      * @param id The long parameter value provided as a Contact's id
+     * @param request Used to evaluate the If-None-Match precondition
      * @return A Response containing a single Contact
      */
     @GET
-    @Cache
+    @Cache(maxAge = 0, mustRevalidate = true)
     @Path("/{id:[0-9]+}")
     @ApiOperation(
             value = "Fetch a Contact by id",
@@ -158,30 +365,86 @@ public class ContactRestService {
     )
     @ApiResponses(value = {
             @ApiResponse(code = 200, message ="Contact found"),
+            @ApiResponse(code = 304, message = "Contact not modified"),
             @ApiResponse(code = 404, message = "Contact with id not found")
     })
     public Response retrieveContactById(
             @ApiParam(value = "Id of Contact to be fetched", allowableValues = "range[0, infinity]", required = true)
             @PathParam("id")
-            long id) {
+            long id,
+            @Context
+            Request request) {
 
         Contact contact = service.findById(id);
         if (contact == null) {
             // Verify that the contact exists. Return 404, if not present.
             throw new RestServiceException("No Contact with the id " + id + " was found!", Response.Status.NOT_FOUND);
         }
-        log.info("findById " + id + ": found Contact = " + contact.toString());
+        log.fine("findById {0}: found Contact {1}", id, contact.getEmail());
 
-        return Response.ok(contact).build();
+        return conditionalResponse(contact, request);
+    }
+
+    /**
+     * <p>Returns 304 (Not Modified) if the request's If-None-Match matches the Contact's ETag, otherwise 200 with the
+     * Contact and its ETag.</p>
+     */
+    private static Response conditionalResponse(Contact contact, Request request) {
+        EntityTag tag = entityTag(contact);
+        Response.ResponseBuilder builder = request.evaluatePreconditions(tag);
+        if (builder == null) {
+            builder = Response.ok(contact).tag(tag);
+        }
+        return builder.build();
+    }
+
+    /**
+     * <p>Returns the strong ETag of a Contact, <code>"&lt;id&gt;-&lt;version&gt;"</code>, which changes whenever the
+     * Contact is updated.</p>
+     *
+     * @param contact The Contact
+     * @return The Contact's ETag
+     */
+    static EntityTag entityTag(Contact contact) {
+        return new EntityTag(contact.getId() + "-" + contact.getVersion());
+    }
+
+    /**
+     * <p>Reads the version the client expects to update from an If-Match header holding a Contact ETag.</p>
+     *
+     * @param ifMatch The If-Match header, or null
+     * @param id The id of the Contact being updated
+     * @return The expected version, or null if the header is absent or <code>*</code>
+     * @throws RestServiceException 412 PRECONDITION_FAILED if the header is not an ETag of this Contact
+     */
+    private static Long versionFromIfMatch(String ifMatch, long id) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+        String prefix = "\"" + id + "-";
+        if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+            try {
+                return Long.valueOf(tag.substring(prefix.length(), tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // Fall through to 412
+            }
+        }
+        throw new RestServiceException("The If-Match header does not match the current ETag of the Contact",
+                Response.Status.PRECONDITION_FAILED);
     }
 
     /**
      * <p>Creates a new contact from the values provided. Performs validation and will return a JAX-RS response with
      * either 201 (Resource created) or with a map of fields, and related errors.</p>
      *
+     * <p>The request is suspended while the area code of the phone number is looked up, so it does not hold a container
+     * thread whilst waiting on the upstream Area service (see {@link AsyncContactWriter}).</p>
+     *
      * @param contact The Contact object, constructed automatically from JSON input, to be <i>created</i> via
      * {@link ContactService#create(Contact)}
-     * @return A Response indicating the outcome of the create operation
+     * @param asyncResponse The suspended response, resumed with the outcome of the create operation
      */
     @SuppressWarnings("unused")
     @POST
@@ -190,62 +453,80 @@ public class ContactRestService {
             @ApiResponse(code = 201, message = "Contact created successfully."),
             @ApiResponse(code = 400, message = "Invalid Contact supplied in request body"),
             @ApiResponse(code = 409, message = "Contact supplied in request body conflicts with an existing Contact"),
-            @ApiResponse(code = 500, message = "An unexpected error occurred whilst processing the request")
+            @ApiResponse(code = 500, message = "An unexpected error occurred whilst processing the request"),
+            @ApiResponse(code = 503, message = "Too many Contact writes are in progress, or the area code service is unavailable")
     })
-    public Response createContact(
+    public void createContact(
             @ApiParam(value = "JSON representation of Contact object to be added to the database", required = true)
-            Contact contact) {
+            Contact contact,
+            @ApiParam(hidden = true)
+            @Suspended
+            AsyncResponse asyncResponse) {
 
 
         if (contact == null) {
             throw new RestServiceException("Bad Request", Response.Status.BAD_REQUEST);
         }
 
-        Response.ResponseBuilder builder;
-
-        try {
-            // Go add the new Contact.
-            service.create(contact);
-
-            // Create a "Resource Created" 201 Response and pass the contact back in case it is needed.
-            builder = Response.status(Response.Status.CREATED).entity(contact);
-
-
-        } catch (ConstraintViolationException ce) {
-            //Handle bean validation issues
-            Map<String, String> responseObj = new HashMap<>();
+        // Go add the new Contact. The response is resumed once the area code lookup and the write have completed.
+        writer.create(contact, asyncResponse);
+    }
 
-            for (ConstraintViolation<?> violation : ce.getConstraintViolations()) {
-                responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+    /**
+     * <p>Creates many contacts from one upload, either a JSON array of Contacts or newline delimited JSON (NDJSON) with
+     * one Contact per line.</p>
+     *
+     * <p>The upload is read and written a chunk at a time, so it may hold any number of Contacts. The response is NDJSON
+     * with one line per record, in upload order, giving its index and either status 201 with the new id or the error
+     * status and reasons the single create would have returned. Records which fail do not stop the rest.</p>
+     *
+     * @param body The upload
+     * @param providers Used to find the application's configured ObjectMapper
+     * @return A Response streaming the result of each record
+     */
+    @POST
+    @Path("/batch")
+    @Consumes({"application/x-ndjson", MediaType.APPLICATION_JSON})
+    @Produces("application/x-ndjson")
+    @ApiOperation(value = "Add many Contacts to the database",
+            notes = "Accepts a JSON array or NDJSON, and streams back one NDJSON result line per record.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Upload processed, see the result of each record"),
+            @ApiResponse(code = 500, message = "An unexpected error occurred whilst processing the request")
+    })
+    public Response createContacts(
+            @ApiParam(value = "JSON array or NDJSON of Contact objects to be added to the database", required = true)
+            final InputStream body,
+            @Context
+            Providers providers) {
+
+        final ObjectMapper mapper = providers.getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE)
+                .getContext(Contact.class);
+
+        StreamingOutput output = new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                importer.importAll(body, out, mapper);
             }
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
-
-        } catch (UniqueEmailException e) {
-            // Handle the unique constraint violation
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("email", "That email is already used, please use a unique email");
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.CONFLICT, e);
-        } catch (InvalidAreaCodeException e) {
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("area_code", "The telephone area code provided is not recognised, please provide another");
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
-        } catch (Exception e) {
-            // Handle generic exceptions
-            throw new RestServiceException(e);
-        }
-
-        log.info("createContact completed. Contact = " + contact.toString());
-        return builder.build();
+        };
+        return Response.ok(output).build();
     }
 
     /**
      * <p>Updates the contact with the ID provided in the database. Performs validation, and will return a JAX-RS response
      * with either 200 (ok), or with a map of fields, and related errors.</p>
      *
+     * <p>Like {@link #createContact(Contact, AsyncResponse)} the request is suspended while the area code is looked up.</p>
+     *
+     * <p>The update is optimistically locked. If an If-Match header with the Contact's ETag is sent (or else if the body
+     * carries a version) and the Contact has been updated since, the response is 412 (Precondition Failed). The response
+     * carries the new ETag.</p>
+     *
      * @param contact The Contact object, constructed automatically from JSON input, to be <i>updated</i> via
      * {@link ContactService#update(Contact)}
      * @param id The long parameter value provided as the id of the Contact to be updated
-     * @return A Response indicating the outcome of the create operation
+     * @param ifMatch The ETag of the Contact as last read by the client, if any
+     * @param asyncResponse The suspended response, resumed with the outcome of the update operation
      */
     @PUT
     @Path("/{id:[0-9]+}")
@@ -255,14 +536,22 @@ public class ContactRestService {
             @ApiResponse(code = 400, message = "Invalid Contact supplied in request body"),
             @ApiResponse(code = 404, message = "Contact with id not found"),
             @ApiResponse(code = 409, message = "Contact details supplied in request body conflict with another existing Contact"),
-            @ApiResponse(code = 500, message = "An unexpected error occurred whilst processing the request")
+            @ApiResponse(code = 412, message = "Contact has been modified since the version supplied"),
+            @ApiResponse(code = 500, message = "An unexpected error occurred whilst processing the request"),
+            @ApiResponse(code = 503, message = "Too many Contact writes are in progress, or the area code service is unavailable")
     })
-    public Response updateContact(
+    public void updateContact(
             @ApiParam(value = "Id of Contact to be updated", allowableValues = "range[0, infinity]", required = true)
             @PathParam("id")
             long id,
             @ApiParam(value = "JSON representation of Contact object to be updated in the database", required = true)
-            Contact contact) {
+            Contact contact,
+            @ApiParam(value = "ETag of the Contact as last read, to update only if it is unchanged")
+            @HeaderParam(HttpHeaders.IF_MATCH)
+            String ifMatch,
+            @ApiParam(hidden = true)
+            @Suspended
+            AsyncResponse asyncResponse) {
 
         if (contact == null || contact.getId() == null) {
             throw new RestServiceException("Invalid Contact supplied in request body", Response.Status.BAD_REQUEST);
@@ -276,46 +565,15 @@ public class ContactRestService {
                     responseObj, Response.Status.CONFLICT);
         }
 
-        if (service.findById(contact.getId()) == null) {
-            // Verify that the contact exists. Return 404, if not present.
-            throw new RestServiceException("No Contact with the id " + id + " was found!", Response.Status.NOT_FOUND);
-        }
-
-        Response.ResponseBuilder builder;
-
-        try {
-            // Apply the changes the Contact.
-            service.update(contact);
-
-            // Create an OK Response and pass the contact back in case it is needed.
-            builder = Response.ok(contact);
-
-
-        } catch (ConstraintViolationException ce) {
-            //Handle bean validation issues
-            Map<String, String> responseObj = new HashMap<>();
-
-            for (ConstraintViolation<?> violation : ce.getConstraintViolations()) {
-                responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
-            }
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
-        } catch (UniqueEmailException e) {
-            // Handle the unique constraint violation
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("email", "That email is already used, please use a unique email");
-            throw new RestServiceException("Contact details supplied in request body conflict with another Contact",
-                    responseObj, Response.Status.CONFLICT, e);
-        } catch (InvalidAreaCodeException e) {
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("area_code", "The telephone area code provided is not recognised, please provide another");
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
-        } catch (Exception e) {
-            // Handle generic exceptions
-            throw new RestServiceException(e);
+        // The If-Match header takes precedence over any version in the body. Whether the Contact exists and is still at
+        // that version is checked as part of the update itself (404 or 412).
+        Long expectedVersion = versionFromIfMatch(ifMatch, id);
+        if (expectedVersion != null) {
+            contact.setVersion(expectedVersion);
         }
 
-        log.info("updateContact completed. Contact = " + contact.toString());
-        return builder.build();
+        // Apply the changes the Contact. The response is resumed once the area code lookup and the write have completed.
+        writer.update(contact, asyncResponse);
     }
 
     /**
@@ -357,7 +615,7 @@ public class ContactRestService {
             // Handle generic exceptions
             throw new RestServiceException(e);
         }
-        log.info("deleteContact completed. Contact = " + contact.toString());
+        log.info("deleteContact completed. Contact = {0}", contact.getId());
         return builder.build();
     }
 }
@@ -17,21 +17,29 @@
 package org.jboss.quickstarts.wfk.contact;
 
 import org.jboss.quickstarts.wfk.area.Area;
-import org.jboss.quickstarts.wfk.area.AreaService;
+import org.jboss.quickstarts.wfk.area.AreaCodeCache;
+import org.jboss.quickstarts.wfk.area.AreaServiceUnavailableException;
 import org.jboss.quickstarts.wfk.area.InvalidAreaCodeException;
-import org.jboss.resteasy.client.jaxrs.ResteasyClient;
-import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
-import org.jboss.resteasy.client.jaxrs.ResteasyWebTarget;
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.KeysetCursor;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.Page;
+import org.jboss.quickstarts.wfk.util.RestServiceException;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.Map;
+import java.util.Set;
 
 import javax.enterprise.context.Dependent;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
-import javax.inject.Named;
+import javax.transaction.Transactional;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
-import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.core.Response;
 
 /**
@@ -47,13 +55,14 @@ import javax.ws.rs.core.Response;
  * @author Joshua Wilson
  * @see ContactValidator
  * @see ContactRepository
+ * @see AreaCodeCache
  */
 //The @Dependent is the default scope is listed here so that you know what scope is being used.
 @Dependent
 public class ContactService {
 
     @Inject
-    private @Named("logger") Logger log;
+    private Log log;
 
     @Inject
     private ContactValidator validator;
@@ -61,15 +70,20 @@ public class ContactService {
     @Inject
     private ContactRepository crud;
 
-    private ResteasyClient client;
+    @Inject
+    private AreaCodeCache areaCodes;
 
-    /**
-     * <p>Create a new client which will be used for our outgoing REST client communication</p>
-     */
-    public ContactService() {
-        // Create client service instance to make REST requests to upstream service
-        client = new ResteasyClientBuilder().build();
-    }
+    @Inject
+    private ContactNameIndex nameIndex;
+
+    @Inject
+    private ContactEmailFilter emailFilter;
+
+    @Inject
+    private ApplicationConfig config;
+
+    @Inject
+    private Event<ContactChangedEvent> changes;
 
     /**
      * <p>Returns a List of all persisted {@link Contact} objects, sorted alphabetically by last name.<p/>
@@ -80,6 +94,61 @@ public class ContactService {
         return crud.findAllOrderedByName();
     }
 
+    /**
+     * <p>Returns the Contacts matching every criterion of the filter, sorted alphabetically by last name.</p>
+     *
+     * @param filter The criteria the Contacts must match
+     * @return List of matching Contact objects
+     */
+    List<Contact> findAll(ContactFilter filter) {
+        return crud.findAll(filter);
+    }
+
+    /**
+     * <p>Returns the Contacts whose first, last or full name starts with the given text, from the in-memory
+     * {@link ContactNameIndex}.</p>
+     *
+     * @param text The text typed so far
+     * @param limit The maximum number of suggestions to return
+     * @return List of matching suggestions
+     */
+    List<ContactSuggestion> suggest(String text, int limit) {
+        return nameIndex.suggest(text, limit);
+    }
+
+    /**
+     * <p>Returns one page of Contacts, sorted alphabetically by last name, then first name, then id.</p>
+     *
+     * <p>One more row than asked for is read, to find out whether there is a next page without a count query.</p>
+     *
+     * @param after The cursor returned with the previous page, or null for the first page
+     * @param limit The maximum number of Contacts on the page
+     * @return The page of Contacts, with the cursor of the next page if there is one
+     * @throws IllegalArgumentException If the cursor is not valid
+     */
+    Page<Contact> findPage(String after, int limit) throws IllegalArgumentException {
+        List<Contact> contacts;
+        if (after == null) {
+            contacts = crud.findPage(limit + 1);
+        } else {
+            List<String> key = KeysetCursor.decode(after, 3);
+            Long id;
+            try {
+                id = Long.valueOf(key.get(2));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+            contacts = crud.findPageAfter(key.get(0), key.get(1), id, limit + 1);
+        }
+
+        if (contacts.size() <= limit) {
+            return new Page<>(contacts, null);
+        }
+        List<Contact> items = new ArrayList<>(contacts.subList(0, limit));
+        Contact last = items.get(limit - 1);
+        return new Page<>(items, KeysetCursor.encode(last.getLastName(), last.getFirstName(), String.valueOf(last.getId())));
+    }
+
     /**
      * <p>Returns a single Contact object, specified by a Long id.<p/>
      *
@@ -102,6 +171,17 @@ public class ContactService {
         return crud.findByEmail(email);
     }
 
+    /**
+     * <p>Checks, without querying the database, whether a Contact with the email address might exist. See
+     * {@link ContactEmailFilter}.</p>
+     *
+     * @param email The email address
+     * @return false if there is certainly no Contact with the address; true if there may be one
+     */
+    boolean mightHaveEmail(String email) {
+        return emailFilter.mightContain(email);
+    }
+
     /**
      * <p>Returns a single Contact object, specified by a String firstName.<p/>
      *
@@ -127,33 +207,32 @@ public class ContactService {
      *
      * <p>Validates the data in the provided Contact object using a {@link ContactValidator} object.<p/>
      *
+     * <p>The write runs in its own transaction, which has committed by the time this method returns. This lets
+     * {@link AsyncContactWriter} call it from a managed executor thread and only report success once it is durable.</p>
+     *
      * @param contact The Contact object to be written to the database using a {@link ContactRepository} object
      * @return The Contact object that has been successfully written to the application database
      * @throws ConstraintViolationException, ValidationException, Exception
      */
+    @Transactional(value = Transactional.TxType.REQUIRES_NEW, rollbackOn = Exception.class)
     Contact create(Contact contact) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("ContactService.create() - Creating " + contact.getFirstName() + " " + contact.getLastName());
+        log.info("ContactService.create() - Creating {0} {1}", contact.getFirstName(), contact.getLastName());
         
+        // A new Contact always starts at the first version.
+        contact.setVersion(null);
+
         // Check to make sure the data fits with the parameters in the Contact model and passes validation.
         validator.validateContact(contact);
 
-        //Create client service instance to make REST requests to upstream service
-        ResteasyWebTarget target = client.target("http://ec2-18-119-125-232.us-east-2.compute.amazonaws.com/");
-        AreaService service = target.proxy(AreaService.class);
-
-        try {
-            Area area = service.getAreaById(Integer.parseInt(contact.getPhoneNumber().substring(1, 4)));
-            contact.setState(area.getState());
-        } catch (ClientErrorException e) {
-            if (e.getResponse().getStatusInfo() == Response.Status.NOT_FOUND) {
-                throw new InvalidAreaCodeException("The area code provided does not exist", e);
-            } else {
-                throw e;
-            }
-        }
+        // Look up the state for the phone number's area code, only going upstream if the code has not been seen before.
+        resolveState(contact);
 
         // Write the contact to the database.
-        return crud.create(contact);
+        Contact createdContact = crud.create(contact);
+
+        // Let observers, such as the ContactNameIndex, know once the transaction has committed.
+        changes.fire(new ContactChangedEvent(ContactChangedEvent.Type.CREATED, createdContact));
+        return createdContact;
     }
 
     /**
@@ -161,33 +240,88 @@ public class ContactService {
      *
      * <p>Validates the data in the provided Contact object using a ContactValidator object.<p/>
      *
+     * <p>Like {@link #create(Contact)} the update runs in, and commits, its own transaction.</p>
+     *
      * @param contact The Contact object to be passed as an update to the application database
      * @return The Contact object that has been successfully updated in the application database
      * @throws ConstraintViolationException, ValidationException, Exception
      */
+    @Transactional(value = Transactional.TxType.REQUIRES_NEW, rollbackOn = Exception.class)
     Contact update(Contact contact) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("ContactService.update() - Updating " + contact.getFirstName() + " " + contact.getLastName());
+        log.info("ContactService.update() - Updating {0} {1}", contact.getFirstName(), contact.getLastName());
         
         // Check to make sure the data fits with the parameters in the Contact model and passes validation.
         validator.validateContact(contact);
 
-        // Set client target location and define the proxy API class
-        ResteasyWebTarget target = client.target("http://ec2-18-119-125-232.us-east-2.compute.amazonaws.com/");
-        AreaService service = target.proxy(AreaService.class);
+        // Look up the state for the phone number's area code, only going upstream if the code has not been seen before.
+        resolveState(contact);
 
-        try {
-            Area area = service.getAreaById(Integer.parseInt(contact.getPhoneNumber().substring(1, 4)));
-            contact.setState(area.getState());
-        } catch (ClientErrorException e) {
-            if (e.getResponse().getStatusInfo() == Response.Status.NOT_FOUND) {
-                throw new InvalidAreaCodeException("The area code provided does not exist", e);
-            } else {
-                throw e;
+        // Either update the contact or add it if it can't be found.
+        Contact updatedContact = crud.update(contact);
+
+        changes.fire(new ContactChangedEvent(ContactChangedEvent.Type.UPDATED, updatedContact));
+        return updatedContact;
+    }
+
+    /**
+     * <p>Writes one chunk of a bulk import to the application database, in its own transaction.</p>
+     *
+     * <p>Each Contact is checked as by {@link #create(Contact)}, but the expensive parts are shared by the whole chunk: the
+     * emails are checked in a single query, each distinct area code is looked up once, and the Contacts which pass are
+     * inserted in JDBC batches. Contacts which fail are skipped and reported, without affecting the rest of the chunk.</p>
+     *
+     * @param contacts The Contacts to be created
+     * @return The outcome for each Contact, in the same order
+     */
+    @Transactional(value = Transactional.TxType.REQUIRES_NEW, rollbackOn = Exception.class)
+    List<ContactImportResult> importChunk(List<Contact> contacts) {
+        Set<String> emails = new HashSet<>();
+        for (Contact contact : contacts) {
+            if (contact.getEmail() != null) {
+                emails.add(contact.getEmail());
             }
         }
+        Set<String> usedEmails = new HashSet<>();
+        if (!emails.isEmpty()) {
+            usedEmails.addAll(crud.findExistingEmails(emails));
+        }
 
-        // Either update the contact or add it if it can't be found.
-        return crud.update(contact);
+        Map<Integer, Contact> resolvedCodes = new HashMap<>();
+        Map<Integer, Exception> failedCodes = new HashMap<>();
+        List<Contact> accepted = new ArrayList<>(contacts.size());
+        ContactImportResult[] results = new ContactImportResult[contacts.size()];
+
+        for (int i = 0; i < contacts.size(); i++) {
+            Contact contact = contacts.get(i);
+            contact.setId(null);
+            contact.setVersion(null);
+            try {
+                validator.validateContact(contact);
+                resolveState(contact, resolvedCodes, failedCodes);
+                // Also catches the same email appearing twice in the upload. Only Contacts which are accepted take it.
+                if (!usedEmails.add(contact.getEmail())) {
+                    throw new UniqueEmailException("Unique Email Violation");
+                }
+                accepted.add(contact);
+            } catch (Exception e) {
+                results[i] = ContactImportResult.failed(contact, AsyncContactWriter.toRestServiceException(e, "Bad Request"));
+            }
+        }
+
+        crud.createAll(accepted);
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                Contact contact = contacts.get(i);
+                results[i] = ContactImportResult.created(contact);
+                changes.fire(new ContactChangedEvent(ContactChangedEvent.Type.CREATED, contact));
+            }
+        }
+        log.info("ContactService.importChunk() - Created {0} of {1} Contacts", accepted.size(), contacts.size());
+
+        List<ContactImportResult> outcome = new ArrayList<>(results.length);
+        Collections.addAll(outcome, results);
+        return outcome;
     }
 
     /**
@@ -198,16 +332,110 @@ public class ContactService {
      * @throws Exception
      */
     Contact delete(Contact contact) throws Exception {
-        log.info("delete() - Deleting " + contact.toString());
+        log.info("delete() - Deleting {0}", contact.getId());
 
         Contact deletedContact = null;
 
         if (contact.getId() != null) {
             deletedContact = crud.delete(contact);
+            changes.fire(new ContactChangedEvent(ContactChangedEvent.Type.DELETED, deletedContact));
         } else {
             log.info("delete() - No ID was found so can't Delete.");
         }
 
         return deletedContact;
     }
+
+    /**
+     * <p>Looks up the state of Contacts which were accepted while the area code service was unavailable.</p>
+     *
+     * <p>Stops early, leaving the rest for the next run, if the area code service is still unavailable. Contacts whose area
+     * code turns out not to exist keep a null state and are not retried.</p>
+     *
+     * @param max The maximum number of Contacts to enrich
+     * @return The number of Contacts which are no longer pending
+     */
+    @Transactional
+    int enrichPending(int max) {
+        int enriched = 0;
+        for (Contact contact : crud.findPendingEnrichment(max)) {
+            try {
+                contact.setState(areaCodes.getAreaById(areaCode(contact)).getState());
+            } catch (InvalidAreaCodeException e) {
+                log.warning("ContactService.enrichPending() - Contact {0} has an unknown area code", contact.getId());
+            } catch (AreaServiceUnavailableException e) {
+                log.info("ContactService.enrichPending() - Area code service still unavailable: {0}", e.getMessage());
+                break;
+            }
+            contact.setEnrichmentPending(false);
+            enriched++;
+        }
+        return enriched;
+    }
+
+    /**
+     * <p>Sets the state of the provided Contact from the area code of its phone number.</p>
+     *
+     * <p>If the area code service is unavailable the <code>area.fallback</code> setting decides what happens. With
+     * <code>reject</code> (the default) the write fails with 503 SERVICE_UNAVAILABLE and a Retry-After header. With
+     * <code>defer</code> the Contact is accepted without a state and marked for the {@link ContactEnrichmentJob}.</p>
+     *
+     * @param contact The Contact whose state should be set
+     * @throws InvalidAreaCodeException If the area code of the phone number does not exist
+     * @throws RestServiceException If the area code service is unavailable and writes are rejected
+     */
+    private void resolveState(Contact contact) throws InvalidAreaCodeException, RestServiceException {
+        Area area;
+        try {
+            area = areaCodes.getAreaById(areaCode(contact));
+        } catch (AreaServiceUnavailableException e) {
+            if ("defer".equals(config.getString("area.fallback", "reject"))) {
+                log.warning("ContactService.resolveState() - Deferring the state of {0}: {1}", contact.getEmail(),
+                        e.getMessage());
+                contact.setState(null);
+                contact.setEnrichmentPending(true);
+                return;
+            }
+            throw new RestServiceException("The area code service is unavailable, please try again later",
+                    Response.Status.SERVICE_UNAVAILABLE, e).header("Retry-After", e.getRetryAfterSeconds());
+        }
+        contact.setState(area.getState());
+        contact.setEnrichmentPending(false);
+    }
+
+    /**
+     * <p>As {@link #resolveState(Contact)}, but only looks each area code up once for a whole chunk of Contacts.</p>
+     *
+     * @param contact The Contact whose state should be set
+     * @param resolvedCodes Contacts already resolved, by area code
+     * @param failedCodes Failures of area codes already looked up, by area code
+     * @throws Exception If the area code does not exist or writes are rejected while the area code service is unavailable
+     */
+    private void resolveState(Contact contact, Map<Integer, Contact> resolvedCodes, Map<Integer, Exception> failedCodes)
+            throws Exception {
+        Integer code = areaCode(contact);
+        Exception failure = failedCodes.get(code);
+        if (failure != null) {
+            throw failure;
+        }
+
+        Contact resolved = resolvedCodes.get(code);
+        if (resolved != null) {
+            contact.setState(resolved.getState());
+            contact.setEnrichmentPending(resolved.isEnrichmentPending());
+            return;
+        }
+
+        try {
+            resolveState(contact);
+            resolvedCodes.put(code, contact);
+        } catch (InvalidAreaCodeException | RestServiceException e) {
+            failedCodes.put(code, e);
+            throw e;
+        }
+    }
+
+    private static int areaCode(Contact contact) {
+        return Integer.parseInt(contact.getPhoneNumber().substring(1, 4));
+    }
 }
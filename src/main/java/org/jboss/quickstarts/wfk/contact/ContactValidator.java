@@ -20,10 +20,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 import javax.inject.Inject;
-import javax.persistence.NoResultException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
-import javax.validation.ValidationException;
 import javax.validation.Validator;
 
 /**
@@ -38,66 +36,22 @@ public class ContactValidator {
     @Inject
     private Validator validator;
 
-    @Inject
-    private ContactRepository crud;
-
     /**
      * <p>Validates the given Contact object and throws validation exceptions based on the type of error. If the error is standard
      * bean validation errors then it will throw a ConstraintValidationException with the set of the constraints violated.<p/>
      *
-     *
-     * <p>If the error is caused because an existing contact with the same email is registered it throws a regular validation
-     * exception so that it can be interpreted separately.</p>
-     *
+     * <p>The uniqueness of the email address is not checked here. It is enforced by the database's unique constraint when
+     * the Contact is written, see {@link ContactRepository#create(Contact)}.</p>
      *
      * @param contact The Contact object to be validated
      * @throws ConstraintViolationException If Bean Validation errors exist
-     * @throws ValidationException If contact with the same email already exists
      */
-    void validateContact(Contact contact) throws ConstraintViolationException, ValidationException {
+    void validateContact(Contact contact) throws ConstraintViolationException {
         // Create a bean validator and check for issues.
         Set<ConstraintViolation<Contact>> violations = validator.validate(contact);
 
         if (!violations.isEmpty()) {
             throw new ConstraintViolationException(new HashSet<ConstraintViolation<?>>(violations));
         }
-
-        // Check the uniqueness of the email address
-        if (emailAlreadyExists(contact.getEmail(), contact.getId())) {
-            throw new UniqueEmailException("Unique Email Violation");
-        }
-    }
-
-    /**
-     * <p>Checks if a contact with the same email address is already registered. This is the only way to easily capture the
-     * "@UniqueConstraint(columnNames = "email")" constraint from the Contact class.</p>
-     *
-     * <p>Since Update will being using an email that is already in the database we need to make sure that it is the email
-     * from the record being updated.</p>
-     *
-     * @param email The email to check is unique
-     * @param id The user id to check the email against if it was found
-     * @return boolean which represents whether the email was found, and if so if it belongs to the user with id
-     */
-    boolean emailAlreadyExists(String email, Long id) {
-        Contact contact = null;
-        Contact contactWithID = null;
-        try {
-            contact = crud.findByEmail(email);
-        } catch (NoResultException e) {
-            // ignore
-        }
-
-        if (contact != null && id != null) {
-            try {
-                contactWithID = crud.findById(id);
-                if (contactWithID != null && contactWithID.getEmail().equals(email)) {
-                    contact = null;
-                }
-            } catch (NoResultException e) {
-                // ignore
-            }
-        }
-        return contact != null;
     }
 }
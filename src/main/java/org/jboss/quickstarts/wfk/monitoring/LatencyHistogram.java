@@ -0,0 +1,180 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.monitoring;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A lock-free histogram of latencies, recorded with microsecond resolution from 1 microsecond to about 12 days.</p>
+ *
+ * <p>As in an HdrHistogram, buckets are log-linear: each power of two is split into {@link #SUB_BUCKETS} equal
+ * sub-buckets, so every recorded value is known to within 12.5% whatever its magnitude, using a few hundred fixed buckets.
+ * The counts are striped like a {@link StripedCounter}: each thread increments the buckets of its own stripe, so recording
+ * is two atomic increments, takes no lock and allocates nothing. Snapshots add the stripes together.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see RequestMetrics
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Values are clamped to below 2^40 microseconds. */
+    private static final int MAX_EXPONENT = 39;
+
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    /** The buckets of a stripe, then its sum of nanoseconds, then a cache line of padding. */
+    private static final int STRIDE = BUCKETS + 1 + 8;
+
+    private final AtomicLongArray counts = new AtomicLongArray(StripedCounter.STRIPES * STRIDE);
+
+    /**
+     * <p>Records one latency.</p>
+     *
+     * @param nanos The latency in nanoseconds
+     */
+    void record(long nanos) {
+        int base = StripedCounter.stripe() * STRIDE;
+        counts.incrementAndGet(base + index(TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos))));
+        counts.addAndGet(base + BUCKETS, nanos);
+    }
+
+    /**
+     * <p>Adds up the stripes into a consistent copy of the counts.</p>
+     *
+     * @return The snapshot
+     */
+    Snapshot snapshot() {
+        long[] buckets = new long[BUCKETS];
+        long sumNanos = 0;
+        for (int stripe = 0; stripe < StripedCounter.STRIPES; stripe++) {
+            int base = stripe * STRIDE;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] += counts.get(base + i);
+            }
+            sumNanos += counts.get(base + BUCKETS);
+        }
+        return new Snapshot(buckets, sumNanos);
+    }
+
+    /**
+     * <p>Returns the bucket of a value. Values below {@link #SUB_BUCKETS} each have a bucket of their own; above that the
+     * bucket is found from the position of the highest set bit and the {@link #SUB_BUCKET_BITS} bits below it.</p>
+     */
+    static int index(long micros) {
+        long value = Math.min(micros, MAX_VALUE);
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * <p>Returns the smallest value, in microseconds, which falls in the bucket.</p>
+     */
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * <p>Returns the smallest value, in microseconds, which falls in a later bucket.</p>
+     */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1;
+        }
+        return lowerBound(index) + (1L << (index / SUB_BUCKETS - 1));
+    }
+
+    /**
+     * <p>The counts of a histogram at one point in time.</p>
+     */
+    static final class Snapshot {
+
+        private final long[] buckets;
+        private final long sumNanos;
+        private final long count;
+
+        Snapshot(long[] buckets, long sumNanos) {
+            this.buckets = buckets;
+            this.sumNanos = sumNanos;
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            this.count = total;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getSumNanos() {
+            return sumNanos;
+        }
+
+        /**
+         * <p>Returns the number of values below a bound. A bucket is counted if it lies wholly below the bound, so the
+         * result is exact for bounds that fall on a bucket boundary and otherwise errs low by at most one bucket.</p>
+         *
+         * @param micros The bound in microseconds
+         * @return The number of values known to be below the bound
+         */
+        long countBelow(long micros) {
+            long below = 0;
+            for (int i = 0; i < buckets.length && upperBound(i) <= micros; i++) {
+                below += buckets[i];
+            }
+            return below;
+        }
+
+        /**
+         * <p>Returns the latency below which the given fraction of the values fall, as the upper end of the bucket in
+         * which that value lies.</p>
+         *
+         * @param quantile The fraction, from 0 to 1
+         * @return The latency in microseconds, or 0 if nothing has been recorded
+         */
+        long valueAt(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return upperBound(i) - 1;
+                }
+            }
+            return upperBound(buckets.length - 1) - 1;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.monitoring;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * <p>This class produces a RESTful service exposing the request metrics of the application in the Prometheus text
+ * exposition format, for scraping by a Prometheus server.</p>
+ *
+ * <p>The full path for accessing endpoints defined herein is: api/metrics</p>
+ *
+ * @author Jiaxuan Xu
+ * @see RequestMetrics
+ */
+@Path("/metrics")
+@Api(value = "/metrics", description = "Prometheus metrics")
+@Stateless
+public class MetricsRestService {
+
+    /** The content type of the Prometheus text format. */
+    static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Inject
+    private RequestMetrics metrics;
+
+    /**
+     * <p>Return the latency histograms, in-flight count and error counts of the REST endpoints.</p>
+     *
+     * @return A Response containing the metrics in the Prometheus text format
+     */
+    @GET
+    @Produces(PROMETHEUS_TEXT)
+    @ApiOperation(value = "Fetch request metrics", notes = "Returns request latency histograms by resource method and "
+            + "status class, in-flight requests and errors by exception type, in the Prometheus text format.")
+    public Response retrieveMetrics() {
+        return Response.ok(new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                metrics.writePrometheus(out);
+                out.flush();
+            }
+        }).build();
+    }
+}
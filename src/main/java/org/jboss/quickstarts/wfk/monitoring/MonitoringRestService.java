@@ -0,0 +1,217 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.monitoring;
+
+import org.jboss.quickstarts.wfk.area.AreaCodeCache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.jboss.quickstarts.wfk.contact.ContactEmailFilter;
+import org.jboss.quickstarts.wfk.restaurant.RatingReconciler;
+import org.jboss.quickstarts.wfk.review.ReviewSearchIndex;
+import org.jboss.quickstarts.wfk.util.LogDispatcher;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * <p>This class produces a read-only RESTful service exposing runtime statistics of the application's in-process caches,
+ * second-level cache and upstream clients.</p>
+ *
+ * <p>The full path for accessing endpoints defined herein is: api/monitoring/*</p>
+ *
+ * @author Jiaxuan Xu
+ * @see AreaCodeCache
+ * @see ContactEmailFilter
+ * @see LogDispatcher
+ * @see RequestMetrics
+ */
+@Path("/monitoring")
+@Produces(MediaType.APPLICATION_JSON)
+@Api(value = "/monitoring", description = "Runtime statistics")
+@Stateless
+public class MonitoringRestService {
+
+    @Inject
+    private AreaCodeCache areaCodes;
+
+    @Inject
+    private ContactEmailFilter emailFilter;
+
+    @Inject
+    private EntityManager em;
+
+    @Inject
+    private RatingReconciler ratingReconciler;
+
+    @Inject
+    private ReviewSearchIndex reviewSearchIndex;
+
+    @Inject
+    private LogDispatcher logDispatcher;
+
+    @Inject
+    private RequestMetrics requestMetrics;
+
+    /**
+     * <p>Return the hit, miss and refresh counters of the area code cache.</p>
+     *
+     * @return A Response containing a map of statistic name to value
+     */
+    @GET
+    @Path("/area-cache")
+    @ApiOperation(value = "Fetch area code cache statistics", notes = "Returns the hit, miss and refresh counters of the area code cache.")
+    public Response retrieveAreaCacheStatistics() {
+        return Response.ok(areaCodes.getStatistics()).build();
+    }
+
+    /**
+     * <p>Return the state, recent transitions and counters of the circuit breaker and bulkhead guarding the area code
+     * service.</p>
+     *
+     * @return A Response containing a map of statistic name to value
+     */
+    @GET
+    @Path("/area-breaker")
+    @ApiOperation(value = "Fetch area code service circuit breaker statistics",
+            notes = "Returns the circuit breaker state, its recent transitions and the bulkhead counters.")
+    public Response retrieveAreaBreakerStatistics() {
+        return Response.ok(areaCodes.getUpstreamStatistics()).build();
+    }
+
+    /**
+     * <p>Return the size, false positive rate and hit counters of the Contact email Bloom filter.</p>
+     *
+     * @return A Response containing a map of statistic name to value
+     */
+    @GET
+    @Path("/email-filter")
+    @ApiOperation(value = "Fetch contact email filter statistics",
+            notes = "Returns the size, expected false positive rate and definite miss count of the contact email filter.")
+    public Response retrieveEmailFilterStatistics() {
+        return Response.ok(emailFilter.getStatistics()).build();
+    }
+
+    /**
+     * <p>Return how often the Restaurant rating summaries were reconciled with the Reviews and the drift found.</p>
+     *
+     * @return A Response containing a map of statistic name to value
+     */
+    @GET
+    @Path("/ratings")
+    @ApiOperation(value = "Fetch restaurant rating reconciliation statistics",
+            notes = "Returns the runs of the rating reconciliation job and the restaurants whose rating summary had drifted.")
+    public Response retrieveRatingStatistics() {
+        return Response.ok(ratingReconciler.getStatistics()).build();
+    }
+
+    /**
+     * <p>Return the size of the review search index and how long it took to build.</p>
+     *
+     * @return A Response containing a map of statistic name to value
+     */
+    @GET
+    @Path("/review-search")
+    @ApiOperation(value = "Fetch review search index statistics",
+            notes = "Returns whether the review search index is built, its number of reviews and terms and its size.")
+    public Response retrieveReviewSearchStatistics() {
+        return Response.ok(reviewSearchIndex.getStatistics()).build();
+    }
+
+    /**
+     * <p>Return the 50th, 90th, 99th and 99.9th percentile and maximum latencies, in milliseconds, of every REST endpoint
+     * by status class. The Prometheus histograms at api/metrics have coarser buckets.</p>
+     *
+     * @return A Response containing a map of endpoint and status class to statistic name to value
+     */
+    @GET
+    @Path("/latency")
+    @ApiOperation(value = "Fetch REST endpoint latency percentiles",
+            notes = "Returns the request count and latency percentiles, in milliseconds, of each endpoint and status class.")
+    public Response retrieveLatencyStatistics() {
+        return Response.ok(requestMetrics.getLatencyStatistics()).build();
+    }
+
+    /**
+     * <p>Return the number of log records handed to the background log thread, dropped, and logged synchronously.</p>
+     *
+     * @return A Response containing a map of statistic name to value
+     */
+    @GET
+    @Path("/logging")
+    @ApiOperation(value = "Fetch asynchronous logging statistics",
+            notes = "Returns the number of log records queued, dropped because the buffer was full, and logged synchronously.")
+    public Response retrieveLoggingStatistics() {
+        return Response.ok(logDispatcher.getStatistics()).build();
+    }
+
+    /**
+     * <p>Return the hit, miss and put counters of the JPA second-level cache and query cache, overall and per region.</p>
+     *
+     * <p>Hibernate does not count evictions. For each region, <code>removed</code> is the number of entries put that are
+     * no longer held, whether they were evicted, expired or invalidated by a write.</p>
+     *
+     * @return A Response containing a map of statistic name to value
+     */
+    @GET
+    @Path("/cache")
+    @ApiOperation(value = "Fetch second-level cache statistics",
+            notes = "Returns the hit, miss and put counters of the entity and query caches, overall and per region.")
+    public Response retrieveCacheStatistics() {
+        Statistics hibernate = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", hibernate.isStatisticsEnabled());
+        statistics.put("hits", hibernate.getSecondLevelCacheHitCount());
+        statistics.put("misses", hibernate.getSecondLevelCacheMissCount());
+        statistics.put("puts", hibernate.getSecondLevelCachePutCount());
+        statistics.put("queryHits", hibernate.getQueryCacheHitCount());
+        statistics.put("queryMisses", hibernate.getQueryCacheMissCount());
+        statistics.put("queryPuts", hibernate.getQueryCachePutCount());
+        statistics.put("queryExecutions", hibernate.getQueryExecutionCount());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String name : hibernate.getSecondLevelCacheRegionNames()) {
+            SecondLevelCacheStatistics region = hibernate.getSecondLevelCacheStatistics(name);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Object> counters = new LinkedHashMap<>();
+            counters.put("hits", region.getHitCount());
+            counters.put("misses", region.getMissCount());
+            counters.put("puts", region.getPutCount());
+            counters.put("entries", region.getElementCountInMemory());
+            counters.put("removed", Math.max(0, region.getPutCount() - region.getElementCountInMemory()));
+            counters.put("sizeInMemory", region.getSizeInMemory());
+            regions.put(name, counters);
+        }
+        statistics.put("regions", regions);
+        return Response.ok(statistics).build();
+    }
+}
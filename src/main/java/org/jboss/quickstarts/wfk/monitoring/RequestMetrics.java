@@ -0,0 +1,249 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.monitoring;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.ejb.EJBException;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * <p>Latency, in-flight and error metrics of the REST endpoints.</p>
+ *
+ * <p>Each resource method has an {@link Endpoint} holding a {@link LatencyHistogram} per status class (2xx, 4xx...),
+ * created the first time that class is seen. Recording into them, and into the in-flight and error counters, is
+ * lock-free and allocates nothing once the endpoint and exception type have been seen. (The
+ * {@link RequestMetricsFilter} allocates one small object per request to carry the start time.)</p>
+ *
+ * <p>The metrics are written in the Prometheus text exposition format by {@link MetricsRestService}.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see RequestMetricsFilter
+ * @see MetricsRestService
+ */
+@ApplicationScoped
+public class RequestMetrics {
+
+    /** Bucket bounds of the exported Prometheus histograms, in seconds. */
+    private static final double[] BUCKET_BOUNDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final ConcurrentMap<Method, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, StripedCounter> errors = new ConcurrentHashMap<>();
+
+    private final StripedCounter inFlight = new StripedCounter();
+
+    /**
+     * <p>Returns the metrics of a resource method.</p>
+     *
+     * @param resource The resource class
+     * @param method The resource method
+     * @return The endpoint's metrics
+     */
+    public Endpoint endpoint(Class<?> resource, Method method) {
+        Endpoint endpoint = endpoints.get(method);
+        if (endpoint == null) {
+            Endpoint created = new Endpoint(resource.getSimpleName(), method.getName());
+            endpoint = endpoints.putIfAbsent(method, created);
+            if (endpoint == null) {
+                endpoint = created;
+            }
+        }
+        return endpoint;
+    }
+
+    /**
+     * <p>Counts a request which has been matched to a resource method and not yet answered.</p>
+     */
+    public void started() {
+        inFlight.increment();
+    }
+
+    /**
+     * <p>Records the latency of an answered request.</p>
+     *
+     * @param endpoint The endpoint that handled the request, from {@link #endpoint(Class, Method)}
+     * @param status The HTTP status of the response
+     * @param nanos The time from matching the request to the response, in nanoseconds
+     */
+    public void completed(Endpoint endpoint, int status, long nanos) {
+        inFlight.add(-1);
+        endpoint.histogram(status).record(nanos);
+    }
+
+    /**
+     * <p>Counts a request which ended without a response passing the {@link RequestMetricsFilter}, such as one whose
+     * connection was closed or whose exception was left to the servlet container. Its latency is not recorded.</p>
+     */
+    public void abandoned() {
+        inFlight.add(-1);
+    }
+
+    /**
+     * <p>Counts an exception which reached the JAX-RS runtime. Exceptions wrapped by the EJB container are counted as
+     * their cause.</p>
+     *
+     * @param e The exception
+     */
+    public void error(Throwable e) {
+        Throwable counted = e;
+        while (counted instanceof EJBException && counted.getCause() != null) {
+            counted = counted.getCause();
+        }
+
+        StripedCounter counter = errors.get(counted.getClass());
+        if (counter == null) {
+            StripedCounter created = new StripedCounter();
+            counter = errors.putIfAbsent(counted.getClass(), created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.increment();
+    }
+
+    /**
+     * <p>Writes every metric in the Prometheus text exposition format, version 0.0.4.</p>
+     *
+     * <p>The latency histograms are exported with the fixed bucket bounds of {@link #BUCKET_BOUNDS}. Each is summed from
+     * the finer buckets of the {@link LatencyHistogram} which lie wholly below it.</p>
+     *
+     * @param out The writer to write to
+     */
+    public void writePrometheus(PrintWriter out) {
+        out.println("# HELP http_server_requests_seconds Latency of REST requests by resource method and status class.");
+        out.println("# TYPE http_server_requests_seconds histogram");
+        for (Endpoint endpoint : sortedEndpoints()) {
+            for (int statusClass = 0; statusClass < Endpoint.STATUS_CLASSES; statusClass++) {
+                LatencyHistogram histogram = endpoint.histograms.get(statusClass);
+                if (histogram == null) {
+                    continue;
+                }
+                LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+                String labels = "resource=\"" + endpoint.resource + "\",method=\"" + endpoint.method + "\",status=\""
+                        + Endpoint.statusLabel(statusClass) + "\"";
+                for (double bound : BUCKET_BOUNDS) {
+                    long micros = (long) (bound * TimeUnit.SECONDS.toMicros(1));
+                    out.println("http_server_requests_seconds_bucket{" + labels + ",le=\"" + bound + "\"} "
+                            + snapshot.countBelow(micros));
+                }
+                out.println("http_server_requests_seconds_bucket{" + labels + ",le=\"+Inf\"} " + snapshot.getCount());
+                out.println("http_server_requests_seconds_sum{" + labels + "} " + snapshot.getSumNanos() / 1e9);
+                out.println("http_server_requests_seconds_count{" + labels + "} " + snapshot.getCount());
+            }
+        }
+
+        out.println("# HELP http_server_requests_in_flight REST requests being handled.");
+        out.println("# TYPE http_server_requests_in_flight gauge");
+        out.println("http_server_requests_in_flight " + inFlight.sum());
+
+        out.println("# HELP http_server_errors_total Exceptions which reached the JAX-RS runtime, by type.");
+        out.println("# TYPE http_server_errors_total counter");
+        for (Map.Entry<Class<?>, StripedCounter> error : errors.entrySet()) {
+            out.println("http_server_errors_total{exception=\"" + error.getKey().getName() + "\"} " + error.getValue().sum());
+        }
+    }
+
+    /**
+     * <p>Returns the count and the 50th, 90th, 99th and 99.9th percentile latencies of every endpoint and status class,
+     * in milliseconds, at the full resolution of the histograms.</p>
+     *
+     * @return Map of endpoint and status class to statistic name to value
+     */
+    public Map<String, Object> getLatencyStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        for (Endpoint endpoint : sortedEndpoints()) {
+            for (int statusClass = 0; statusClass < Endpoint.STATUS_CLASSES; statusClass++) {
+                LatencyHistogram histogram = endpoint.histograms.get(statusClass);
+                if (histogram == null) {
+                    continue;
+                }
+                LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+                Map<String, Object> latencies = new LinkedHashMap<>();
+                latencies.put("count", snapshot.getCount());
+                for (int i = 0; i < QUANTILES.length; i++) {
+                    latencies.put(QUANTILE_NAMES[i], snapshot.valueAt(QUANTILES[i]) / 1000.0);
+                }
+                latencies.put("max", snapshot.valueAt(1) / 1000.0);
+                statistics.put(endpoint.resource + "." + endpoint.method + " " + Endpoint.statusLabel(statusClass), latencies);
+            }
+        }
+        return statistics;
+    }
+
+    private List<Endpoint> sortedEndpoints() {
+        List<Endpoint> sorted = new ArrayList<>(endpoints.values());
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * <p>The latency histograms of one resource method.</p>
+     */
+    public static final class Endpoint implements Comparable<Endpoint> {
+
+        /** Status classes 1xx to 5xx, with 0 for anything out of range. */
+        private static final int STATUS_CLASSES = 6;
+
+        private final String resource;
+        private final String method;
+
+        private final AtomicReferenceArray<LatencyHistogram> histograms = new AtomicReferenceArray<>(STATUS_CLASSES);
+
+        Endpoint(String resource, String method) {
+            this.resource = resource;
+            this.method = method;
+        }
+
+        LatencyHistogram histogram(int status) {
+            int statusClass = status / 100;
+            if (statusClass < 0 || statusClass >= STATUS_CLASSES) {
+                statusClass = 0;
+            }
+            LatencyHistogram histogram = histograms.get(statusClass);
+            if (histogram == null) {
+                histograms.compareAndSet(statusClass, null, new LatencyHistogram());
+                histogram = histograms.get(statusClass);
+            }
+            return histogram;
+        }
+
+        static String statusLabel(int statusClass) {
+            return statusClass == 0 ? "other" : statusClass + "xx";
+        }
+
+        @Override
+        public int compareTo(Endpoint other) {
+            int byResource = resource.compareTo(other.resource);
+            return byResource != 0 ? byResource : method.compareTo(other.method);
+        }
+    }
+}
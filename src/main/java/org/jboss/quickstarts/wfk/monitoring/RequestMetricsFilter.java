@@ -0,0 +1,106 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.monitoring;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * <p>Times every request which is matched to a resource method, from matching to the response, and records it in
+ * {@link RequestMetrics} against the method and the status class of the response.</p>
+ *
+ * <p>The endpoint and start time are carried in a request property rather than a thread local, because suspended requests
+ * (see {@link org.jboss.quickstarts.wfk.contact.AsyncContactWriter}) are answered on another thread. They are held
+ * together in one {@link Timing}, the only object the filter allocates per request, which also makes sure each request
+ * leaves the in-flight count exactly once: here when the response is filtered, or else in
+ * {@link RequestMetricsListener} when the request ends without a filtered response.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see RequestMetrics
+ * @see RequestMetricsListener
+ */
+@Provider
+public class RequestMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    /** Name of the request property, and so of the servlet request attribute, holding the {@link Timing}. */
+    static final String TIMING = RequestMetricsFilter.class.getName() + ".timing";
+
+    @Inject
+    private RequestMetrics metrics;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext request) throws IOException {
+        Method method = resourceInfo.getResourceMethod();
+        if (method == null) {
+            return;
+        }
+        RequestMetrics.Endpoint endpoint = metrics.endpoint(resourceInfo.getResourceClass(), method);
+        request.setProperty(TIMING, new Timing(endpoint, System.nanoTime()));
+        metrics.started();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) throws IOException {
+        Object property = request.getProperty(TIMING);
+        if (property instanceof Timing) {
+            Timing timing = (Timing) property;
+            if (timing.finish()) {
+                metrics.completed(timing.endpoint, response.getStatus(), System.nanoTime() - timing.start);
+            }
+        }
+    }
+
+    /**
+     * <p>The endpoint and start time of a request which has been counted as in flight.</p>
+     */
+    static final class Timing {
+
+        final RequestMetrics.Endpoint endpoint;
+
+        final long start;
+
+        private boolean finished;
+
+        Timing(RequestMetrics.Endpoint endpoint, long start) {
+            this.endpoint = endpoint;
+            this.start = start;
+        }
+
+        /**
+         * @return true the first time it is called, when the request should leave the in-flight count
+         */
+        synchronized boolean finish() {
+            if (finished) {
+                return false;
+            }
+            finished = true;
+            return true;
+        }
+    }
+}
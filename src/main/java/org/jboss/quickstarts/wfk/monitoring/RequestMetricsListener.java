@@ -0,0 +1,51 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.monitoring;
+
+import javax.inject.Inject;
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * <p>Takes requests which never had their response filtered by {@link RequestMetricsFilter} out of the in-flight count.</p>
+ *
+ * <p>The servlet container tells every request listener when a request ends, including suspended requests which time out
+ * and requests whose client went away, so this always runs. JAX-RS request properties are servlet request attributes, so
+ * the {@link RequestMetricsFilter.Timing} of the request is found here under the same name.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see RequestMetricsFilter
+ */
+@WebListener
+public class RequestMetricsListener implements ServletRequestListener {
+
+    @Inject
+    private RequestMetrics metrics;
+
+    @Override
+    public void requestInitialized(ServletRequestEvent event) {
+    }
+
+    @Override
+    public void requestDestroyed(ServletRequestEvent event) {
+        Object timing = event.getServletRequest().getAttribute(RequestMetricsFilter.TIMING);
+        if (timing instanceof RequestMetricsFilter.Timing && ((RequestMetricsFilter.Timing) timing).finish()) {
+            metrics.abandoned();
+        }
+    }
+}
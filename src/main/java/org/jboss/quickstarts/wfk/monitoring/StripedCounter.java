@@ -0,0 +1,61 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.monitoring;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A counter which many threads can add to at once without contending on a single memory location.</p>
+ *
+ * <p>The count is split over {@link #STRIPES} cells, each on its own cache line, and a thread always adds to the cell
+ * picked by its id. Adding is a single atomic increment and allocates nothing; reading sums the cells.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+final class StripedCounter {
+
+    /** Number of cells; a power of two. */
+    static final int STRIPES = 8;
+
+    /** Longs per 64 byte cache line, so that each cell is on a line of its own. */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    void add(long delta) {
+        cells.addAndGet(stripe() * PADDING, delta);
+    }
+
+    void increment() {
+        add(1);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * <p>Returns the stripe of the calling thread.</p>
+     */
+    static int stripe() {
+        return (int) Thread.currentThread().getId() & (STRIPES - 1);
+    }
+}
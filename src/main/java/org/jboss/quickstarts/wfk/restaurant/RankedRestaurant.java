@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.restaurant;
+
+import java.util.Comparator;
+
+/**
+ * <p>A Restaurant's place on the {@link RestaurantLeaderboard}: its id and name and the review count and rating sum its
+ * average is computed from. Instances are immutable; a rating change replaces the Restaurant's instance.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+public class RankedRestaurant {
+
+	/**
+	 * <p>Highest average rating first, then most reviewed first, then lowest id first. Averages are compared by cross
+	 * multiplying the sums and counts, so that equal averages are exactly equal and the order is total.</p>
+	 */
+	static final Comparator<RankedRestaurant> ORDER = new Comparator<RankedRestaurant>() {
+		@Override
+		public int compare(RankedRestaurant a, RankedRestaurant b) {
+			int result = Long.compare(b.sum * a.count, a.sum * b.count);
+			if (result == 0) {
+				result = Long.compare(b.count, a.count);
+			}
+			if (result == 0) {
+				result = Long.compare(a.id, b.id);
+			}
+			return result;
+		}
+	};
+
+	private final long id;
+	private final String name;
+	private final long count;
+	private final long sum;
+
+	RankedRestaurant(long id, String name, long count, long sum) {
+		this.id = id;
+		this.name = name;
+		this.count = count;
+		this.sum = sum;
+	}
+
+	/**
+	 * @return A copy with the change of a {@link RestaurantChangedEvent} applied
+	 */
+	RankedRestaurant plus(long countDelta, long sumDelta) {
+		return new RankedRestaurant(id, name, count + countDelta, sum + sumDelta);
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getReviewCount() {
+		return count;
+	}
+
+	/**
+	 * @return The mean rating, or null if the Restaurant has no reviews
+	 */
+	public Double getAverageRating() {
+		return count == 0 ? null : (double) sum / count;
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.restaurant;
+
+/**
+ * <p>A Restaurant whose stored rating summary did not match its Reviews, as found by the {@link RatingReconciler}.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+public class RatingDrift {
+
+	private final Long restaurantId;
+	private final RatingSummary stored;
+	private final RatingSummary actual;
+	private final boolean repaired;
+	private final long detectedAt = System.currentTimeMillis();
+
+	RatingDrift(Long restaurantId, RatingSummary stored, RatingSummary actual, boolean repaired) {
+		this.restaurantId = restaurantId;
+		this.stored = stored;
+		this.actual = actual;
+		this.repaired = repaired;
+	}
+
+	public Long getRestaurantId() {
+		return restaurantId;
+	}
+
+	public RatingSummary getStored() {
+		return stored;
+	}
+
+	public RatingSummary getActual() {
+		return actual;
+	}
+
+	public boolean isRepaired() {
+		return repaired;
+	}
+
+	public long getDetectedAt() {
+		return detectedAt;
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.restaurant;
+
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+/**
+ * <p>Background job which recomputes the rating summary of every Restaurant from the Review table and reports, and by
+ * default repairs, any summary which has drifted from it.</p>
+ *
+ * <p>The summaries are maintained incrementally as Reviews are written, so drift means a Review was written or removed
+ * some other way, e.g. directly in the database. The job runs alongside normal traffic: a first pass compares all stored
+ * summaries with a single GROUP BY over the Review table, without locks, and each Restaurant which differs is then
+ * checked again with its summary's row locked (see {@link RestaurantService#reconcile(Long, boolean)}), so that Reviews being
+ * written during the first pass are not reported.</p>
+ *
+ * <p>The job runs every <code>restaurant.ratings.reconcileMinutes</code> minutes; setting
+ * <code>restaurant.ratings.repair</code> to false only reports drift.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see RatingSummary
+ */
+@ApplicationScoped
+public class RatingReconciler {
+
+	/** Number of recent drifts kept for {@link #getStatistics()}. */
+	private static final int RECENT_DRIFTS = 20;
+
+	@Inject
+	private Log log;
+
+	@Inject
+	private ApplicationConfig config;
+
+	@Inject
+	private RestaurantService service;
+
+	@Resource
+	private ManagedScheduledExecutorService scheduler;
+
+	private ScheduledFuture<?> task;
+
+	private boolean repair;
+
+	private final AtomicLong runs = new AtomicLong();
+	private final AtomicLong suspected = new AtomicLong();
+	private final AtomicLong drifted = new AtomicLong();
+
+	private volatile long lastRun;
+	private volatile long lastRunDuration;
+	private volatile int lastRunChecked;
+
+	private final Deque<RatingDrift> recentDrifts = new ArrayDeque<>();
+
+	/**
+	 * <p>Schedules the job as soon as the application has started.</p>
+	 *
+	 * @param event The (unused) payload of the application scope initialisation event
+	 */
+	void init(@Observes @Initialized(ApplicationScoped.class) Object event) {
+		repair = config.getBoolean("restaurant.ratings.repair", true);
+		long interval = config.getLong("restaurant.ratings.reconcileMinutes", 15);
+		task = scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					reconcile();
+				} catch (RuntimeException e) {
+					log.warning("RatingReconciler - Reconciliation failed: {0}", e);
+				}
+			}
+		}, interval, interval, TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	void destroy() {
+		if (task != null) {
+			task.cancel(false);
+		}
+	}
+
+	/**
+	 * <p>Compares every stored rating summary with the Review table, and rechecks and repairs those which differ.</p>
+	 *
+	 * @return The number of Restaurants whose summary had drifted
+	 */
+	int reconcile() {
+		long start = System.currentTimeMillis();
+		Map<Long, RatingSummary> stored = service.findRatings();
+		Map<Long, RatingSummary> actual = service.countRatings();
+		RatingSummary none = new RatingSummary();
+
+		int found = 0;
+		for (Map.Entry<Long, RatingSummary> restaurant : stored.entrySet()) {
+			RatingSummary expected = actual.containsKey(restaurant.getKey()) ? actual.get(restaurant.getKey()) : none;
+			if (expected.equals(restaurant.getValue())) {
+				continue;
+			}
+
+			suspected.incrementAndGet();
+			RatingDrift drift = service.reconcile(restaurant.getKey(), repair);
+			if (drift != null) {
+				found++;
+				drifted.incrementAndGet();
+				synchronized (recentDrifts) {
+					if (recentDrifts.size() == RECENT_DRIFTS) {
+						recentDrifts.removeFirst();
+					}
+					recentDrifts.addLast(drift);
+				}
+			}
+		}
+
+		runs.incrementAndGet();
+		lastRun = start;
+		lastRunDuration = System.currentTimeMillis() - start;
+		lastRunChecked = stored.size();
+		log.info("RatingReconciler - Checked {0} Restaurants, {1} had drifted", stored.size(), found);
+		return found;
+	}
+
+	/**
+	 * <p>Returns how often the job ran, how much drift it found and the most recent drifts.</p>
+	 *
+	 * @return Map of statistic name to value
+	 */
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<>();
+		statistics.put("runs", runs.get());
+		statistics.put("lastRunMillis", lastRun);
+		statistics.put("lastRunDurationMillis", lastRunDuration);
+		statistics.put("lastRunRestaurants", lastRunChecked);
+		statistics.put("suspected", suspected.get());
+		statistics.put("drifted", drifted.get());
+		statistics.put("repair", repair);
+		synchronized (recentDrifts) {
+			statistics.put("recentDrifts", new ArrayList<>(recentDrifts));
+		}
+		return statistics;
+	}
+}
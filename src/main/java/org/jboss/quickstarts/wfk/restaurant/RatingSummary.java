@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.restaurant;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+/**
+ * <p>The review count, rating sum and rating histogram of a Restaurant, stored in its {@link RestaurantRating} so that
+ * they can be returned with it instead of being folded from every Review on each request.</p>
+ *
+ * <p>The summary is kept up to date by {@link RestaurantService#addRating(Long, int)} and
+ * {@link RestaurantService#removeRating(Long, int)}, in the same transaction as the Review is written or removed, and is
+ * checked against the Review table by the {@link RatingReconciler}.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+@Embeddable
+public class RatingSummary implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Ratings run from 0 to 5, see {@link org.jboss.quickstarts.wfk.review.Review}. */
+	public static final int MAX_RATING = 5;
+
+	/** The properties holding the number of ratings of each value, indexed by rating. */
+	static final String[] HISTOGRAM_PROPERTIES = {"zero", "one", "two", "three", "four", "five"};
+
+	@Column(name = "review_count", nullable = false)
+	private long count;
+
+	@Column(name = "rating_sum", nullable = false)
+	private long sum;
+
+	@Column(name = "rating_0", nullable = false)
+	private long zero;
+
+	@Column(name = "rating_1", nullable = false)
+	private long one;
+
+	@Column(name = "rating_2", nullable = false)
+	private long two;
+
+	@Column(name = "rating_3", nullable = false)
+	private long three;
+
+	@Column(name = "rating_4", nullable = false)
+	private long four;
+
+	@Column(name = "rating_5", nullable = false)
+	private long five;
+
+	public RatingSummary() {
+	}
+
+	/**
+	 * <p>Creates a summary from the number of ratings of each value.</p>
+	 *
+	 * @param histogram The number of ratings of each value, indexed by rating
+	 */
+	RatingSummary(long[] histogram) {
+		zero = histogram[0];
+		one = histogram[1];
+		two = histogram[2];
+		three = histogram[3];
+		four = histogram[4];
+		five = histogram[5];
+		for (int rating = 0; rating <= MAX_RATING; rating++) {
+			count += histogram[rating];
+			sum += rating * histogram[rating];
+		}
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	/**
+	 * @return The mean rating, or null if the Restaurant has no reviews
+	 */
+	public Double getAverage() {
+		return count == 0 ? null : (double) sum / count;
+	}
+
+	/**
+	 * @return The number of ratings of each value, indexed by rating
+	 */
+	public long[] getHistogram() {
+		return new long[]{zero, one, two, three, four, five};
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof RatingSummary)) return false;
+		RatingSummary summary = (RatingSummary) o;
+		return count == summary.count && sum == summary.sum && Arrays.equals(getHistogram(), summary.getHistogram());
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(getHistogram());
+	}
+
+	@Override
+	public String toString() {
+		return "RatingSummary{" + "count=" + count + ", sum=" + sum + ", histogram=" + Arrays.toString(getHistogram()) + '}';
+	}
+}
@@ -17,6 +17,8 @@
 package org.jboss.quickstarts.wfk.restaurant;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import org.jboss.quickstarts.wfk.review.Review;
 
@@ -24,6 +26,7 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Objects;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -33,13 +36,18 @@ import javax.persistence.Id;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
+import javax.persistence.QueryHint;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import io.swagger.annotations.ApiModelProperty;
+
 /**
  * <p>This is a the Domain object. The Restaurant class represents how Restaurant resources are represented in the application
  * database.</p>
@@ -54,20 +62,29 @@ import javax.xml.bind.annotation.XmlRootElement;
  * form of query in JPA though is it more error prone due to the syntax being in a String.  This makes it harder to debug.
  */
 @Entity
+@Cacheable
 @NamedQueries({
-		@NamedQuery(name = Restaurant.FIND_ALL, query = "SELECT c FROM Restaurant c ORDER BY c.phonenumber ASC"),
-		@NamedQuery(name = Restaurant.FIND_BY_PHONENUMBER, query = "SELECT c FROM Restaurant c WHERE c.phonenumber = :phonenumber")})
+		@NamedQuery(name = Restaurant.FIND_ALL, query = "SELECT c FROM Restaurant c ORDER BY c.phonenumber ASC",
+				hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
+		@NamedQuery(name = Restaurant.FIND_BY_PHONENUMBER, query = "SELECT c FROM Restaurant c WHERE c.phonenumber = :phonenumber"),
+		@NamedQuery(name = Restaurant.FIND_EXISTING_IDS, query = "SELECT c.id FROM Restaurant c WHERE c.id IN :ids")})
 @XmlRootElement
-@Table(name = "restaurant", uniqueConstraints = @UniqueConstraint(columnNames = "phonenumber"))
+// The rating summary is maintained from the Reviews, so it is written out but never read from a request.
+@JsonIgnoreProperties(value = "rating", allowGetters = true)
+@Table(name = "restaurant", uniqueConstraints = @UniqueConstraint(name = Restaurant.PHONENUMBER_CONSTRAINT, columnNames = "phonenumber"))
 public class Restaurant implements Serializable {
 	// /** Default value included to remove warning. Remove or modify at will. **/
 	// private static final long serialVersionUID = 2L;
 
 	public static final String FIND_ALL = "Restaurant.findAll";
 	public static final String FIND_BY_PHONENUMBER = "Restaurant.findByPhonenumber";
+	public static final String FIND_EXISTING_IDS = "Restaurant.findExistingIds";
+	public static final String PHONENUMBER_CONSTRAINT = "restaurant_phonenumber_uk";
 
+	// Sequence backed pooled-lo ids, as for Contact, so that inserts can be batched.
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "restaurant_seq")
+	@SequenceGenerator(name = "restaurant_seq", sequenceName = "restaurant_seq", initialValue = 100000, allocationSize = 50)
 	private Long id;
 
 	@NotNull
@@ -84,6 +101,12 @@ public class Restaurant implements Serializable {
 	@Column(name = "postcode")
 	private String postcode;
 
+	// Kept in a RestaurantRating, and only filled in for the Restaurants listed by RestaurantService.findAll().
+	@Transient
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	@ApiModelProperty(readOnly = true)
+	private RatingSummary rating;
+
 	@JsonIgnore
 	@OneToMany(cascade = CascadeType.ALL, mappedBy = "restaurant")
 	private List<Review> reviews;
@@ -120,6 +143,14 @@ public class Restaurant implements Serializable {
 		this.id = id;
 	}
 
+	public RatingSummary getRating() {
+		return rating;
+	}
+
+	void setRating(RatingSummary rating) {
+		this.rating = rating;
+	}
+
 	public List<Review> getReviews() {
 		return reviews;
 	}
@@ -144,7 +175,8 @@ public class Restaurant implements Serializable {
 
 	@Override
 	public String toString() {
+		// The lazy reviews collection is left out: printing it would load every Review, and each Review prints its Restaurant.
 		return "Restaurant{" + "id=" + id + ", name='" + name + '\'' + ", phonenumber='" + phonenumber + '\'' + ", postcode='" + postcode +
-				'\'' + ", reviews=" + reviews + '}';
+				'\'' + '}';
 	}
 }
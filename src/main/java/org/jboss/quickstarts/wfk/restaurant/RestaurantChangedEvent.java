@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.restaurant;
+
+/**
+ * <p>CDI event fired by {@link RestaurantService} whenever a Restaurant is created or its rating summary changes.</p>
+ *
+ * <p>A rating change carries the change to the review count and rating sum rather than the new totals, so observers can
+ * apply events in any order. Like {@link org.jboss.quickstarts.wfk.contact.ContactChangedEvent} it carries plain values
+ * only, so that observers which run after the transaction has completed never touch a managed object.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see RestaurantService
+ * @see RestaurantLeaderboard
+ */
+public class RestaurantChangedEvent {
+
+	public enum Type { CREATED, RATED }
+
+	private final Type type;
+	private final Long id;
+	private final String name;
+	private final long countDelta;
+	private final long sumDelta;
+
+	private RestaurantChangedEvent(Type type, Long id, String name, long countDelta, long sumDelta) {
+		this.type = type;
+		this.id = id;
+		this.name = name;
+		this.countDelta = countDelta;
+		this.sumDelta = sumDelta;
+	}
+
+	static RestaurantChangedEvent created(Restaurant restaurant) {
+		return new RestaurantChangedEvent(Type.CREATED, restaurant.getId(), restaurant.getName(), 0, 0);
+	}
+
+	static RestaurantChangedEvent rated(Long id, long countDelta, long sumDelta) {
+		return new RestaurantChangedEvent(Type.RATED, id, null, countDelta, sumDelta);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	/**
+	 * @return The name of a created Restaurant; null for a rating change
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The number of Reviews added, or negative if removed
+	 */
+	public long getCountDelta() {
+		return countDelta;
+	}
+
+	/**
+	 * @return The change to the sum of the ratings of the Restaurant's Reviews
+	 */
+	public long getSumDelta() {
+		return sumDelta;
+	}
+}
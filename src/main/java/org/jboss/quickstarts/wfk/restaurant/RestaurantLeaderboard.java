@@ -0,0 +1,154 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.restaurant;
+
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+
+/**
+ * <p>In-memory ranking of the best rated Restaurants, so that the top n can be returned without querying the
+ * database.</p>
+ *
+ * <p>Every Restaurant's review count and rating sum are held in a map, and those with at least
+ * <code>restaurant.top.minReviews</code> Reviews are also held in a {@link TreeSet} sorted by
+ * {@link RankedRestaurant#ORDER}. Both are only touched under the monitor of the leaderboard.</p>
+ *
+ * <p>The ranking is loaded from the stored rating summaries (see {@link RatingSummary}) with a single query when the
+ * application starts, and is then kept up to date from the {@link RestaurantChangedEvent}s fired by
+ * {@link RestaurantService}, which are only delivered once the Review write has committed. After each change the first
+ * <code>restaurant.top.maxN</code> Restaurants of the ranking are published as an immutable array, in O(maxN). Readers
+ * never wait: the top n is copied from the latest array, so it is always one consistent ranking in which every
+ * qualifying Restaurant appears exactly once.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see RestaurantChangedEvent
+ */
+@ApplicationScoped
+public class RestaurantLeaderboard {
+
+	@Inject
+	private Log log;
+
+	@Inject
+	private ApplicationConfig config;
+
+	@Inject
+	private RestaurantRepository crud;
+
+	/** Guarded by this. */
+	private final Map<Long, RankedRestaurant> restaurants = new HashMap<>();
+
+	/** Guarded by this. */
+	private final TreeSet<RankedRestaurant> ranking = new TreeSet<>(RankedRestaurant.ORDER);
+
+	/** The first maxN Restaurants of the ranking, best first. Replaced, never modified, after each change. */
+	private volatile RankedRestaurant[] top = new RankedRestaurant[0];
+
+	private long minReviews;
+
+	private int maxN;
+
+	/**
+	 * <p>Loads the rating summary of every Restaurant as soon as the application has started.</p>
+	 *
+	 * @param event The (unused) payload of the application scope initialisation event
+	 */
+	synchronized void init(@Observes @Initialized(ApplicationScoped.class) Object event) {
+		minReviews = Math.max(1, config.getLong("restaurant.top.minReviews", 3));
+		maxN = Math.max(1, config.getInt("restaurant.top.maxN", 100));
+		for (Object[] row : crud.findStandings()) {
+			put(new RankedRestaurant((Long) row[0], (String) row[1], (Long) row[2], (Long) row[3]));
+		}
+		publish();
+		log.info("RestaurantLeaderboard.init() - Ranked {0} of {1} Restaurants", ranking.size(), restaurants.size());
+	}
+
+	/**
+	 * <p>Applies a committed change to the ranking.</p>
+	 *
+	 * @param event The change to a Restaurant
+	 */
+	synchronized void onRestaurantChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) RestaurantChangedEvent event) {
+		RankedRestaurant previous = restaurants.get(event.getId());
+		if (event.getType() == RestaurantChangedEvent.Type.CREATED) {
+			if (previous == null) {
+				put(new RankedRestaurant(event.getId(), event.getName(), 0, 0));
+			}
+		} else if (previous == null) {
+			// Created before the ranking was loaded but not yet committed when it was; should not happen in practice.
+			log.warning("RestaurantLeaderboard.onRestaurantChanged() - Rating of unknown Restaurant {0} changed",
+					event.getId());
+		} else {
+			put(previous.plus(event.getCountDelta(), event.getSumDelta()));
+		}
+		publish();
+	}
+
+	/**
+	 * <p>Returns the best rated Restaurants with at least <code>restaurant.top.minReviews</code> Reviews.</p>
+	 *
+	 * @param n The maximum number of Restaurants to return, up to <code>restaurant.top.maxN</code>
+	 * @return Up to n Restaurants, best first
+	 */
+	public List<RankedRestaurant> top(int n) {
+		RankedRestaurant[] current = top;
+		return new ArrayList<>(Arrays.asList(current).subList(0, Math.min(n, current.length)));
+	}
+
+	/**
+	 * @return The least number of Reviews a Restaurant needs to be ranked
+	 */
+	public long getMinReviews() {
+		return minReviews;
+	}
+
+	private void put(RankedRestaurant restaurant) {
+		RankedRestaurant previous = restaurants.put(restaurant.getId(), restaurant);
+		if (previous != null) {
+			ranking.remove(previous);
+		}
+		if (restaurant.getReviewCount() >= minReviews) {
+			ranking.add(restaurant);
+		}
+	}
+
+	/**
+	 * <p>Replaces the array read by {@link #top(int)} with the current first maxN Restaurants of the ranking.</p>
+	 */
+	private void publish() {
+		RankedRestaurant[] first = new RankedRestaurant[Math.min(maxN, ranking.size())];
+		Iterator<RankedRestaurant> it = ranking.iterator();
+		for (int i = 0; i < first.length; i++) {
+			first[i] = it.next();
+		}
+		top = first;
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.restaurant;
+
+import java.io.Serializable;
+
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.MapsId;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.OneToOne;
+import javax.persistence.Table;
+
+/**
+ * <p>The {@link RatingSummary} of a Restaurant, in a table of its own keyed by the Restaurant's id.</p>
+ *
+ * <p>The summary changes with every Review, and is updated with bulk UPDATEs. Hibernate evicts every cached entity and
+ * query of a table a bulk UPDATE touches, so were the summary on the Restaurant's row each Review would empty the
+ * Restaurant region and the cached list of Restaurants. This entity is not @Cacheable, so its UPDATEs leave those alone.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see RestaurantRepository
+ */
+@Entity
+@NamedQueries({
+		@NamedQuery(name = RestaurantRating.ADD_RATINGS, query = "UPDATE RestaurantRating c SET c.rating.count = c.rating.count + :count,"
+				+ " c.rating.sum = c.rating.sum + :sum, c.rating.zero = c.rating.zero + :zero, c.rating.one = c.rating.one + :one,"
+				+ " c.rating.two = c.rating.two + :two, c.rating.three = c.rating.three + :three,"
+				+ " c.rating.four = c.rating.four + :four, c.rating.five = c.rating.five + :five WHERE c.id = :id"),
+		@NamedQuery(name = RestaurantRating.FIND_ALL, query = "SELECT c.id, c.rating FROM RestaurantRating c"),
+		@NamedQuery(name = RestaurantRating.FIND_STANDINGS, query = "SELECT c.id, r.name, c.rating.count, c.rating.sum"
+				+ " FROM RestaurantRating c JOIN c.restaurant r")})
+@Table(name = "restaurant_rating")
+public class RestaurantRating implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String ADD_RATINGS = "RestaurantRating.addRatings";
+	public static final String FIND_ALL = "RestaurantRating.findAll";
+	public static final String FIND_STANDINGS = "RestaurantRating.findStandings";
+
+	@Id
+	private Long id;
+
+	// Shares the Restaurant's id, which is also a foreign key to it.
+	@MapsId
+	@OneToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "restaurant_id")
+	private Restaurant restaurant;
+
+	@Embedded
+	private RatingSummary rating = new RatingSummary();
+
+	public RestaurantRating() {
+	}
+
+	/**
+	 * <p>Creates the empty summary of a new Restaurant.</p>
+	 *
+	 * @param restaurant The Restaurant
+	 */
+	RestaurantRating(Restaurant restaurant) {
+		this.restaurant = restaurant;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public RatingSummary getRating() {
+		return rating;
+	}
+
+	void setRating(RatingSummary rating) {
+		this.rating = rating;
+	}
+}
@@ -16,12 +16,18 @@
  */
 package org.jboss.quickstarts.wfk.restaurant;
 
+import org.jboss.quickstarts.wfk.review.Review;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.UniqueConstraints;
+
+import java.util.HashMap;
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.Map;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceException;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -42,9 +48,22 @@ import javax.validation.ValidationException;
  */
 public class RestaurantRepository {
 
+	/**
+	 * Adds a delta to the count and sum of a Restaurant's ratings and to the histogram bucket of one rating value,
+	 * indexed by that value. JPQL has no way to choose the column from a parameter, hence one statement per value.
+	 */
+	private static final String[] ADJUST_RATING = new String[RatingSummary.MAX_RATING + 1];
+
+	static {
+		for (int rating = 0; rating <= RatingSummary.MAX_RATING; rating++) {
+			String bucket = "c.rating." + RatingSummary.HISTOGRAM_PROPERTIES[rating];
+			ADJUST_RATING[rating] = "UPDATE RestaurantRating c SET c.rating.count = c.rating.count + :delta,"
+					+ " c.rating.sum = c.rating.sum + :sumDelta, " + bucket + " = " + bucket + " + :delta WHERE c.id = :id";
+		}
+	}
+
 	@Inject
-	private @Named("logger")
-	Logger log;
+	private Log log;
 
 	@Inject
 	private EntityManager em;
@@ -82,6 +101,125 @@ public class RestaurantRepository {
 		return query.getSingleResult();
 	}
 
+	/**
+	 * <p>Returns the rating summary of a Restaurant, specified by a Long id, and locks its row until the transaction
+	 * ends. Changes made to the summary are written when the transaction commits.</p>
+	 *
+	 * @param id The id of the Restaurant
+	 * @return The RestaurantRating of the Restaurant, or null
+	 */
+	RestaurantRating findRatingForUpdate(Long id) {
+		return em.find(RestaurantRating.class, id, LockModeType.PESSIMISTIC_WRITE);
+	}
+
+	/**
+	 * <p>Returns the stored rating summary of every Restaurant.</p>
+	 *
+	 * @return Map of Restaurant id to its RatingSummary
+	 */
+	Map<Long, RatingSummary> findRatings() {
+		List<Object[]> rows = em.createNamedQuery(RestaurantRating.FIND_ALL, Object[].class).getResultList();
+		Map<Long, RatingSummary> ratings = new HashMap<>(rows.size() * 2);
+		for (Object[] row : rows) {
+			ratings.put((Long) row[0], (RatingSummary) row[1]);
+		}
+		return ratings;
+	}
+
+	/**
+	 * <p>Returns the id, name, review count and rating sum of every Restaurant, read from the stored rating summaries
+	 * with a single query.</p>
+	 *
+	 * @return One (id, name, count, sum) row per Restaurant
+	 */
+	List<Object[]> findStandings() {
+		return em.createNamedQuery(RestaurantRating.FIND_STANDINGS, Object[].class).getResultList();
+	}
+
+	/**
+	 * <p>Counts the ratings of every Restaurant from its Reviews. Restaurants without Reviews are left out.</p>
+	 *
+	 * @return Map of Restaurant id to the RatingSummary of its Reviews
+	 */
+	Map<Long, RatingSummary> countRatings() {
+		List<Object[]> rows = em.createNamedQuery(Review.COUNT_RATINGS, Object[].class).getResultList();
+		Map<Long, long[]> histograms = new HashMap<>();
+		for (Object[] row : rows) {
+			long[] histogram = histograms.get(row[0]);
+			if (histogram == null) {
+				histogram = new long[RatingSummary.MAX_RATING + 1];
+				histograms.put((Long) row[0], histogram);
+			}
+			histogram[(Integer) row[1]] = (Long) row[2];
+		}
+
+		Map<Long, RatingSummary> ratings = new HashMap<>(histograms.size() * 2);
+		for (Map.Entry<Long, long[]> histogram : histograms.entrySet()) {
+			ratings.put(histogram.getKey(), new RatingSummary(histogram.getValue()));
+		}
+		return ratings;
+	}
+
+	/**
+	 * <p>Counts the ratings of one Restaurant from its Reviews.</p>
+	 *
+	 * @param id The id of the Restaurant
+	 * @return The RatingSummary of its Reviews
+	 */
+	RatingSummary countRatings(Long id) {
+		List<Object[]> rows = em.createNamedQuery(Review.COUNT_RATINGS_BY_RESTAURANT_ID, Object[].class)
+				.setParameter("restaurantId", id)
+				.getResultList();
+		long[] histogram = new long[RatingSummary.MAX_RATING + 1];
+		for (Object[] row : rows) {
+			histogram[(Integer) row[0]] = (Long) row[1];
+		}
+		return new RatingSummary(histogram);
+	}
+
+	/**
+	 * <p>Adds (or, with a negative delta, removes) ratings of one value to the summary of a Restaurant, with a single
+	 * UPDATE. The increment is done by the database, so concurrent Reviews of the same Restaurant can not lose each
+	 * other's updates.</p>
+	 *
+	 * <p>Hibernate can not tell which rows a bulk UPDATE touched, so it evicts the cached entities and queries of the whole
+	 * table. The summaries are kept in the uncached {@link RestaurantRating} table, so the cached Restaurants stay.</p>
+	 *
+	 * @param id The id of the Restaurant
+	 * @param rating The rating value, from 0 to {@link RatingSummary#MAX_RATING}
+	 * @param delta The number of ratings to add
+	 * @return true if the Restaurant exists and was updated
+	 */
+	boolean adjustRating(Long id, int rating, int delta) {
+		return em.createQuery(ADJUST_RATING[rating])
+				.setParameter("delta", (long) delta)
+				.setParameter("sumDelta", (long) delta * rating)
+				.setParameter("id", id)
+				.executeUpdate() > 0;
+	}
+
+	/**
+	 * <p>Adds the ratings of many Reviews of a Restaurant to its summary, with a single UPDATE.</p>
+	 *
+	 * @param id The id of the Restaurant
+	 * @param ratings The ratings to add
+	 * @return true if the Restaurant exists and was updated
+	 */
+	boolean addRatings(Long id, RatingSummary ratings) {
+		long[] histogram = ratings.getHistogram();
+		return em.createNamedQuery(RestaurantRating.ADD_RATINGS)
+				.setParameter("count", ratings.getCount())
+				.setParameter("sum", ratings.getSum())
+				.setParameter("zero", histogram[0])
+				.setParameter("one", histogram[1])
+				.setParameter("two", histogram[2])
+				.setParameter("three", histogram[3])
+				.setParameter("four", histogram[4])
+				.setParameter("five", histogram[5])
+				.setParameter("id", id)
+				.executeUpdate() > 0;
+	}
+
 	/**
 	 * <p>Persists the provided Restaurant object to the application database using the EntityManager.</p>
 	 *
@@ -90,15 +228,28 @@ public class RestaurantRepository {
 	 *
 	 * <p>persist(Object) will set the @GeneratedValue @Id for an object.</p>
 	 *
+	 * <p>An empty {@link RestaurantRating} is persisted with the Restaurant. The inserts are flushed straight away so that
+	 * the database can enforce the unique phonenumber constraint here, rather than at commit.</p>
+	 *
 	 * @param restaurant The Restaurant object to be persisted
 	 * @return The Restaurant object that has been persisted
+	 * @throws UniquePhonenumberException If another Restaurant already has the phonenumber
 	 * @throws ConstraintViolationException, ValidationException, Exception
 	 */
 	Restaurant create(Restaurant restaurant) throws ConstraintViolationException, ValidationException, Exception {
-		log.info("RestaurantRepository.create() - Creating " + restaurant.getName());
+		log.info("RestaurantRepository.create() - Creating {0}", restaurant.getName());
 
 		// Write the restaurant to the database.
 		em.persist(restaurant);
+		em.persist(new RestaurantRating(restaurant));
+		try {
+			em.flush();
+		} catch (PersistenceException e) {
+			if (UniqueConstraints.isViolated(e, Restaurant.PHONENUMBER_CONSTRAINT)) {
+				throw new UniquePhonenumberException("Unique Phonenumber Violation", e);
+			}
+			throw e;
+		}
 
 		return restaurant;
 	}
@@ -17,22 +17,27 @@
 package org.jboss.quickstarts.wfk.restaurant;
 
 import org.jboss.quickstarts.wfk.area.InvalidAreaCodeException;
+import org.jboss.quickstarts.wfk.review.ReviewService;
+import org.jboss.quickstarts.wfk.review.ReviewSort;
+import org.jboss.quickstarts.wfk.review.ReviewView;
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.Page;
 import org.jboss.quickstarts.wfk.util.RestServiceException;
 import org.jboss.resteasy.annotations.cache.Cache;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Logger;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.persistence.NoResultException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
@@ -40,8 +45,11 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Link;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -73,11 +81,20 @@ import io.swagger.annotations.ApiResponses;
 @Stateless
 public class RestaurantRestService {
     @Inject
-    private @Named("logger") Logger log;
+    private Log log;
     
     @Inject
     private RestaurantService service;
 
+    @Inject
+    private ReviewService reviewService;
+
+    @Inject
+    private ApplicationConfig config;
+
+    @Inject
+    private RestaurantLeaderboard leaderboard;
+
     /**
      * <p>Return all the Restaurants.  They are sorted alphabetically by a seats number.</p>
      *
@@ -96,6 +113,42 @@ public class RestaurantRestService {
         return Response.ok(restaurants).build();
     }
 
+    /**
+     * <p>Return the best rated Restaurants, highest average rating first and then most reviewed first. Only Restaurants
+     * with at least <code>restaurant.top.minReviews</code> Reviews are ranked.</p>
+     *
+     * <p>The ranking is held in memory by the {@link RestaurantLeaderboard}, so this does not query the database. It
+     * reflects every committed Review write.</p>
+     *
+     * <p>Examples: <pre>GET api/restaurants/top?n=5</pre></p>
+     *
+     * @param n The number of Restaurants to return
+     * @return A Response containing a list of RankedRestaurants
+     */
+    @GET
+    @Path("/top")
+    @ApiOperation(value = "Fetch the best rated Restaurants",
+            notes = "Returns a JSON array of Restaurants with their review count and average rating, best first.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Ranking returned"),
+            @ApiResponse(code = 400, message = "Invalid number of Restaurants requested")
+    })
+    public Response retrieveTopRestaurants(
+            @ApiParam(value = "Number of Restaurants to return", allowableValues = "range[1, infinity]")
+            @QueryParam("n")
+            @DefaultValue("10")
+            int n) {
+
+        int maxN = config.getInt("restaurant.top.maxN", 100);
+        if (n < 1 || n > maxN) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("n", "The number of Restaurants must be between 1 and " + maxN);
+            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST);
+        }
+
+        return Response.ok(leaderboard.top(n)).build();
+    }
+
     /**
      * <p>Creates a new restaurant from the values provided. Performs validation and will return a JAX-RS response with
      * either 201 (Resource created) or with a map of fields, and related errors.</p>
@@ -152,7 +205,91 @@ public class RestaurantRestService {
             throw new RestServiceException(e);
         }
 
-        log.info("createRestaurant completed. Restaurant = " + restaurant.toString());
+        log.info("createRestaurant completed. Restaurant = {0}", restaurant.getId());
+        return builder.build();
+    }
+
+    /**
+     * <p>Return one page of the Reviews of a Restaurant, each with the id and name of its User and Restaurant.</p>
+     *
+     * <p>Reviews are sorted highest rated first (<code>sort=rating</code>, the default) or newest first
+     * (<code>sort=newest</code>). Pages are keyset paginated: when there are more Reviews the response carries the cursor
+     * of the next page in an X-Next-Cursor header and a Link header with rel="next", and that cursor is passed back as
+     * <code>after</code>. Each page is read with an index seek, so its cost depends on the page size only.</p>
+     *
+     * <p>Examples: <pre>GET api/restaurants/1/reviews?limit=20</pre>,
+     * <pre>GET api/restaurants/1/reviews?sort=newest&amp;after=...</pre></p>
+     *
+     * @param id The id of the Restaurant
+     * @param sortParameter rating or newest
+     * @param limit The maximum number of Reviews to return on one page
+     * @param after The cursor of the page to return
+     * @param uriInfo Used to build the link to the next page
+     * @return A Response containing a list of ReviewViews
+     */
+    @GET
+    @Path("/{id:[0-9]+}/reviews")
+    @ApiOperation(value = "Fetch a page of the Reviews of a Restaurant",
+            notes = "Returns a JSON array of Reviews with the id and name of their User and Restaurant.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Reviews found"),
+            @ApiResponse(code = 400, message = "Invalid sort or paging parameters supplied"),
+            @ApiResponse(code = 404, message = "Restaurant with id not found")
+    })
+    public Response retrieveReviewsOfRestaurant(
+            @ApiParam(value = "Id of Restaurant whose Reviews to fetch", allowableValues = "range[0, infinity]", required = true)
+            @PathParam("id")
+            long id,
+            @ApiParam(value = "Order of the Reviews", allowableValues = "rating, newest")
+            @QueryParam("sort")
+            @DefaultValue("rating")
+            String sortParameter,
+            @ApiParam(value = "Maximum number of Reviews to return on one page", allowableValues = "range[1, infinity]")
+            @QueryParam("limit")
+            Integer limit,
+            @ApiParam(value = "Cursor of the page to return, from the X-Next-Cursor header of the previous page")
+            @QueryParam("after")
+            String after,
+            @Context
+            UriInfo uriInfo) {
+
+        ReviewSort sort = ReviewSort.fromParameter(sortParameter);
+        if (sort == null) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("sort", "The sort must be rating or newest");
+            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST);
+        }
+
+        int maxLimit = config.getInt("review.page.maxLimit", 100);
+        int pageSize = limit == null ? config.getInt("review.page.defaultLimit", 20) : limit;
+        if (pageSize < 1 || pageSize > maxLimit) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("limit", "The limit must be between 1 and " + maxLimit);
+            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST);
+        }
+
+        if (service.findById(id) == null) {
+            // Verify that the restaurant exists. Return 404, if not present.
+            throw new RestServiceException("No Restaurant with the id " + id + " was found!", Response.Status.NOT_FOUND);
+        }
+
+        Page<ReviewView> page;
+        try {
+            page = reviewService.findPageByRestaurantId(id, sort, after, pageSize);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("after", "The cursor is not valid, please use one returned by a previous page");
+            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
+        }
+
+        Response.ResponseBuilder builder = Response.ok(page.getItems());
+        if (page.getNext() != null) {
+            builder.header("X-Next-Cursor", page.getNext())
+                    .links(Link.fromUriBuilder(uriInfo.getRequestUriBuilder()
+                            .replaceQueryParam("sort", sort.getParameter())
+                            .replaceQueryParam("limit", pageSize)
+                            .replaceQueryParam("after", page.getNext())).rel("next").build());
+        }
         return builder.build();
     }
 
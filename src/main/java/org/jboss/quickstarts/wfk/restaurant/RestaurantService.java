@@ -16,12 +16,15 @@
  */
 package org.jboss.quickstarts.wfk.restaurant;
 
+import org.jboss.quickstarts.wfk.util.Log;
+
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.Map;
 
 import javax.enterprise.context.Dependent;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
-import javax.inject.Named;
+import javax.transaction.Transactional;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 
@@ -44,7 +47,7 @@ import javax.validation.ValidationException;
 public class RestaurantService {
 
     @Inject
-    private @Named("logger") Logger log;
+    private Log log;
 
     @Inject
     private RestaurantValidator validator;
@@ -52,6 +55,9 @@ public class RestaurantService {
     @Inject
     private RestaurantRepository crud;
 
+    @Inject
+    private Event<RestaurantChangedEvent> changes;
+
     /**
      * <p>Create a new client which will be used for our outgoing REST client communication</p>
      */
@@ -59,12 +65,20 @@ public class RestaurantService {
     }
 
     /**
-     * <p>Returns a List of all persisted {@link Restaurant} objects.<p/>
+     * <p>Returns a List of all persisted {@link Restaurant} objects, each with its rating summary.<p/>
+     *
+     * <p>The Restaurants are usually read from the second-level cache, and the summaries, which are not cached, with a
+     * single query.</p>
      *
      * @return List of Restaurant objects
      */
     List<Restaurant> findAll() {
-        return crud.findAll();
+        List<Restaurant> restaurants = crud.findAll();
+        Map<Long, RatingSummary> ratings = crud.findRatings();
+        for (Restaurant restaurant : restaurants) {
+            restaurant.setRating(ratings.get(restaurant.getId()));
+        }
+        return restaurants;
     }
 
     /**
@@ -87,12 +101,113 @@ public class RestaurantService {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Restaurant create(Restaurant restaurant) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("RestaurantService.create() - Creating " + restaurant.getName());
+        log.info("RestaurantService.create() - Creating {0}", restaurant.getName());
         
         // Check to make sure the data fits with the parameters in the Restaurant model and passes validation.
         validator.validateRestaurant(restaurant);
 
         // Write the restaurant to the database.
-        return crud.create(restaurant);
+        Restaurant createdRestaurant = crud.create(restaurant);
+        changes.fire(RestaurantChangedEvent.created(createdRestaurant));
+        return createdRestaurant;
+    }
+
+    /**
+     * <p>Adds a Review's rating to the rating summary of its Restaurant. Called in the transaction which writes the Review.</p>
+     *
+     * <p>Each of the rating methods fires a {@link RestaurantChangedEvent} if the Restaurant exists, which observers such as
+     * the {@link RestaurantLeaderboard} see once the transaction commits.</p>
+     *
+     * @param id The id of the reviewed Restaurant
+     * @param rating The rating of the Review
+     * @return true if the Restaurant exists
+     */
+    public boolean addRating(Long id, int rating) {
+        return adjusted(crud.adjustRating(id, rating, 1), id, 1, rating);
+    }
+
+    /**
+     * <p>Adds the ratings of many Reviews of one Restaurant to its rating summary, with a single UPDATE. Called in the
+     * transaction which writes the Reviews.</p>
+     *
+     * @param id The id of the reviewed Restaurant
+     * @param histogram The number of the Reviews with each rating, indexed by rating
+     * @return true if the Restaurant exists
+     */
+    public boolean addRatings(Long id, long[] histogram) {
+        RatingSummary ratings = new RatingSummary(histogram);
+        return adjusted(crud.addRatings(id, ratings), id, ratings.getCount(), ratings.getSum());
+    }
+
+    /**
+     * <p>Removes a Review's rating from the rating summary of its Restaurant. Called in the transaction which removes the
+     * Review.</p>
+     *
+     * @param id The id of the reviewed Restaurant
+     * @param rating The rating of the Review
+     * @return true if the Restaurant exists
+     */
+    public boolean removeRating(Long id, int rating) {
+        return adjusted(crud.adjustRating(id, rating, -1), id, -1, -rating);
+    }
+
+    private boolean adjusted(boolean updated, Long id, long countDelta, long sumDelta) {
+        if (updated) {
+            changes.fire(RestaurantChangedEvent.rated(id, countDelta, sumDelta));
+        }
+        return updated;
+    }
+
+    /**
+     * <p>Returns the stored rating summary of every Restaurant.</p>
+     *
+     * @return Map of Restaurant id to its RatingSummary
+     */
+    Map<Long, RatingSummary> findRatings() {
+        return crud.findRatings();
+    }
+
+    /**
+     * <p>Recomputes the rating summary of every Restaurant from the Review table.</p>
+     *
+     * @return Map of Restaurant id to the RatingSummary of its Reviews; Restaurants without Reviews are left out
+     */
+    Map<Long, RatingSummary> countRatings() {
+        return crud.countRatings();
+    }
+
+    /**
+     * <p>Compares the stored rating summary of a Restaurant with one recomputed from its Reviews, and optionally
+     * overwrites the stored one.</p>
+     *
+     * <p>The summary's row is locked first. Review writes update that row in the same transaction as the Review, so
+     * once the lock is held no Review of the Restaurant is half written, and the two summaries can be compared without
+     * reporting writes in progress as drift.</p>
+     *
+     * @param id The id of the Restaurant
+     * @param repair Whether to overwrite a stored summary which has drifted
+     * @return The drift, or null if the stored summary is correct or the Restaurant no longer exists
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    RatingDrift reconcile(Long id, boolean repair) {
+        RestaurantRating rating = crud.findRatingForUpdate(id);
+        if (rating == null) {
+            return null;
+        }
+
+        RatingSummary stored = rating.getRating();
+        RatingSummary actual = crud.countRatings(id);
+        if (actual.equals(stored)) {
+            return null;
+        }
+
+        if (repair) {
+            rating.setRating(actual);
+            changes.fire(RestaurantChangedEvent.rated(id, actual.getCount() - stored.getCount(),
+                    actual.getSum() - stored.getSum()));
+        }
+        log.warning("RestaurantService.reconcile() - Restaurant {0} has {1} stored, but its reviews give {2}",
+                id, stored, actual);
+        return new RatingDrift(id, stored, actual, repair);
     }
 }
@@ -21,10 +21,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 import javax.inject.Inject;
-import javax.persistence.NoResultException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
-import javax.validation.ValidationException;
 import javax.validation.Validator;
 
 /**
@@ -39,66 +37,22 @@ public class RestaurantValidator {
     @Inject
     private Validator validator;
 
-    @Inject
-    private RestaurantRepository crud;
-
     /**
      * <p>Validates the given Restaurant object and throws validation exceptions based on the type of error. If the error is standard
      * bean validation errors then it will throw a ConstraintValidationException with the set of the constraints violated.<p/>
      *
-     *
-     * <p>If the error is caused because an existing restaurant with the same phonenumber is registered it throws a regular validation
-     * exception so that it can be interpreted separately.</p>
-     *
+     * <p>The uniqueness of the phonenumber is not checked here. It is enforced by the database's unique constraint when
+     * the Restaurant is written, see {@link RestaurantRepository#create(Restaurant)}.</p>
      *
      * @param restaurant The Restaurant object to be validated
      * @throws ConstraintViolationException If Bean Validation errors exist
-     * @throws ValidationException If restaurant with the same phonenumber already exists
      */
-    void validateRestaurant(Restaurant restaurant) throws ConstraintViolationException, ValidationException {
+    void validateRestaurant(Restaurant restaurant) throws ConstraintViolationException {
         // Create a bean validator and check for issues.
         Set<ConstraintViolation<Restaurant>> violations = validator.validate(restaurant);
 
         if (!violations.isEmpty()) {
             throw new ConstraintViolationException(new HashSet<ConstraintViolation<?>>(violations));
         }
-
-        // Check the uniqueness of the phonenumber
-        if (phonenumberAlreadyExists(restaurant.getPhonenumber(), restaurant.getId())) {
-            throw new UniquePhonenumberException("Unique Phonenumber Violation");
-        }
-    }
-
-    /**
-     * <p>Checks if a restaurant with the same phonenumber address is already registered. This is the only way to easily capture the
-     * "@UniqueConstraint(columnNames = "phonenumber")" constraint from the Restaurant class.</p>
-     *
-     * <p>Since Update will being using an phonenumber that is already in the database we need to make sure that it is the phonenumber
-     * from the record being updated.</p>
-     *
-     * @param phonenumber The phonenumber to check is unique
-     * @param id The user id to check the phonenumber against if it was found
-     * @return boolean which represents whether the phonenumber was found, and if so if it belongs to the user with id
-     */
-    boolean phonenumberAlreadyExists(String phonenumber, Long id) {
-        Restaurant restaurant = null;
-        Restaurant restaurantWithID = null;
-        try {
-            restaurant = crud.findByPhonenumber(phonenumber);
-        } catch (NoResultException e) {
-            // ignore
-        }
-
-        if (restaurant != null && id != null) {
-            try {
-                restaurantWithID = crud.findById(id);
-                if (restaurantWithID != null && restaurantWithID.getName().equals(phonenumber)) {
-                    restaurant = null;
-                }
-            } catch (NoResultException e) {
-                // ignore
-            }
-        }
-        return restaurant != null;
     }
 }
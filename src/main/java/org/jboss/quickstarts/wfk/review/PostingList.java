@@ -0,0 +1,231 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+import java.util.Arrays;
+
+/**
+ * <p>The postings of one term of the {@link ReviewSearchIndex}: the documents containing the term, in increasing order,
+ * each with the positions at which the term occurs.</p>
+ *
+ * <p>Postings are held in a single growable byte array rather than as objects. Each posting is written as variable
+ * length integers (7 bits per byte, high bit set on all but the last byte): the gap from the previous document, the
+ * number of occurrences, and then the gap between successive positions. Gaps are small, so most numbers take one byte.</p>
+ *
+ * <p>Every {@value #SKIP_INTERVAL} postings the last document and the byte offset of the next posting are recorded, so
+ * that a {@link Cursor} can {@link Cursor#advance(int) advance} to a document by binary search instead of decoding every
+ * posting in between. Intersecting a rare term with a common one therefore costs about as much as the rare term's
+ * postings.</p>
+ *
+ * <p>Documents must be added in increasing order. Instances are not thread safe; the index guards them with its lock.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+final class PostingList {
+
+	/** Returned by a {@link Cursor} once its postings are exhausted. */
+	static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+	static final int SKIP_INTERVAL = 64;
+
+	private static final int[] NO_SKIPS = new int[0];
+
+	private byte[] bytes = new byte[16];
+	private int length;
+	private int size;
+	private int lastDoc = -1;
+
+	private int[] skipDocs = NO_SKIPS;
+	private int[] skipOffsets = NO_SKIPS;
+	private int skips;
+
+	/**
+	 * <p>Appends a posting.</p>
+	 *
+	 * @param doc The document, greater than any added before
+	 * @param positions The positions of the term in the document, in increasing order
+	 */
+	void add(int doc, int[] positions) {
+		if (doc <= lastDoc) {
+			throw new IllegalArgumentException("Document " + doc + " added after " + lastDoc);
+		}
+
+		if (size > 0 && size % SKIP_INTERVAL == 0) {
+			if (skips == skipDocs.length) {
+				skipDocs = Arrays.copyOf(skipDocs, Math.max(4, skips * 2));
+				skipOffsets = Arrays.copyOf(skipOffsets, skipDocs.length);
+			}
+			skipDocs[skips] = lastDoc;
+			skipOffsets[skips] = length;
+			skips++;
+		}
+
+		writeVarInt(doc - lastDoc);
+		writeVarInt(positions.length);
+		int previous = 0;
+		for (int position : positions) {
+			writeVarInt(position - previous);
+			previous = position;
+		}
+		lastDoc = doc;
+		size++;
+	}
+
+	/**
+	 * @return The number of documents containing the term
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return The number of bytes the postings take, not counting unused capacity
+	 */
+	int byteSize() {
+		return length + skips * 8;
+	}
+
+	Cursor cursor() {
+		return new Cursor();
+	}
+
+	private void writeVarInt(int value) {
+		if (length + 5 > bytes.length) {
+			bytes = Arrays.copyOf(bytes, bytes.length * 2);
+		}
+		while ((value & ~0x7F) != 0) {
+			bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[length++] = (byte) value;
+	}
+
+	/**
+	 * <p>Reads the postings in document order. A cursor sees the postings which existed when it was created.</p>
+	 */
+	final class Cursor {
+
+		private final int end = size;
+		private int offset;
+		private int index;
+		private int doc = -1;
+		private int freq;
+		private int positionsOffset;
+
+		/**
+		 * @return The number of documents the cursor will visit at most
+		 */
+		int size() {
+			return end;
+		}
+
+		/**
+		 * @return The current document; -1 before the first call to {@link #next()}
+		 */
+		int doc() {
+			return doc;
+		}
+
+		/**
+		 * @return The next document, or {@link #NO_MORE_DOCS}
+		 */
+		int next() {
+			if (index == end) {
+				return doc = NO_MORE_DOCS;
+			}
+			doc += readVarInt();
+			freq = readVarInt();
+			positionsOffset = offset;
+			for (int i = 0; i < freq; i++) {
+				while ((bytes[offset++] & 0x80) != 0) {
+					// Skip the rest of this position.
+				}
+			}
+			index++;
+			return doc;
+		}
+
+		/**
+		 * @param target The document wanted
+		 * @return The first document at or after the target, or {@link #NO_MORE_DOCS}
+		 */
+		int advance(int target) {
+			if (doc >= target) {
+				return doc;
+			}
+
+			// The last block whose preceding document is before the target; every posting before it can be skipped.
+			int low = 0;
+			int high = Math.min(skips, (end - 1) / SKIP_INTERVAL) - 1;
+			int found = -1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				if (skipDocs[middle] < target) {
+					found = middle;
+					low = middle + 1;
+				} else {
+					high = middle - 1;
+				}
+			}
+			if (found >= 0 && (found + 1) * SKIP_INTERVAL > index) {
+				offset = skipOffsets[found];
+				doc = skipDocs[found];
+				index = (found + 1) * SKIP_INTERVAL;
+			}
+
+			while (doc < target) {
+				next();
+			}
+			return doc;
+		}
+
+		/**
+		 * @return The number of occurrences of the term in the current document
+		 */
+		int freq() {
+			return freq;
+		}
+
+		/**
+		 * @return The positions of the term in the current document, in increasing order
+		 */
+		int[] positions() {
+			int[] positions = new int[freq];
+			int position = 0;
+			int saved = offset;
+			offset = positionsOffset;
+			for (int i = 0; i < freq; i++) {
+				position += readVarInt();
+				positions[i] = position;
+			}
+			offset = saved;
+			return positions;
+		}
+
+		private int readVarInt() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = bytes[offset++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+	}
+}
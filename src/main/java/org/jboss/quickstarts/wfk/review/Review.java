@@ -21,14 +21,19 @@ import org.jboss.quickstarts.wfk.user.User;
 
 import java.io.Serializable;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.ForeignKey;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.QueryHint;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.Max;
@@ -52,14 +57,47 @@ import io.swagger.annotations.ApiModelProperty;
  * form of query in JPA though is it more error prone due to the syntax being in a String.  This makes it harder to debug.
  */
 @Entity
+@Cacheable
 @NamedQueries({
-		@NamedQuery(name = Review.FIND_ALL, query = "SELECT c FROM Review c"),
-		@NamedQuery(name = Review.FIND_BY_RESTAURANT_ID_AND_USER_ID, query =
-				"SELECT c FROM Review c WHERE c.restaurant.id = :restaurantId and c" + ".user.id = :userId"),
-		@NamedQuery(name = Review.FIND_ALL_BY_USER_ID, query = "SELECT c FROM Review c WHERE c.user.id = :userId"),
-		@NamedQuery(name = Review.FIND_ALL_BY_RESTAURANT_ID, query = "SELECT c FROM Review c WHERE c.restaurant.id = :restaurantId")})
+		@NamedQuery(name = Review.FIND_ALL, query = "SELECT c FROM Review c JOIN FETCH c.user JOIN FETCH c.restaurant ORDER BY c.id",
+				hints = @QueryHint(name = "org.hibernate.readOnly", value = "true")),
+		@NamedQuery(name = Review.FIND_BY_RESTAURANT_ID_AND_USER_ID, query = "SELECT c FROM Review c JOIN FETCH c.user"
+				+ " JOIN FETCH c.restaurant WHERE c.restaurant.id = :restaurantId and c.user.id = :userId"),
+		@NamedQuery(name = Review.FIND_ALL_BY_USER_ID, query = "SELECT c FROM Review c JOIN FETCH c.user JOIN FETCH c.restaurant"
+				+ " WHERE c.user.id = :userId ORDER BY c.id",
+				hints = {@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+						@QueryHint(name = "org.hibernate.readOnly", value = "true")}),
+		@NamedQuery(name = Review.FIND_ALL_BY_RESTAURANT_ID, query = "SELECT c FROM Review c JOIN FETCH c.user"
+				+ " JOIN FETCH c.restaurant WHERE c.restaurant.id = :restaurantId"),
+		@NamedQuery(name = Review.FIND_ALL_VIEWS, query = "SELECT NEW " + Review.VIEW
+				+ " FROM Review c JOIN c.user u JOIN c.restaurant r ORDER BY c.id"),
+		@NamedQuery(name = Review.FIND_VIEWS_BY_USER_ID, query = "SELECT NEW " + Review.VIEW
+				+ " FROM Review c JOIN c.user u JOIN c.restaurant r WHERE u.id = :userId ORDER BY c.id"),
+		@NamedQuery(name = Review.FIND_VIEWS_BY_IDS, query = "SELECT NEW " + Review.VIEW
+				+ " FROM Review c JOIN c.user u JOIN c.restaurant r WHERE c.id IN :ids"),
+		@NamedQuery(name = Review.FIND_TEXTS, query = "SELECT c.id, c.restaurant.id, c.review FROM Review c WHERE c.id > :id"
+				+ " ORDER BY c.id"),
+		@NamedQuery(name = Review.FIND_PAGE_BY_RATING, query = "SELECT NEW " + Review.VIEW
+				+ " FROM Review c JOIN c.user u JOIN c.restaurant r WHERE c.restaurant.id = :restaurantId"
+				+ " ORDER BY c.rating DESC, c.id DESC"),
+		@NamedQuery(name = Review.FIND_PAGE_BY_RATING_AFTER, query = "SELECT NEW " + Review.VIEW
+				+ " FROM Review c JOIN c.user u JOIN c.restaurant r WHERE c.restaurant.id = :restaurantId"
+				+ " AND (c.rating < :rating OR (c.rating = :rating AND c.id < :id)) ORDER BY c.rating DESC, c.id DESC"),
+		@NamedQuery(name = Review.FIND_PAGE_BY_ID, query = "SELECT NEW " + Review.VIEW
+				+ " FROM Review c JOIN c.user u JOIN c.restaurant r WHERE c.restaurant.id = :restaurantId ORDER BY c.id DESC"),
+		@NamedQuery(name = Review.FIND_PAGE_BY_ID_AFTER, query = "SELECT NEW " + Review.VIEW
+				+ " FROM Review c JOIN c.user u JOIN c.restaurant r WHERE c.restaurant.id = :restaurantId AND c.id < :id"
+				+ " ORDER BY c.id DESC"),
+		@NamedQuery(name = Review.FIND_EXISTING_PAIRS, query = "SELECT c.user.id, c.restaurant.id FROM Review c"
+				+ " WHERE c.user.id IN :userIds AND c.restaurant.id IN :restaurantIds"),
+		@NamedQuery(name = Review.COUNT_RATINGS, query =
+				"SELECT c.restaurant.id, c.rating, COUNT(c) FROM Review c GROUP BY c.restaurant.id, c.rating"),
+		@NamedQuery(name = Review.COUNT_RATINGS_BY_RESTAURANT_ID, query =
+				"SELECT c.rating, COUNT(c) FROM Review c WHERE c.restaurant.id = :restaurantId GROUP BY c.rating")})
 @XmlRootElement
-@Table(name = "review", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "restaurant_id"}))
+@Table(name = "review", uniqueConstraints = @UniqueConstraint(name = Review.USER_RESTAURANT_CONSTRAINT, columnNames = {"user_id", "restaurant_id"}),
+		indexes = {@Index(name = "review_restaurant_rating_idx", columnList = "restaurant_id, rating DESC, id DESC"),
+				@Index(name = "review_restaurant_id_idx", columnList = "restaurant_id, id DESC")})
 public class Review implements Serializable {
 
 	/** Default value included to remove warning. Remove or modify at will. **/
@@ -69,9 +107,28 @@ public class Review implements Serializable {
 	public static final String FIND_BY_RESTAURANT_ID_AND_USER_ID = "Review.findByRestaurantIdAndUserId";
 	public static final String FIND_ALL_BY_USER_ID = "Review.findbyUserId";
 	public static final String FIND_ALL_BY_RESTAURANT_ID = "Review.findbyRestaurantId";
-
+	public static final String FIND_ALL_VIEWS = "Review.findAllViews";
+	public static final String FIND_VIEWS_BY_USER_ID = "Review.findViewsByUserId";
+	public static final String FIND_VIEWS_BY_IDS = "Review.findViewsByIds";
+	public static final String FIND_TEXTS = "Review.findTexts";
+	public static final String FIND_PAGE_BY_RATING = "Review.findPageByRating";
+	public static final String FIND_PAGE_BY_RATING_AFTER = "Review.findPageByRatingAfter";
+	public static final String FIND_PAGE_BY_ID = "Review.findPageById";
+	public static final String FIND_PAGE_BY_ID_AFTER = "Review.findPageByIdAfter";
+	public static final String FIND_EXISTING_PAIRS = "Review.findExistingPairs";
+	public static final String COUNT_RATINGS = "Review.countRatings";
+	public static final String COUNT_RATINGS_BY_RESTAURANT_ID = "Review.countRatingsByRestaurantId";
+	public static final String USER_RESTAURANT_CONSTRAINT = "review_user_restaurant_uk";
+	public static final String USER_FOREIGN_KEY = "review_user_fk";
+	public static final String RESTAURANT_FOREIGN_KEY = "review_restaurant_fk";
+
+	/** Constructor expression of a {@link ReviewView}, for Review c joined to its User u and Restaurant r. */
+	static final String VIEW = "org.jboss.quickstarts.wfk.review.ReviewView(c.id, c.rating, c.review, u.id, u.name, r.id, r.name)";
+
+	// Sequence backed pooled-lo ids, as for Contact, so that inserts can be batched.
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "review_seq")
+	@SequenceGenerator(name = "review_seq", sequenceName = "review_seq", initialValue = 100000, allocationSize = 50)
 	@ApiModelProperty(readOnly = true)
 	private Long id;
 
@@ -83,11 +140,11 @@ public class Review implements Serializable {
 	private int rating;
 
 	@ManyToOne
-	@JoinColumn(name = "user_id")
+	@JoinColumn(name = "user_id", foreignKey = @ForeignKey(name = Review.USER_FOREIGN_KEY))
 	private User user;
 
 	@ManyToOne
-	@JoinColumn(name = "restaurant_id")
+	@JoinColumn(name = "restaurant_id", foreignKey = @ForeignKey(name = Review.RESTAURANT_FOREIGN_KEY))
 	private Restaurant restaurant;
 
 	// @ApiModelProperty(hidden = true)
@@ -162,7 +219,8 @@ public class Review implements Serializable {
 
 	@Override
 	public String toString() {
-		return "Review{" + "id=" + id + ", review='" + review + '\'' + ", rating=" + rating + ", user=" + user + ", restaurant=" +
-				restaurant + '}';
+		// Only the ids of the User and Restaurant, so that printing a Review does not print (or load) their graphs.
+		return "Review{" + "id=" + id + ", review='" + review + '\'' + ", rating=" + rating + ", user=" +
+				(user == null ? null : user.getId()) + ", restaurant=" + (restaurant == null ? null : restaurant.getId()) + '}';
 	}
 }
@@ -0,0 +1,162 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.JsonRecordReader;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.RestServiceException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.ws.rs.core.Response;
+
+/**
+ * <p>Streams a bulk Review upload into the database, writing the result of every record as it goes.</p>
+ *
+ * <p>Records are read one at a time with a {@link JsonRecordReader} and collected into chunks of
+ * <code>review.batch.chunkSize</code>. Each chunk is written by {@link ReviewService#importChunk(List)} in its own
+ * transaction, after which its results are appended to the JSON array of results, flushed to the client and the chunk is
+ * dropped. Neither the upload nor the report is ever held in memory as a whole.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ReviewService#importChunk(List)
+ */
+public class ReviewBatchImporter {
+
+	@Inject
+	private Log log;
+
+	@Inject
+	private ApplicationConfig config;
+
+	@Inject
+	private ReviewService service;
+
+	/**
+	 * <p>Imports every record of the upload and writes a JSON array with one result per record, in upload order.</p>
+	 *
+	 * <p>If the upload stops being valid JSON the records read so far are imported and the array ends with one more
+	 * result, reporting the line at which reading failed.</p>
+	 *
+	 * @param in The upload, as a JSON array or NDJSON
+	 * @param out The stream the results are written to
+	 * @param mapper The ObjectMapper used to read the Reviews and write the results
+	 * @throws IOException If either stream fails
+	 */
+	void importAll(InputStream in, OutputStream out, ObjectMapper mapper) throws IOException {
+		int chunkSize = config.getInt("review.batch.chunkSize", 500);
+
+		try (JsonRecordReader reader = new JsonRecordReader(mapper, in);
+			 JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+			generator.writeStartArray();
+
+			List<Review> reviews = new ArrayList<>(chunkSize);
+			List<ReviewImportResult> results = new ArrayList<>(chunkSize);
+			int index = 0;
+			int created = 0;
+
+			while (true) {
+				JsonNode node;
+				try {
+					node = reader.next();
+				} catch (JsonProcessingException e) {
+					// The rest of the upload can not be read, so report the problem and stop after the records read so far.
+					created += writeChunk(generator, reviews, results, index - results.size());
+					generator.writeObject(ReviewImportResult.failed(new RestServiceException(
+							"Malformed JSON at line " + reader.getLineNumber(), Response.Status.BAD_REQUEST, e)));
+					break;
+				}
+				if (node == null) {
+					created += writeChunk(generator, reviews, results, index - results.size());
+					break;
+				}
+
+				try {
+					reviews.add(mapper.treeToValue(node, Review.class));
+					results.add(null);
+				} catch (JsonProcessingException e) {
+					results.add(ReviewImportResult.failed(new RestServiceException(
+							"The record could not be read as a Review", Response.Status.BAD_REQUEST, e)));
+				}
+				index++;
+
+				if (results.size() == chunkSize) {
+					created += writeChunk(generator, reviews, results, index - results.size());
+				}
+			}
+
+			generator.writeEndArray();
+			log.info("ReviewBatchImporter.importAll() - Created {0} of {1} Reviews", created, index);
+		}
+	}
+
+	/**
+	 * <p>Imports the Reviews of one chunk, writes the results of the whole chunk and empties it.</p>
+	 *
+	 * @return The number of Reviews created
+	 */
+	private int writeChunk(JsonGenerator generator, List<Review> reviews, List<ReviewImportResult> results,
+						   int firstIndex) throws IOException {
+		if (results.isEmpty()) {
+			return 0;
+		}
+
+		List<ReviewImportResult> imported;
+		if (reviews.isEmpty()) {
+			imported = Collections.emptyList();
+		} else {
+			try {
+				imported = service.importChunk(reviews);
+			} catch (Exception e) {
+				// The whole chunk has been rolled back.
+				log.warning("ReviewBatchImporter.writeChunk() - Chunk starting at {0} failed: {1}", firstIndex, e);
+				ReviewImportResult failure = ReviewImportResult.failed(ReviewRestService.toRestServiceException(e));
+				imported = Collections.nCopies(reviews.size(), failure);
+			}
+		}
+
+		int created = 0;
+		Iterator<ReviewImportResult> importedResults = imported.iterator();
+		for (ReviewImportResult result : results) {
+			if (result == null) {
+				result = importedResults.next();
+			}
+			if (result.getStatus() == Response.Status.CREATED.getStatusCode()) {
+				created++;
+			}
+			generator.writeObject(result);
+		}
+		generator.flush();
+
+		reviews.clear();
+		results.clear();
+		return created;
+	}
+}
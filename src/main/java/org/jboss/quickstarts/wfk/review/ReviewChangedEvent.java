@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+/**
+ * <p>CDI event fired by {@link ReviewService} (and by the User service for the Reviews of a deleted User) whenever a Review
+ * is created or deleted.</p>
+ *
+ * <p>It carries a copy of the fields observers are interested in rather than the entity itself, so that observers which
+ * run after the transaction has completed never touch a managed or lazily loaded object.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ReviewSearchIndex
+ */
+public class ReviewChangedEvent {
+
+	public enum Type { CREATED, DELETED }
+
+	private final Type type;
+	private final Long id;
+	private final Long restaurantId;
+	private final String review;
+
+	public ReviewChangedEvent(Type type, Review review) {
+		this.type = type;
+		this.id = review.getId();
+		this.restaurantId = review.getRestaurant() == null ? null : review.getRestaurant().getId();
+		this.review = review.getReview();
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Long getRestaurantId() {
+		return restaurantId;
+	}
+
+	public String getReview() {
+		return review;
+	}
+}
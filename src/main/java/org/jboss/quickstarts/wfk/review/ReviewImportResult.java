@@ -0,0 +1,73 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import org.jboss.quickstarts.wfk.util.RestServiceException;
+
+import java.util.Map;
+
+/**
+ * <p>The outcome of importing one record of a bulk Review upload.</p>
+ *
+ * <p>The status mirrors the response {@link ReviewRestService#createReview(Review)} would have given for the same record:
+ * 201 with the new id, or the error status with the same message and reasons. The results are written as a JSON array in
+ * upload order, so a result's position in the array is the position of its record in the upload.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ReviewBatchImporter
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReviewImportResult {
+
+	private int status;
+	private Long id;
+	private String error;
+	private Map<String, String> reasons;
+
+	static ReviewImportResult created(Review review) {
+		ReviewImportResult result = new ReviewImportResult();
+		result.status = 201;
+		result.id = review.getId();
+		return result;
+	}
+
+	static ReviewImportResult failed(RestServiceException e) {
+		ReviewImportResult result = new ReviewImportResult();
+		result.status = e.getStatus().getStatusCode();
+		result.error = e.getMessage();
+		result.reasons = e.getReasons().isEmpty() ? null : e.getReasons();
+		return result;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public Map<String, String> getReasons() {
+		return reasons;
+	}
+}
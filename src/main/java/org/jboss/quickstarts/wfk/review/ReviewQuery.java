@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>A parsed review search query.</p>
+ *
+ * <p>Words are ANDed together by default, and <code>OR</code> (in capitals) separates alternatives, binding more loosely
+ * than AND: <code>pizza crust OR pasta</code> finds reviews with both pizza and crust, or with pasta. Text in double
+ * quotes is a phrase, whose words must appear next to each other in that order, as must the parts of a word such as
+ * "don't" which {@link ReviewTerms} splits in two. <code>AND</code> in capitals is accepted and ignored.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ReviewSearchIndex
+ */
+final class ReviewQuery {
+
+	/** The most phrases (including single words) a query may hold, to bound the work a single search can cause. */
+	static final int MAX_PHRASES = 16;
+
+	private final List<List<List<String>>> alternatives;
+
+	private ReviewQuery(List<List<List<String>>> alternatives) {
+		this.alternatives = alternatives;
+	}
+
+	/**
+	 * @param text The query as typed
+	 * @return The parsed query
+	 * @throws IllegalArgumentException If the query holds no words, or too many
+	 */
+	static ReviewQuery parse(String text) {
+		List<List<List<String>>> alternatives = new ArrayList<>();
+		List<List<String>> phrases = new ArrayList<>();
+		int count = 0;
+
+		int i = 0;
+		int length = text == null ? 0 : text.length();
+		while (i < length) {
+			char c = text.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+				continue;
+			}
+
+			String part;
+			boolean quoted = c == '"';
+			if (quoted) {
+				int close = text.indexOf('"', i + 1);
+				int end = close < 0 ? length : close;
+				part = text.substring(i + 1, end);
+				i = end + 1;
+			} else {
+				int end = i;
+				while (end < length && !Character.isWhitespace(text.charAt(end)) && text.charAt(end) != '"') {
+					end++;
+				}
+				part = text.substring(i, end);
+				i = end;
+			}
+
+			if (!quoted && part.equals("OR")) {
+				if (!phrases.isEmpty()) {
+					alternatives.add(phrases);
+					phrases = new ArrayList<>();
+				}
+				continue;
+			}
+			if (!quoted && part.equals("AND")) {
+				continue;
+			}
+
+			List<String> phrase = ReviewTerms.tokenize(part);
+			if (!phrase.isEmpty()) {
+				if (++count > MAX_PHRASES) {
+					throw new IllegalArgumentException("The query may hold at most " + MAX_PHRASES + " words or phrases");
+				}
+				phrases.add(phrase);
+			}
+		}
+		if (!phrases.isEmpty()) {
+			alternatives.add(phrases);
+		}
+
+		if (alternatives.isEmpty()) {
+			throw new IllegalArgumentException("The query holds no words");
+		}
+		return new ReviewQuery(alternatives);
+	}
+
+	/**
+	 * @return The alternatives of the query, any of which may match; each is a list of phrases which must all match, and
+	 * each phrase is a list of one or more terms
+	 */
+	List<List<List<String>>> getAlternatives() {
+		return Collections.unmodifiableList(alternatives);
+	}
+}
@@ -16,13 +16,21 @@
  */
 package org.jboss.quickstarts.wfk.review;
 
+import org.jboss.quickstarts.wfk.restaurant.Restaurant;
+import org.jboss.quickstarts.wfk.user.User;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.UniqueConstraints;
+
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.Set;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
 import javax.persistence.TypedQuery;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
@@ -41,14 +49,15 @@ import javax.validation.ValidationException;
 public class ReviewRepository {
 
 	@Inject
-	private @Named("logger")
-	Logger log;
+	private Log log;
 
 	@Inject
 	private EntityManager em;
 
 	/**
-	 * <p>Returns a List of all persisted {@link Review} objects, sorted alphabetically by phonenumber.</p>
+	 * <p>Returns a List of all persisted {@link Review} objects, sorted by id.</p>
+	 *
+	 * <p>The User and Restaurant of each Review are fetched in the same statement, and the Reviews are loaded read-only.</p>
 	 *
 	 * @return List of Review objects
 	 */
@@ -96,6 +105,86 @@ public class ReviewRepository {
 	}
 
 
+	/**
+	 * <p>Returns a {@link ReviewView} of every Review, sorted by id, with a single statement.</p>
+	 *
+	 * @return List of ReviewView objects
+	 */
+	List<ReviewView> findAllViews() {
+		return em.createNamedQuery(Review.FIND_ALL_VIEWS, ReviewView.class).getResultList();
+	}
+
+	/**
+	 * <p>Returns a {@link ReviewView} of every Review by a User, sorted by id, with a single statement.</p>
+	 *
+	 * @param userId The id of the User
+	 * @return List of ReviewView objects
+	 */
+	List<ReviewView> findViewsByUserId(Long userId) {
+		return em.createNamedQuery(Review.FIND_VIEWS_BY_USER_ID, ReviewView.class)
+				.setParameter("userId", userId)
+				.getResultList();
+	}
+
+	/**
+	 * <p>Returns a {@link ReviewView} of each of the given Reviews which exists, in no particular order, with a single
+	 * statement.</p>
+	 *
+	 * @param ids The ids of the Reviews
+	 * @return List of ReviewView objects
+	 */
+	List<ReviewView> findViewsByIds(Collection<Long> ids) {
+		return em.createNamedQuery(Review.FIND_VIEWS_BY_IDS, ReviewView.class)
+				.setParameter("ids", ids)
+				.getResultList();
+	}
+
+	/**
+	 * <p>Returns the id, Restaurant id and text of up to <code>max</code> Reviews with an id greater than the given one,
+	 * sorted by id. Used to read the whole table a page at a time.</p>
+	 *
+	 * @param afterId The id to start after
+	 * @param max The maximum number of rows to return
+	 * @return One (id, restaurantId, review) row per Review
+	 */
+	List<Object[]> findTexts(long afterId, int max) {
+		return em.createNamedQuery(Review.FIND_TEXTS, Object[].class)
+				.setParameter("id", afterId)
+				.setMaxResults(max)
+				.getResultList();
+	}
+
+	/**
+	 * <p>Returns up to <code>max</code> {@link ReviewView}s of a Restaurant's Reviews in the given order, starting after
+	 * the Review with the given key, or from the start if the key is null.</p>
+	 *
+	 * <p>The queries seek along the review_restaurant_rating_idx or review_restaurant_id_idx index, so a page costs the
+	 * same however many Reviews the Restaurant has and however deep into them the key is.</p>
+	 *
+	 * @param restaurantId The id of the Restaurant
+	 * @param sort The order of the Reviews
+	 * @param rating The rating of the last Review already returned; only used for {@link ReviewSort#RATING}
+	 * @param id The id of the last Review already returned, or null for the first page
+	 * @param max The maximum number of Reviews to return
+	 * @return The next Reviews in the given order
+	 */
+	List<ReviewView> findPageByRestaurantId(Long restaurantId, ReviewSort sort, Integer rating, Long id, int max) {
+		TypedQuery<ReviewView> query;
+		if (sort == ReviewSort.RATING) {
+			query = id == null ? em.createNamedQuery(Review.FIND_PAGE_BY_RATING, ReviewView.class)
+					: em.createNamedQuery(Review.FIND_PAGE_BY_RATING_AFTER, ReviewView.class)
+							.setParameter("rating", rating)
+							.setParameter("id", id);
+		} else {
+			query = id == null ? em.createNamedQuery(Review.FIND_PAGE_BY_ID, ReviewView.class)
+					: em.createNamedQuery(Review.FIND_PAGE_BY_ID_AFTER, ReviewView.class)
+							.setParameter("id", id);
+		}
+		return query.setParameter("restaurantId", restaurantId)
+				.setMaxResults(max)
+				.getResultList();
+	}
+
 	/**
 	 * <p>Persists the provided Review object to the application database using the EntityManager.</p>
 	 *
@@ -104,19 +193,118 @@ public class ReviewRepository {
 	 *
 	 * <p>persist(Object) will set the @GeneratedValue @Id for an object.</p>
 	 *
-	 * @param review The Review object to be persisted
+	 * <p>The User and Restaurant are not loaded: the Review is written with references to them, and the database's
+	 * foreign keys check that they exist. The insert is flushed straight away so that the database can enforce those and
+	 * the one review per user and restaurant constraint here, rather than at commit. So a Review costs a single INSERT.</p>
+	 *
+	 * <p>The written Review is then detached and given back the User and Restaurant it was submitted with, so that
+	 * returning it does not touch the uninitialised references.</p>
+	 *
+	 * @param review The Review object to be persisted; only the ids of its User and Restaurant are used
 	 * @return The Review object that has been persisted
+	 * @throws UniqueResturantOnReviewDateException If the user has already reviewed the restaurant
+	 * @throws UnknownUserOrRestaurantException If the User or Restaurant does not exist
 	 * @throws ConstraintViolationException, ValidationException, Exception
 	 */
 	Review create(Review review) throws ConstraintViolationException, ValidationException, Exception {
-		log.info("ReviewRepository.create() - Creating " + review.getUser().getId() + " " + review.getRestaurant().getId());
+		log.info("ReviewRepository.create() - Creating {0} {1}", review.getUser().getId(), review.getRestaurant().getId());
+
+		User user = review.getUser();
+		Restaurant restaurant = review.getRestaurant();
+		review.setUser(em.getReference(User.class, user.getId()));
+		review.setRestaurant(em.getReference(Restaurant.class, restaurant.getId()));
 
 		// Write the review to the database.
 		em.persist(review);
+		try {
+			em.flush();
+		} catch (PersistenceException e) {
+			if (UniqueConstraints.isViolated(e, Review.USER_RESTAURANT_CONSTRAINT)) {
+				throw new UniqueResturantOnReviewDateException("Unique Restaurant with ReviewDate Violation", e);
+			}
+			if (UniqueConstraints.isViolated(e, Review.USER_FOREIGN_KEY)) {
+				throw new UnknownUserOrRestaurantException("user", "UserId is incorrect", e);
+			}
+			if (UniqueConstraints.isViolated(e, Review.RESTAURANT_FOREIGN_KEY)) {
+				throw new UnknownUserOrRestaurantException("restaurant", "RestaurantId is incorrect", e);
+			}
+			throw e;
+		}
 
+		em.detach(review);
+		review.setUser(user);
+		review.setRestaurant(restaurant);
 		return review;
 	}
 
+	/**
+	 * <p>Returns those of the given User ids which exist, with a single query.</p>
+	 *
+	 * @param ids The User ids to look for
+	 * @return The ids of the Users which exist
+	 */
+	Set<Long> findExistingUserIds(Collection<Long> ids) {
+		return new HashSet<>(em.createNamedQuery(User.FIND_EXISTING_IDS, Long.class).setParameter("ids", ids).getResultList());
+	}
+
+	/**
+	 * <p>Returns those of the given Restaurant ids which exist, with a single query.</p>
+	 *
+	 * @param ids The Restaurant ids to look for
+	 * @return The ids of the Restaurants which exist
+	 */
+	Set<Long> findExistingRestaurantIds(Collection<Long> ids) {
+		return new HashSet<>(em.createNamedQuery(Restaurant.FIND_EXISTING_IDS, Long.class).setParameter("ids", ids)
+				.getResultList());
+	}
+
+	/**
+	 * <p>Returns the (userId, restaurantId) pair of every Review by one of the Users of one of the Restaurants, with a
+	 * single query. This may include pairs which were not asked about, which does no harm when checking for duplicates.</p>
+	 *
+	 * @param userIds The User ids
+	 * @param restaurantIds The Restaurant ids
+	 * @return One (userId, restaurantId) row per existing Review
+	 */
+	List<Object[]> findExistingPairs(Collection<Long> userIds, Collection<Long> restaurantIds) {
+		return em.createNamedQuery(Review.FIND_EXISTING_PAIRS, Object[].class)
+				.setParameter("userIds", userIds)
+				.setParameter("restaurantIds", restaurantIds)
+				.getResultList();
+	}
+
+	/**
+	 * <p>Persists all of the provided Review objects with references to their User and Restaurant, then flushes them to
+	 * the database and clears the persistence context.</p>
+	 *
+	 * <p>With <code>hibernate.jdbc.batch_size</code> set the inserts are sent to the database in JDBC batches. The Users
+	 * and Restaurants must have been checked to exist; if one has been removed meanwhile the flush fails and the whole
+	 * transaction is rolled back. As in {@link #create(Review)} the Reviews are left pointing at the submitted User and
+	 * Restaurant rather than at uninitialised references.</p>
+	 *
+	 * @param reviews The Review objects to be persisted
+	 */
+	void createAll(List<Review> reviews) {
+		log.info("ReviewRepository.createAll() - Creating {0} Reviews", reviews.size());
+
+		List<User> users = new ArrayList<>(reviews.size());
+		List<Restaurant> restaurants = new ArrayList<>(reviews.size());
+		for (Review review : reviews) {
+			users.add(review.getUser());
+			restaurants.add(review.getRestaurant());
+			review.setUser(em.getReference(User.class, review.getUser().getId()));
+			review.setRestaurant(em.getReference(Restaurant.class, review.getRestaurant().getId()));
+			em.persist(review);
+		}
+		em.flush();
+		em.clear();
+
+		for (int i = 0; i < reviews.size(); i++) {
+			reviews.get(i).setUser(users.get(i));
+			reviews.get(i).setRestaurant(restaurants.get(i));
+		}
+	}
+
 	/**
 	 * <p>Deletes the provided Review object from the application database if found there</p>
 	 *
@@ -125,7 +313,7 @@ public class ReviewRepository {
 	 * @throws Exception
 	 */
 	Review delete(Review review) throws Exception {
-		log.info("ReviewRepository.delete() - Deleting " + review.getUser().getId() + " " + review.getRestaurant().getId());
+		log.info("ReviewRepository.delete() - Deleting {0} {1}", review.getUser().getId(), review.getRestaurant().getId());
 
 		if (review.getId() != null) {
 			/*
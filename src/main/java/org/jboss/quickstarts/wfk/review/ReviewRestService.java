@@ -16,21 +16,22 @@
  */
 package org.jboss.quickstarts.wfk.review;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.jboss.quickstarts.wfk.area.InvalidAreaCodeException;
-import org.jboss.quickstarts.wfk.restaurant.Restaurant;
-import org.jboss.quickstarts.wfk.user.User;
-import org.jboss.quickstarts.wfk.user.UserService;
-import org.jboss.quickstarts.wfk.restaurant.RestaurantService;
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.Log;
 import org.jboss.quickstarts.wfk.util.RestServiceException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Logger;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.ws.rs.Consumes;
@@ -42,8 +43,11 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.Providers;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -76,26 +80,50 @@ import io.swagger.annotations.ApiResponses;
 public class ReviewRestService {
 
 	@Inject
-	private @Named("logger")
-	Logger log;
+	private Log log;
 
 	@Inject
 	private ReviewService service;
 
 	@Inject
-	private UserService userService;
+	private ReviewBatchImporter importer;
+
+	@Inject
+	private ReviewSearchIndex searchIndex;
 
 	@Inject
-	private RestaurantService restaurantService;
+	private ApplicationConfig config;
 
 
 	/**
-	 * <p>Return all the Reviews.  They are sorted chronologically by reviewDate.</p>
+	 * <p>Return a summary of all the Reviews, sorted by id: each Review with the id and name of its User and
+	 * Restaurant. Both this and {@link #retrieveAllReviewsByUserId(Long)} read the listing with a single query; the
+	 * difference is that this one selects only those columns into {@link ReviewView}s, rather than loading managed Reviews
+	 * with their full User and Restaurant.</p>
 	 *
 	 * <p>The url may optionally include query parameters specifying a Review's userId</p>
 	 *
 	 * <p>Examples: <pre>GET api/reviews?userId=1</pre></p>
 	 *
+	 * @return A Response containing a list of ReviewViews
+	 */
+	@GET
+	@ApiOperation(value = "Fetch a summary of all Reviews", notes = "Returns a JSON array of Reviews with the id and name of "
+			+ "their User and Restaurant.")
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Review list found")})
+	public Response retrieveReviewViews(
+			@ApiParam(value = "The userId of reviews") @QueryParam("userId") Long userId) {
+		return Response.ok(service.findViews(userId)).build();
+	}
+
+	/**
+	 * <p>Return all the Reviews with their full User and Restaurant.  They are sorted by id.</p>
+	 *
+	 * <p>The url may optionally include query parameters specifying a Review's userId</p>
+	 *
+	 * <p>Examples: <pre>GET api/reviews/getByUserId?userId=1</pre></p>
+	 *
 	 * @return A Response containing a list of Reviews
 	 */
 	@GET
@@ -116,6 +144,67 @@ public class ReviewRestService {
 		return Response.ok(reviews).build();
 	}
 
+	/**
+	 * <p>Return the Reviews whose text matches a query, best match first, each with the id and name of its User and
+	 * Restaurant.</p>
+	 *
+	 * <p>Words must all appear in a Review, in any order and ignoring case and accents. Text in double quotes must appear
+	 * as a phrase, and OR separates alternatives (see {@link ReviewQuery}). Matches are ranked by TF-IDF, so rarer words
+	 * and words repeated in a Review count for more. The Reviews are found by the in-memory {@link ReviewSearchIndex}
+	 * without scanning the review table; while it is built after a restart the response is 503 (Service Unavailable).</p>
+	 *
+	 * <p>Examples: <pre>GET api/reviews/search?q=crispy crust</pre>,
+	 * <pre>GET api/reviews/search?q="wood fired" OR sourdough&amp;restaurantId=1&amp;limit=5</pre></p>
+	 *
+	 * @param q The query
+	 * @param restaurantId The id of the Restaurant whose Reviews to search, or null for all
+	 * @param limit The maximum number of Reviews to return
+	 * @return A Response containing a list of ReviewViews
+	 */
+	@GET
+	@Path("/search")
+	@ApiOperation(value = "Search the text of Reviews",
+			notes = "Returns a JSON array of the best matching Reviews with the id and name of their User and Restaurant.")
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Matching Reviews found"),
+			@ApiResponse(code = 400, message = "Invalid query or limit supplied"),
+			@ApiResponse(code = 503, message = "The search index is still being built")})
+	public Response searchReviews(
+			@ApiParam(value = "Words to search for; \"quoted phrase\" and OR are supported", required = true)
+			@QueryParam("q")
+			String q,
+			@ApiParam(value = "Only search the Reviews of this Restaurant")
+			@QueryParam("restaurantId")
+			Long restaurantId,
+			@ApiParam(value = "Maximum number of Reviews to return", allowableValues = "range[1, infinity]")
+			@QueryParam("limit")
+			Integer limit) {
+
+		ReviewQuery query;
+		try {
+			query = ReviewQuery.parse(q);
+		} catch (IllegalArgumentException e) {
+			Map<String, String> responseObj = new HashMap<>();
+			responseObj.put("q", e.getMessage());
+			throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
+		}
+
+		int maxLimit = config.getInt("review.search.maxLimit", 100);
+		int size = limit == null ? config.getInt("review.search.defaultLimit", 20) : limit;
+		if (size < 1 || size > maxLimit) {
+			Map<String, String> responseObj = new HashMap<>();
+			responseObj.put("limit", "The limit must be between 1 and " + maxLimit);
+			throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST);
+		}
+
+		if (!searchIndex.isReady()) {
+			throw new RestServiceException("The review search index is being built, please try again later",
+					Response.Status.SERVICE_UNAVAILABLE).header("Retry-After", 10);
+		}
+
+		return Response.ok(service.search(query, restaurantId, size)).build();
+	}
+
 	/**
 	 * <p>Creates a new review from the values provided. Performs validation and will return a JAX-RS response with
 	 * either 201 (Resource created) or with a map of fields, and related errors.</p>
@@ -144,22 +233,16 @@ public class ReviewRestService {
 			throw new RestServiceException("ReviewId should be null", Response.Status.BAD_REQUEST);
 		}
 
-		Response.ResponseBuilder builder;
-		User user;
-		Restaurant restaurant;
-		try {
-			user = userService.findById(review.getUser().getId());
-			if (user == null) throw new NullPointerException();
-		} catch (Exception e) {
-			throw new RestServiceException("UserId is incorrect", Response.Status.BAD_REQUEST, e);
+		// Whether the User and Restaurant exist is checked by the database as the Review is written.
+		if (review.getUser() == null || review.getUser().getId() == null) {
+			throw new RestServiceException("UserId is incorrect", Response.Status.BAD_REQUEST);
 		}
-		try {
-			restaurant = restaurantService.findById(review.getRestaurant().getId());
-			if (restaurant == null) throw new NullPointerException();
-		} catch (Exception e) {
-			throw new RestServiceException("RestaurantId is incorrect", Response.Status.BAD_REQUEST, e);
+		if (review.getRestaurant() == null || review.getRestaurant().getId() == null) {
+			throw new RestServiceException("RestaurantId is incorrect", Response.Status.BAD_REQUEST);
 		}
 
+		Response.ResponseBuilder builder;
+
 		try {
 			// Go add the new Review.
 			service.create(review);
@@ -167,28 +250,126 @@ public class ReviewRestService {
 			// Create a "Resource Created" 201 Response and pass the review back in case it is needed.
 			builder = Response.status(Response.Status.CREATED).entity(review);
 
-		} catch (ConstraintViolationException ce) {
+		} catch (Exception e) {
+			throw toRestServiceException(e);
+		}
+
+		log.info("createReview completed. Review = {0}", review.getId());
+		return builder.build();
+	}
+
+	/**
+	 * <p>Creates many new reviews from an upload holding either a JSON array of Reviews or newline delimited JSON (one
+	 * Review per line).</p>
+	 *
+	 * <p>The upload is read and written a chunk at a time, each chunk in its own transaction, so it may hold any number
+	 * of Reviews. The response is a JSON array with one entry per record, in upload order, giving either status 201 with
+	 * the new id or the error status and reasons {@link #createReview(Review)} would have returned. Records which fail do
+	 * not stop the rest.</p>
+	 *
+	 * @param body The upload
+	 * @param providers Used to find the application's configured ObjectMapper
+	 * @return A Response streaming the result of each record
+	 */
+	@POST
+	@Path("/batch")
+	@Consumes({"application/x-ndjson", MediaType.APPLICATION_JSON})
+	@ApiOperation(value = "Add many Reviews to the database",
+			notes = "Accepts a JSON array or NDJSON, and streams back a JSON array with the result of each record.")
+	@ApiResponses(value = {
+			@ApiResponse(code = 200, message = "Upload processed, see the result of each record"),
+			@ApiResponse(code = 500, message = "An unexpected error occurred whilst processing the request")})
+	public Response createReviews(
+			@ApiParam(value = "JSON array or NDJSON of Review objects to be added to the database", required = true)
+			final InputStream body,
+			@Context
+			Providers providers) {
+
+		final ObjectMapper mapper = providers.getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE)
+				.getContext(Review.class);
+
+		StreamingOutput output = new StreamingOutput() {
+			@Override
+			public void write(OutputStream out) throws IOException {
+				importer.importAll(body, out, mapper);
+			}
+		};
+		return Response.ok(output).build();
+	}
+
+	/**
+	 * <p>Deletes a review using the ID provided. If the ID is not present then nothing can be deleted.</p>
+	 *
+	 * <p>Will return a JAX-RS response with either 204 NO CONTENT or with a map of fields, and related errors.</p>
+	 *
+	 * @param id The Long parameter value provided as the id of the Review to be deleted
+	 * @return A Response indicating the outcome of the delete operation
+	 */
+	@DELETE
+	@Path("/{id:[0-9]+}")
+	@ApiOperation(value = "Delete a Review from the database")
+	@ApiResponses(value = {
+			@ApiResponse(code = 204, message = "The review has been successfully deleted"),
+			@ApiResponse(code = 400, message = "Invalid Review id supplied"),
+			@ApiResponse(code = 404, message = "Review with id not found"),
+			@ApiResponse(code = 500, message = "An unexpected error occurred whilst processing the request")})
+	public Response deleteReview(
+			@ApiParam(value = "Id of Review to be deleted", allowableValues = "range[0, infinity]", required = true) @PathParam("id") long id) {
+
+		Response.ResponseBuilder builder;
+
+		Review review = service.findById(id);
+		if (review == null) {
+			// Verify that the review exists. Return 404, if not present.
+			throw new RestServiceException("No Review with the id " + id + " was found!", Response.Status.NOT_FOUND);
+		}
+
+		try {
+			service.delete(review);
+
+			builder = Response.noContent();
+
+		} catch (Exception e) {
+			// Handle generic exceptions
+			throw new RestServiceException(e);
+		}
+		log.info("deleteReview completed. Review = {0}", review.getId());
+		return builder.build();
+	}
+
+	/**
+	 * <p>Maps the exceptions thrown while creating a Review onto the RestServiceException (and therefore the response) the
+	 * client gets.</p>
+	 *
+	 * @param e The exception thrown by the {@link ReviewService}
+	 * @return The RestServiceException to respond with
+	 */
+	static RestServiceException toRestServiceException(Exception e) {
+		if (e instanceof RestServiceException) {
+			return (RestServiceException) e;
+
+		} else if (e instanceof ConstraintViolationException) {
 			//Handle bean validation issues
 			Map<String, String> responseObj = new HashMap<>();
 
-			for (ConstraintViolation<?> violation : ce.getConstraintViolations()) {
+			for (ConstraintViolation<?> violation : ((ConstraintViolationException) e).getConstraintViolations()) {
 				responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
 			}
-			throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
+			return new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
 
-		} catch (UniqueResturantOnReviewDateException e) {
+		} else if (e instanceof UnknownUserOrRestaurantException) {
+			return new RestServiceException(e.getMessage(), Response.Status.BAD_REQUEST, e);
+
+		} else if (e instanceof UniqueResturantOnReviewDateException) {
 			// Handle the unique constraint violation
 			Map<String, String> responseObj = new HashMap<>();
 			responseObj.put("Restaurant on review date",
 					"That Restaurant on the review Date is already used, please change another restaurant or " + "review date");
-			throw new RestServiceException("Bad Request", responseObj, Response.Status.CONFLICT, e);
-		} catch (Exception e) {
+			return new RestServiceException("Bad Request", responseObj, Response.Status.CONFLICT, e);
+
+		} else {
 			// Handle generic exceptions
-			throw new RestServiceException(e);
+			return new RestServiceException(e);
 		}
-
-		log.info("createReview completed. Review = " + review.toString());
-		return builder.build();
 	}
-
 }
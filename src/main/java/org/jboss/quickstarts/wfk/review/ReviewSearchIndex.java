@@ -0,0 +1,529 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+
+/**
+ * <p>In-memory inverted index over the text of every Review, used for full-text search without scanning the review
+ * table.</p>
+ *
+ * <p>Text is split into terms by {@link ReviewTerms}. Each Review gets a document number in the order it is indexed, and
+ * every term maps to a {@link PostingList} of the documents containing it, with positions for phrase queries. Each Review
+ * is also indexed under a term naming its Restaurant, which no text can produce, so that filtering by Restaurant is one
+ * more list in the intersection rather than a check of every match.</p>
+ *
+ * <p>A query (see {@link ReviewQuery}) is answered by intersecting the posting lists of each alternative, rarest term
+ * first, using their skip data to jump over documents which can not match. Matches are scored with TF-IDF, summing
+ * <code>(1 + ln tf) * ln(1 + N / df)</code> over the query terms, and only the best <code>limit</code> are kept. The
+ * cost of a query thus depends on the length of its rarest term's postings, not on the number of Reviews.</p>
+ *
+ * <p>The index is built when the application starts. Reviews are read from the database in pages of
+ * <code>review.search.buildPageSize</code>, and up to <code>review.search.buildThreads</code> pages are tokenized in
+ * parallel on the managed executor while being added in id order. It is then kept up to date from the
+ * {@link ReviewChangedEvent}s fired once Review writes commit; changes which commit while the index is being built are
+ * held back and applied once it is complete. Deleted Reviews are only marked as such, and still count towards document
+ * frequencies, until the next start.</p>
+ *
+ * <p>Searches share a read lock and changes take a write lock, which is held only for as long as adding one Review's
+ * postings takes, also while the index is being built.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ReviewQuery
+ * @see PostingList
+ */
+@ApplicationScoped
+public class ReviewSearchIndex {
+
+	/** Prefix of the term under which every Review of a Restaurant is indexed; tokenized text never holds it. */
+	private static final String RESTAURANT_TERM = "\u0000restaurant:";
+
+	private static final int[] FIRST_POSITION = {0};
+
+	private static final Comparator<PostingList.Cursor> BY_SIZE = new Comparator<PostingList.Cursor>() {
+		@Override
+		public int compare(PostingList.Cursor a, PostingList.Cursor b) {
+			return Integer.compare(a.size(), b.size());
+		}
+	};
+
+	@Inject
+	private Log log;
+
+	@Inject
+	private ApplicationConfig config;
+
+	@Inject
+	private ReviewRepository crud;
+
+	@Resource
+	private ManagedExecutorService executor;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, PostingList> postings = new HashMap<>();
+
+	private final Map<Long, Integer> docs = new HashMap<>();
+
+	private long[] reviewIds = new long[1024];
+
+	private final BitSet deleted = new BitSet();
+
+	private int docCount;
+
+	private int deletedCount;
+
+	/** Changes committed while the index is being built; null once it is built, or if building failed. */
+	private List<ReviewChangedEvent> pending = new ArrayList<>();
+
+	private volatile boolean ready;
+
+	private volatile long buildMillis;
+
+	/**
+	 * <p>Starts building the index as soon as the application has started. The build runs on the managed executor, so
+	 * the deployment does not wait for it.</p>
+	 *
+	 * @param event The (unused) payload of the application scope initialisation event
+	 */
+	void init(@Observes @Initialized(ApplicationScoped.class) Object event) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				build();
+			}
+		});
+	}
+
+	/**
+	 * <p>Applies a committed change to the index, or holds it back while the index is being built.</p>
+	 *
+	 * @param event The change to a Review
+	 */
+	void onReviewChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReviewChangedEvent event) {
+		lock.writeLock().lock();
+		try {
+			if (ready) {
+				apply(event);
+			} else if (pending != null) {
+				pending.add(event);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return Whether the index has been built and can be searched
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * <p>Finds the Reviews matching a query, best match first.</p>
+	 *
+	 * @param query The query
+	 * @param restaurantId If not null, only Reviews of this Restaurant are returned
+	 * @param limit The maximum number of Reviews to return
+	 * @return The ids of up to <code>limit</code> matching Reviews, best match first; none if the index is not ready
+	 */
+	List<Long> search(ReviewQuery query, Long restaurantId, int limit) {
+		lock.readLock().lock();
+		try {
+			int live = docCount - deletedCount;
+			if (!ready || live == 0) {
+				return Collections.emptyList();
+			}
+
+			List<List<List<String>>> alternatives = query.getAlternatives();
+			// With a single alternative every match is scored once, so it can go straight to the top hits.
+			Map<Integer, Double> merged = alternatives.size() > 1 ? new HashMap<Integer, Double>() : null;
+			PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, Hit.WORST_FIRST);
+
+			for (List<List<String>> phrases : alternatives) {
+				match(phrases, restaurantId, live, limit, top, merged);
+			}
+			if (merged != null) {
+				for (Map.Entry<Integer, Double> entry : merged.entrySet()) {
+					offer(top, limit, entry.getKey(), entry.getValue());
+				}
+			}
+
+			Hit[] hits = top.toArray(new Hit[top.size()]);
+			Arrays.sort(hits, Collections.reverseOrder(Hit.WORST_FIRST));
+			List<Long> ids = new ArrayList<>(hits.length);
+			for (Hit hit : hits) {
+				ids.add(reviewIds[hit.doc]);
+			}
+			return ids;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return The size of the index and how long it took to build
+	 */
+	public Map<String, Object> getStatistics() {
+		lock.readLock().lock();
+		try {
+			long bytes = 0;
+			for (PostingList list : postings.values()) {
+				bytes += list.byteSize();
+			}
+
+			Map<String, Object> statistics = new LinkedHashMap<>();
+			statistics.put("ready", ready);
+			statistics.put("buildMillis", buildMillis);
+			statistics.put("reviews", docCount - deletedCount);
+			statistics.put("deletedReviews", deletedCount);
+			statistics.put("terms", postings.size());
+			statistics.put("postingBytes", bytes);
+			return statistics;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * <p>Finds the documents matching every phrase of one alternative and scores them.</p>
+	 */
+	private void match(List<List<String>> phrases, Long restaurantId, int live, int limit, PriorityQueue<Hit> top,
+					   Map<Integer, Double> merged) {
+		Map<String, PostingList.Cursor> cursors = new HashMap<>();
+		Map<String, Double> weights = new HashMap<>();
+		for (List<String> phrase : phrases) {
+			for (String term : phrase) {
+				if (!cursors.containsKey(term)) {
+					PostingList list = postings.get(term);
+					if (list == null) {
+						return;
+					}
+					cursors.put(term, list.cursor());
+					weights.put(term, Math.log(1 + (double) live / list.size()));
+				}
+			}
+		}
+		List<PostingList.Cursor> ordered = new ArrayList<>(cursors.values());
+		if (restaurantId != null) {
+			PostingList list = postings.get(RESTAURANT_TERM + restaurantId);
+			if (list == null) {
+				return;
+			}
+			ordered.add(list.cursor());
+		}
+
+		// Lead with the rarest term; the others only ever advance to the documents it proposes.
+		Collections.sort(ordered, BY_SIZE);
+
+		PostingList.Cursor lead = ordered.get(0);
+		int doc = lead.next();
+		while (doc != PostingList.NO_MORE_DOCS) {
+			int next = doc;
+			for (int i = 1; i < ordered.size() && next == doc; i++) {
+				next = ordered.get(i).advance(doc);
+			}
+			if (next != doc) {
+				doc = lead.advance(next);
+				continue;
+			}
+
+			if (!deleted.get(doc) && phrasesMatch(phrases, cursors)) {
+				double score = 0;
+				for (Map.Entry<String, Double> weight : weights.entrySet()) {
+					score += (1 + Math.log(cursors.get(weight.getKey()).freq())) * weight.getValue();
+				}
+				if (merged == null) {
+					offer(top, limit, doc, score);
+				} else {
+					Double previous = merged.get(doc);
+					if (previous == null || previous < score) {
+						merged.put(doc, score);
+					}
+				}
+			}
+			doc = lead.next();
+		}
+	}
+
+	/**
+	 * <p>Checks that the terms of every phrase of more than one term occur one after the other in the current
+	 * document.</p>
+	 */
+	private static boolean phrasesMatch(List<List<String>> phrases, Map<String, PostingList.Cursor> cursors) {
+		for (List<String> phrase : phrases) {
+			if (phrase.size() == 1) {
+				continue;
+			}
+
+			int[][] positions = new int[phrase.size()][];
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = cursors.get(phrase.get(i)).positions();
+			}
+
+			boolean found = false;
+			for (int start : positions[0]) {
+				found = true;
+				for (int i = 1; i < positions.length && found; i++) {
+					found = Arrays.binarySearch(positions[i], start + i) >= 0;
+				}
+				if (found) {
+					break;
+				}
+			}
+			if (!found) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void offer(PriorityQueue<Hit> top, int limit, int doc, double score) {
+		Hit hit = new Hit(doc, score);
+		if (top.size() < limit) {
+			top.add(hit);
+		} else if (Hit.WORST_FIRST.compare(hit, top.peek()) > 0) {
+			top.poll();
+			top.add(hit);
+		}
+	}
+
+	/**
+	 * <p>Reads every Review and indexes it, then applies the changes held back meanwhile and opens the index for
+	 * searches.</p>
+	 */
+	private void build() {
+		long start = System.currentTimeMillis();
+		int pageSize = config.getInt("review.search.buildPageSize", 5000);
+		int threads = Math.max(1, config.getInt("review.search.buildThreads", 4));
+
+		Deque<Future<List<AnalyzedReview>>> inFlight = new ArrayDeque<>();
+		try {
+			long afterId = Long.MIN_VALUE;
+			while (true) {
+				final List<Object[]> rows = crud.findTexts(afterId, pageSize);
+				if (!rows.isEmpty()) {
+					afterId = (Long) rows.get(rows.size() - 1)[0];
+					inFlight.add(executor.submit(new Callable<List<AnalyzedReview>>() {
+						@Override
+						public List<AnalyzedReview> call() {
+							List<AnalyzedReview> page = new ArrayList<>(rows.size());
+							for (Object[] row : rows) {
+								page.add(new AnalyzedReview((Long) row[0], (Long) row[1], (String) row[2]));
+							}
+							return page;
+						}
+					}));
+				}
+				// Add pages in order, keeping up to the configured number being tokenized meanwhile.
+				while (!inFlight.isEmpty() && (inFlight.size() >= threads || rows.size() < pageSize)) {
+					addAll(inFlight.removeFirst().get());
+				}
+				if (rows.size() < pageSize) {
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failed(inFlight, e);
+			return;
+		} catch (ExecutionException | RuntimeException e) {
+			failed(inFlight, e);
+			return;
+		}
+
+		open();
+		buildMillis = System.currentTimeMillis() - start;
+		log.info("ReviewSearchIndex.build() - Indexed {0} Reviews with {1} terms in {2} ms", docCount, postings.size(),
+				buildMillis);
+	}
+
+	/**
+	 * <p>Applies the changes held back while the index was being built, and opens it for searches.</p>
+	 */
+	void open() {
+		lock.writeLock().lock();
+		try {
+			for (ReviewChangedEvent event : pending) {
+				apply(event);
+			}
+			pending = null;
+			ready = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void failed(Deque<Future<List<AnalyzedReview>>> inFlight, Exception e) {
+		for (Future<List<AnalyzedReview>> future : inFlight) {
+			future.cancel(true);
+		}
+		lock.writeLock().lock();
+		try {
+			pending = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		log.warning("ReviewSearchIndex.build() - Building the review search index failed, search is unavailable: {0}", e);
+	}
+
+	/**
+	 * <p>Adds a page of Reviews read while building, taking the write lock for each Review in turn so that committing
+	 * threads are not held up for the whole page.</p>
+	 */
+	private void addAll(List<AnalyzedReview> page) {
+		for (AnalyzedReview review : page) {
+			lock.writeLock().lock();
+			try {
+				add(review);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	private void apply(ReviewChangedEvent event) {
+		if (event.getType() == ReviewChangedEvent.Type.CREATED) {
+			add(new AnalyzedReview(event.getId(), event.getRestaurantId(), event.getReview()));
+		} else {
+			Integer doc = docs.remove(event.getId());
+			if (doc != null) {
+				deleted.set(doc);
+				deletedCount++;
+			}
+		}
+	}
+
+	/**
+	 * <p>Adds a Review as the next document, unless it is already indexed. Called with the write lock held.</p>
+	 */
+	private void add(AnalyzedReview review) {
+		if (docs.containsKey(review.id)) {
+			return;
+		}
+
+		int doc = docCount++;
+		if (doc == reviewIds.length) {
+			reviewIds = Arrays.copyOf(reviewIds, doc * 2);
+		}
+		reviewIds[doc] = review.id;
+		docs.put(review.id, doc);
+
+		for (Map.Entry<String, int[]> entry : review.positions.entrySet()) {
+			posting(entry.getKey()).add(doc, entry.getValue());
+		}
+		if (review.restaurantId != null) {
+			posting(RESTAURANT_TERM + review.restaurantId).add(doc, FIRST_POSITION);
+		}
+	}
+
+	private PostingList posting(String term) {
+		PostingList list = postings.get(term);
+		if (list == null) {
+			list = new PostingList();
+			postings.put(term, list);
+		}
+		return list;
+	}
+
+	/**
+	 * <p>A Review split into terms, with the positions of each term. Built outside the lock, in parallel when the index
+	 * is built.</p>
+	 */
+	private static final class AnalyzedReview {
+
+		private final long id;
+		private final Long restaurantId;
+		private final Map<String, int[]> positions = new LinkedHashMap<>();
+
+		AnalyzedReview(long id, Long restaurantId, String text) {
+			this.id = id;
+			this.restaurantId = restaurantId;
+
+			List<String> terms = ReviewTerms.tokenize(text);
+			Map<String, Integer> counts = new HashMap<>();
+			for (String term : terms) {
+				Integer count = counts.get(term);
+				counts.put(term, count == null ? 1 : count + 1);
+			}
+			// The counts are reused as the number of positions filled in so far.
+			for (int position = 0; position < terms.size(); position++) {
+				String term = terms.get(position);
+				int[] termPositions = positions.get(term);
+				if (termPositions == null) {
+					termPositions = new int[counts.get(term)];
+					positions.put(term, termPositions);
+					counts.put(term, 0);
+				}
+				int filled = counts.get(term);
+				termPositions[filled] = position;
+				counts.put(term, filled + 1);
+			}
+		}
+	}
+
+	/**
+	 * <p>A scored match. Ordered worst first, so that the worst of the best so far is at the head of the queue; equal
+	 * scores favour the later document, i.e. the more recently indexed Review.</p>
+	 */
+	private static final class Hit {
+
+		static final Comparator<Hit> WORST_FIRST = new Comparator<Hit>() {
+			@Override
+			public int compare(Hit a, Hit b) {
+				int result = Double.compare(a.score, b.score);
+				return result != 0 ? result : Integer.compare(a.doc, b.doc);
+			}
+		};
+
+		private final int doc;
+		private final double score;
+
+		Hit(int doc, double score) {
+			this.doc = doc;
+			this.score = score;
+		}
+	}
+}
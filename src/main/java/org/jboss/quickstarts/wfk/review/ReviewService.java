@@ -16,14 +16,30 @@
  */
 package org.jboss.quickstarts.wfk.review;
 
+import org.jboss.quickstarts.wfk.restaurant.RatingSummary;
+import org.jboss.quickstarts.wfk.restaurant.RestaurantService;
+import org.jboss.quickstarts.wfk.util.KeysetCursor;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.Page;
+import org.jboss.quickstarts.wfk.util.RestServiceException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import javax.enterprise.context.Dependent;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
-import javax.inject.Named;
+import javax.transaction.Transactional;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
+import javax.ws.rs.core.Response;
 
 /**
  * <p>This Service assumes the Control responsibility in the ECB pattern.</p>
@@ -43,8 +59,7 @@ import javax.validation.ValidationException;
 public class ReviewService {
 
 	@Inject
-	private @Named("logger")
-	Logger log;
+	private Log log;
 
 	@Inject
 	private ReviewValidator validator;
@@ -52,6 +67,15 @@ public class ReviewService {
 	@Inject
 	private ReviewRepository crud;
 
+	@Inject
+	private RestaurantService restaurantService;
+
+	@Inject
+	private ReviewSearchIndex searchIndex;
+
+	@Inject
+	private Event<ReviewChangedEvent> changes;
+
 	/**
 	 * <p>Create a new client which will be used for our outgoing REST client communication</p>
 	 */
@@ -77,22 +101,250 @@ public class ReviewService {
 		return crud.findAllByUserId(userId);
 	}
 
+	/**
+	 * <p>Returns a List of {@link ReviewView} projections of Reviews, optionally only those by one User.<p/>
+	 *
+	 * @param userId The id of the User, or null for all Reviews
+	 * @return List of ReviewView objects, sorted by id
+	 */
+	List<ReviewView> findViews(Long userId) {
+		return userId == null ? crud.findAllViews() : crud.findViewsByUserId(userId);
+	}
+
+	/**
+	 * <p>Returns one page of the Reviews of a Restaurant, as {@link ReviewView}s, in the given order.<p/>
+	 *
+	 * <p>The cursor of the next page holds the sort key of the last Review on this page: (rating, id) when sorting by
+	 * rating and (id) when sorting by id.</p>
+	 *
+	 * @param restaurantId The id of the Restaurant
+	 * @param sort The order of the Reviews
+	 * @param after The cursor returned with the previous page, or null for the first page
+	 * @param limit The maximum number of Reviews on the page
+	 * @return The page of Reviews and the cursor of the next page
+	 * @throws IllegalArgumentException If the cursor is not valid for the order
+	 */
+	public Page<ReviewView> findPageByRestaurantId(Long restaurantId, ReviewSort sort, String after, int limit)
+			throws IllegalArgumentException {
+		Integer rating = null;
+		Long id = null;
+		if (after != null) {
+			List<String> key = KeysetCursor.decode(after, sort == ReviewSort.RATING ? 2 : 1);
+			try {
+				if (sort == ReviewSort.RATING) {
+					rating = Integer.valueOf(key.get(0));
+				}
+				id = Long.valueOf(key.get(key.size() - 1));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid cursor", e);
+			}
+		}
+
+		List<ReviewView> reviews = crud.findPageByRestaurantId(restaurantId, sort, rating, id, limit + 1);
+		if (reviews.size() <= limit) {
+			return new Page<>(reviews, null);
+		}
+		List<ReviewView> items = new ArrayList<>(reviews.subList(0, limit));
+		ReviewView last = items.get(limit - 1);
+		String next = sort == ReviewSort.RATING
+				? KeysetCursor.encode(String.valueOf(last.getRating()), String.valueOf(last.getId()))
+				: KeysetCursor.encode(String.valueOf(last.getId()));
+		return new Page<>(items, next);
+	}
+
+	/**
+	 * <p>Returns a single Review object, specified by a Long id.<p/>
+	 *
+	 * @param id The id field of the Review to be returned
+	 * @return The Review with the specified id
+	 */
+	Review findById(Long id) {
+		return crud.findById(id);
+	}
+
+	/**
+	 * <p>Returns the Reviews matching a full-text query, best match first, each with the id and name of its User and
+	 * Restaurant.</p>
+	 *
+	 * <p>The matching Reviews are found by the in-memory {@link ReviewSearchIndex}; only the Reviews returned are read from
+	 * the database, with a single query.</p>
+	 *
+	 * @param query The parsed query
+	 * @param restaurantId If not null, only Reviews of this Restaurant are returned
+	 * @param limit The maximum number of Reviews to return
+	 * @return List of ReviewView objects, best match first
+	 */
+	List<ReviewView> search(ReviewQuery query, Long restaurantId, int limit) {
+		List<Long> ids = searchIndex.search(query, restaurantId, limit);
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		Map<Long, ReviewView> views = new HashMap<>();
+		for (ReviewView view : crud.findViewsByIds(ids)) {
+			views.put(view.getId(), view);
+		}
+		List<ReviewView> result = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			// A Review deleted since it was found is left out.
+			ReviewView view = views.get(id);
+			if (view != null) {
+				result.add(view);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * <p>Writes the provided Review object to the application database.<p/>
 	 *
 	 * <p>Validates the data in the provided Review object using a {@link ReviewValidator} object.<p/>
 	 *
+	 * <p>The rating is added to the rating summary of the Restaurant first, in the same transaction. That UPDATE finds no
+	 * row if the Restaurant does not exist, so it also checks the Restaurant; the User is checked by the database's
+	 * foreign key when the Review is inserted (see {@link ReviewRepository#create(Review)}).</p>
+	 *
 	 * @param review The Review object to be written to the database using a {@link ReviewRepository} object
 	 * @return The Review object that has been successfully written to the application database
 	 * @throws ConstraintViolationException, ValidationException, Exception
 	 */
 	public Review create(Review review) throws ConstraintViolationException, ValidationException, Exception {
-		log.info("ReviewService.create() - Creating " + review.getRestaurant().getId() + " " + review.getUser().getId());
+		log.info("ReviewService.create() - Creating {0} {1}", review.getRestaurant().getId(), review.getUser().getId());
 
 		// Check to make sure the data fits with the parameters in the Review model and passes validation.
 		validator.validateReview(review);
 
+		if (!restaurantService.addRating(review.getRestaurant().getId(), review.getRating())) {
+			throw new UnknownUserOrRestaurantException("restaurant", "RestaurantId is incorrect");
+		}
+
 		// Write the review to the database.
-		return crud.create(review);
+		Review createdReview = crud.create(review);
+		changes.fire(new ReviewChangedEvent(ReviewChangedEvent.Type.CREATED, createdReview));
+		return createdReview;
+	}
+
+	/**
+	 * <p>Writes one chunk of a bulk upload to the application database, in a single new transaction.</p>
+	 *
+	 * <p>Each Review gets the checks {@link ReviewRestService#createReview(Review)} and {@link #create(Review)} make, but
+	 * in bulk. A Review which already has an id is refused with 400. The referenced Users and Restaurants are
+	 * looked up with one IN query each, and the existing Reviews of those Users of those Restaurants with one more, so
+	 * that a Review which repeats an existing one, or an earlier one in the same chunk, is refused with 409 without a
+	 * round trip of its own. The accepted Reviews are then inserted in JDBC batches, and the rating summary of each
+	 * Restaurant is updated once for the whole chunk, in Restaurant id order so that concurrent imports lock the rows in
+	 * the same order.</p>
+	 *
+	 * <p>Reviews which fail a check are reported and skipped; the rest are still written. An unexpected failure rolls back
+	 * the whole chunk.</p>
+	 *
+	 * @param reviews The Reviews to be created
+	 * @return The outcome for each Review, in the same order
+	 */
+	@Transactional(value = Transactional.TxType.REQUIRES_NEW, rollbackOn = Exception.class)
+	List<ReviewImportResult> importChunk(List<Review> reviews) {
+		Set<Long> userIds = new HashSet<>();
+		Set<Long> restaurantIds = new HashSet<>();
+		for (Review review : reviews) {
+			if (review.getUser() != null && review.getUser().getId() != null) {
+				userIds.add(review.getUser().getId());
+			}
+			if (review.getRestaurant() != null && review.getRestaurant().getId() != null) {
+				restaurantIds.add(review.getRestaurant().getId());
+			}
+		}
+
+		Set<Long> existingUserIds = new HashSet<>();
+		Set<Long> existingRestaurantIds = new HashSet<>();
+		Set<List<Long>> usedPairs = new HashSet<>();
+		if (!userIds.isEmpty()) {
+			existingUserIds.addAll(crud.findExistingUserIds(userIds));
+		}
+		if (!restaurantIds.isEmpty()) {
+			existingRestaurantIds.addAll(crud.findExistingRestaurantIds(restaurantIds));
+		}
+		if (!existingUserIds.isEmpty() && !existingRestaurantIds.isEmpty()) {
+			for (Object[] pair : crud.findExistingPairs(existingUserIds, existingRestaurantIds)) {
+				usedPairs.add(Arrays.asList((Long) pair[0], (Long) pair[1]));
+			}
+		}
+
+		List<Review> accepted = new ArrayList<>(reviews.size());
+		Map<Long, long[]> histograms = new TreeMap<>();
+		ReviewImportResult[] results = new ReviewImportResult[reviews.size()];
+
+		for (int i = 0; i < reviews.size(); i++) {
+			Review review = reviews.get(i);
+			try {
+				if (review.getId() != null) {
+					throw new RestServiceException("ReviewId should be null", Response.Status.BAD_REQUEST);
+				}
+				validator.validateReview(review);
+				if (review.getUser() == null || !existingUserIds.contains(review.getUser().getId())) {
+					throw new UnknownUserOrRestaurantException("user", "UserId is incorrect");
+				}
+				if (review.getRestaurant() == null || !existingRestaurantIds.contains(review.getRestaurant().getId())) {
+					throw new UnknownUserOrRestaurantException("restaurant", "RestaurantId is incorrect");
+				}
+				// Also catches the same User reviewing the same Restaurant twice in the upload.
+				if (!usedPairs.add(Arrays.asList(review.getUser().getId(), review.getRestaurant().getId()))) {
+					throw new UniqueResturantOnReviewDateException("Unique Restaurant with ReviewDate Violation");
+				}
+				accepted.add(review);
+
+				long[] histogram = histograms.get(review.getRestaurant().getId());
+				if (histogram == null) {
+					histogram = new long[RatingSummary.MAX_RATING + 1];
+					histograms.put(review.getRestaurant().getId(), histogram);
+				}
+				histogram[review.getRating()]++;
+			} catch (Exception e) {
+				results[i] = ReviewImportResult.failed(ReviewRestService.toRestServiceException(e));
+			}
+		}
+
+		for (Map.Entry<Long, long[]> entry : histograms.entrySet()) {
+			if (!restaurantService.addRatings(entry.getKey(), entry.getValue())) {
+				// Removed since it was looked up; give up on the chunk rather than report the other Reviews as created.
+				throw new UnknownUserOrRestaurantException("restaurant", "RestaurantId is incorrect");
+			}
+		}
+		crud.createAll(accepted);
+
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] == null) {
+				results[i] = ReviewImportResult.created(reviews.get(i));
+				changes.fire(new ReviewChangedEvent(ReviewChangedEvent.Type.CREATED, reviews.get(i)));
+			}
+		}
+		log.info("ReviewService.importChunk() - Created {0} of {1} Reviews", accepted.size(), reviews.size());
+
+		List<ReviewImportResult> outcome = new ArrayList<>(results.length);
+		Collections.addAll(outcome, results);
+		return outcome;
+	}
+
+	/**
+	 * <p>Deletes the provided Review object from the application database if found there, and removes its rating from the
+	 * rating summary of the Restaurant in the same transaction.<p/>
+	 *
+	 * @param review The Review object to be removed from the application database
+	 * @return The Review object that has been successfully removed from the application database; or null
+	 * @throws Exception
+	 */
+	Review delete(Review review) throws Exception {
+		log.info("delete() - Deleting {0}", review.getId());
+
+		Review deletedReview = null;
+
+		if (review.getId() != null) {
+			deletedReview = crud.delete(review);
+			restaurantService.removeRating(review.getRestaurant().getId(), review.getRating());
+			changes.fire(new ReviewChangedEvent(ReviewChangedEvent.Type.DELETED, review));
+		} else {
+			log.info("delete() - No ID was found so can't Delete.");
+		}
+
+		return deletedReview;
 	}
 }
@@ -0,0 +1,56 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+/**
+ * <p>The orders in which the Reviews of a Restaurant can be paged through. Both are descending and end with the id, so
+ * that every Review has a unique position and a page can be resumed from the key of its last Review.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ReviewService#findPageByRestaurantId(Long, ReviewSort, String, int)
+ */
+public enum ReviewSort {
+
+	/** Highest rated first, then newest first. */
+	RATING("rating"),
+
+	/** Newest first. */
+	NEWEST("newest");
+
+	private final String parameter;
+
+	ReviewSort(String parameter) {
+		this.parameter = parameter;
+	}
+
+	public String getParameter() {
+		return parameter;
+	}
+
+	/**
+	 * @param parameter The value of a <code>sort</code> query parameter
+	 * @return The matching order, or null if there is none
+	 */
+	public static ReviewSort fromParameter(String parameter) {
+		for (ReviewSort sort : values()) {
+			if (sort.parameter.equalsIgnoreCase(parameter)) {
+				return sort;
+			}
+		}
+		return null;
+	}
+}
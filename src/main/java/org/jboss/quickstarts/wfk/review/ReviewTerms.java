@@ -0,0 +1,64 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Splits review text into the terms indexed and searched by the {@link ReviewSearchIndex}.</p>
+ *
+ * <p>Text is normalised by removing accents and lower casing, then split on everything which is not a letter or digit.
+ * So "Cr&egrave;me Br&ucirc;l&eacute;e!" gives the terms creme and brulee. No stop words are removed, because phrase
+ * queries need the position of every word; common words simply get a low weight when ranking.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+final class ReviewTerms {
+
+	/** Terms longer than this are cut short, so that a run of letters can not make a huge dictionary key. */
+	static final int MAX_TERM_LENGTH = 40;
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private ReviewTerms() {
+	}
+
+	/**
+	 * @param text The text to split; may be null
+	 * @return The terms of the text in order, with repeats; none if the text is null or holds no letters or digits
+	 */
+	static List<String> tokenize(String text) {
+		List<String> terms = new ArrayList<>();
+		if (text == null) {
+			return terms;
+		}
+
+		String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+				.toLowerCase(Locale.ROOT);
+		for (String term : SEPARATORS.split(normalized)) {
+			if (!term.isEmpty()) {
+				terms.add(term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH) : term);
+			}
+		}
+		return terms;
+	}
+}
@@ -16,15 +16,12 @@
  */
 package org.jboss.quickstarts.wfk.review;
 
-import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
 import javax.inject.Inject;
-import javax.persistence.NoResultException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
-import javax.validation.ValidationException;
 import javax.validation.Validator;
 
 /**
@@ -40,66 +37,22 @@ public class ReviewValidator {
 	@Inject
 	private Validator validator;
 
-	@Inject
-	private ReviewRepository crud;
-
 	/**
 	 * <p>Validates the given Review object and throws validation exceptions based on the type of error. If the error is standard
 	 * bean validation errors then it will throw a ConstraintValidationException with the set of the constraints violated.<p/>
 	 *
-	 *
-	 * <p>If the error is caused because an existing review with the same email is registered it throws a regular validation
-	 * exception so that it can be interpreted separately.</p>
+	 * <p>That the user has not already reviewed the restaurant is not checked here. It is enforced by the database's unique
+	 * constraint when the Review is written, see {@link ReviewRepository#create(Review)}.</p>
 	 *
 	 * @param review The Review object to be validated
 	 * @throws ConstraintViolationException If Bean Validation errors exist
-	 * @throws ValidationException          If review with the same email already exists
 	 */
-	public void validateReview(Review review) throws ConstraintViolationException, ValidationException {
+	public void validateReview(Review review) throws ConstraintViolationException {
 		// Create a bean validator and check for issues.
 		Set<ConstraintViolation<Review>> violations = validator.validate(review);
 
 		if (!violations.isEmpty()) {
 			throw new ConstraintViolationException(new HashSet<ConstraintViolation<?>>(violations));
 		}
-
-		// Check the uniqueness of the email address
-		if (restaurantWithUserIdAlreadyExists(review.getRestaurant().getId(), review.getUser().getId(), review.getId())) {
-			throw new UniqueResturantOnReviewDateException("Unique Restaurant with ReviewDate Violation");
-		}
-	}
-
-	/**
-	 * <p>Checks if a review with the same email address is already registered. This is the only way to easily capture the
-	 * "@UniqueConstraint(columnNames = "email")" constraint from the Review class.</p>
-	 *
-	 * <p>Since Update will being using an email that is already in the database we need to make sure that it is the email
-	 * from the record being updated.</p>
-	 *
-	 * @param restaurantId      The restaurantId field of the Reviews
-	 * @param userId The userId of the Reviews
-	 * @param id          The review id to check the restaurantId and reviewDate against if it was found
-	 * @return boolean which represents whether the email was found, and if so if it belongs to the user with id
-	 */
-	boolean restaurantWithUserIdAlreadyExists(Long restaurantId, Long userId, Long id) {
-		Review review = null;
-		Review reviewWithID = null;
-		try {
-			review = crud.findByRestaurantIdAndUserId(restaurantId, userId);
-		} catch (NoResultException e) {
-			// ignore
-		}
-
-		if (review != null && id != null) {
-			try {
-				reviewWithID = crud.findById(id);
-				if (reviewWithID != null && reviewWithID.getUser().getId().equals(userId) && reviewWithID.getRestaurant().getId().equals(restaurantId)) {
-					review = null;
-				}
-			} catch (NoResultException e) {
-				// ignore
-			}
-		}
-		return review != null;
 	}
 }
@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+import java.io.Serializable;
+
+/**
+ * <p>Read-only projection of a Review for listings: the Review with the id and name of its User and Restaurant instead of
+ * the full entities.</p>
+ *
+ * <p>Instances are built by the database query itself (see the <code>SELECT NEW</code> queries on {@link Review}), so a
+ * listing is a single SQL statement joining the three tables, and the results are plain objects which the persistence
+ * context neither tracks nor snapshots.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see Review#FIND_ALL_VIEWS
+ */
+public class ReviewView implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Long id;
+	private final int rating;
+	private final String review;
+	private final Long userId;
+	private final String userName;
+	private final Long restaurantId;
+	private final String restaurantName;
+
+	public ReviewView(Long id, int rating, String review, Long userId, String userName, Long restaurantId,
+			String restaurantName) {
+		this.id = id;
+		this.rating = rating;
+		this.review = review;
+		this.userId = userId;
+		this.userName = userName;
+		this.restaurantId = restaurantId;
+		this.restaurantName = restaurantName;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public int getRating() {
+		return rating;
+	}
+
+	public String getReview() {
+		return review;
+	}
+
+	public Long getUserId() {
+		return userId;
+	}
+
+	public String getUserName() {
+		return userName;
+	}
+
+	public Long getRestaurantId() {
+		return restaurantId;
+	}
+
+	public String getRestaurantName() {
+		return restaurantName;
+	}
+
+	@Override
+	public String toString() {
+		return "ReviewView{" + "id=" + id + ", rating=" + rating + ", user=" + userId + ", restaurant=" + restaurantId + '}';
+	}
+}
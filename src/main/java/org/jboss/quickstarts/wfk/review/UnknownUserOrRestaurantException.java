@@ -0,0 +1,48 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+import javax.validation.ValidationException;
+
+/**
+ * <p>ValidationException caused if a Review refers to a User or Restaurant which does not exist.</p>
+ *
+ * <p>This violates a foreign key constraint of the review table, or, for the Restaurant, is found when its rating summary
+ * can not be updated.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see Review
+ */
+public class UnknownUserOrRestaurantException extends ValidationException {
+
+    /** The property of the Review which refers to the missing entity: "user" or "restaurant". */
+    private final String property;
+
+    public UnknownUserOrRestaurantException(String property, String message) {
+        super(message);
+        this.property = property;
+    }
+
+    public UnknownUserOrRestaurantException(String property, String message, Throwable cause) {
+        super(message, cause);
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+}
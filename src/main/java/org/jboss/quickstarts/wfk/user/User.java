@@ -26,6 +26,7 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Objects;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -35,6 +36,8 @@ import javax.persistence.Id;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
+import javax.persistence.QueryHint;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
@@ -56,21 +59,28 @@ import javax.xml.bind.annotation.XmlRootElement;
  * form of query in JPA though is it more error prone due to the syntax being in a String.  This makes it harder to debug.
  */
 @Entity
+@Cacheable
 @NamedQueries({
-        @NamedQuery(name = User.FIND_ALL, query = "SELECT c FROM User c ORDER BY c.name ASC"),
-        @NamedQuery(name = User.FIND_BY_EMAIL, query = "SELECT c FROM User c WHERE c.email = :email")
+        @NamedQuery(name = User.FIND_ALL, query = "SELECT c FROM User c ORDER BY c.name ASC",
+                hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
+        @NamedQuery(name = User.FIND_BY_EMAIL, query = "SELECT c FROM User c WHERE c.email = :email"),
+        @NamedQuery(name = User.FIND_EXISTING_IDS, query = "SELECT c.id FROM User c WHERE c.id IN :ids")
 })
 @XmlRootElement
-@Table(name = "user", uniqueConstraints = @UniqueConstraint(columnNames = "email"))
+@Table(name = "user", uniqueConstraints = @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email"))
 public class User implements Serializable {
     // /** Default value included to remove warning. Remove or modify at will. **/
     // private static final long serialVersionUID = 2L;
 
     public static final String FIND_ALL = "User.findAll";
     public static final String FIND_BY_EMAIL = "User.findByEmail";
+    public static final String FIND_EXISTING_IDS = "User.findExistingIds";
+    public static final String EMAIL_CONSTRAINT = "user_email_uk";
 
+    // Sequence backed pooled-lo ids, as for Contact, so that inserts can be batched.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "user_seq", initialValue = 100000, allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -148,6 +158,6 @@ public class User implements Serializable {
 
     @Override
     public String toString() {
-        return "User{" + "id=" + id + ", name='" + name + '\'' + ", email='" + email + '\'' + ", phoneNumber='" + phonenumber;
+        return "User{" + "id=" + id + ", name='" + name + '\'' + ", email='" + email + '\'' + ", phoneNumber='" + phonenumber + '\'' + '}';
     }
 }
@@ -16,12 +16,15 @@
  */
 package org.jboss.quickstarts.wfk.user;
 
+import org.jboss.quickstarts.wfk.contact.UniqueEmailException;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.UniqueConstraints;
+
 import java.util.List;
-import java.util.logging.Logger;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -43,8 +46,7 @@ import javax.validation.ValidationException;
 public class UserRepository {
 
 	@Inject
-	private @Named("logger")
-	Logger log;
+	private Log log;
 
 	@Inject
 	private EntityManager em;
@@ -90,15 +92,27 @@ public class UserRepository {
 	 *
 	 * <p>persist(Object) will set the @GeneratedValue @Id for an object.</p>
 	 *
+	 * <p>The insert is flushed straight away so that the database can enforce the unique email constraint here, rather
+	 * than at commit.</p>
+	 *
 	 * @param user The User object to be persisted
 	 * @return The User object that has been persisted
+	 * @throws UniqueEmailException If another User already has the email address
 	 * @throws ConstraintViolationException, ValidationException, Exception
 	 */
 	User create(User user) throws ConstraintViolationException, ValidationException, Exception {
-		log.info("UserRepository.create() - Creating " + user.getName());
+		log.info("UserRepository.create() - Creating {0}", user.getName());
 
 		// Write the user to the database.
 		em.persist(user);
+		try {
+			em.flush();
+		} catch (PersistenceException e) {
+			if (UniqueConstraints.isViolated(e, User.EMAIL_CONSTRAINT)) {
+				throw new UniqueEmailException("Unique Email Violation", e);
+			}
+			throw e;
+		}
 
 		return user;
 	}
@@ -111,7 +125,7 @@ public class UserRepository {
 	 * @throws Exception
 	 */
 	User delete(User user) throws Exception {
-		log.info("UserRepository.delete() - Deleting " + user.getName());
+		log.info("UserRepository.delete() - Deleting {0}", user.getName());
 
 		if (user.getId() != null) {
 			/*
@@ -17,16 +17,15 @@
 package org.jboss.quickstarts.wfk.user;
 
 import org.jboss.quickstarts.wfk.contact.UniqueEmailException;
+import org.jboss.quickstarts.wfk.util.Log;
 import org.jboss.quickstarts.wfk.util.RestServiceException;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Logger;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.ws.rs.Consumes;
@@ -71,8 +70,7 @@ import io.swagger.annotations.ApiResponses;
 public class UserRestService {
 
 	@Inject
-	private @Named("logger")
-	Logger log;
+	private Log log;
 
 	@Inject
 	private UserService service;
@@ -150,7 +148,7 @@ public class UserRestService {
 			throw new RestServiceException(e);
 		}
 
-		log.info("createUser completed. User = " + user.toString());
+		log.info("createUser completed. User = {0}", user.getId());
 		return builder.build();
 	}
 
@@ -190,7 +188,7 @@ public class UserRestService {
 			// Handle generic exceptions
 			throw new RestServiceException(e);
 		}
-		log.info("deleteUser completed. User = " + user.toString());
+		log.info("deleteUser completed. User = {0}", user.getId());
 		return builder.build();
 	}
 }
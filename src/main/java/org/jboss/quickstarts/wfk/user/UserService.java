@@ -16,12 +16,16 @@
  */
 package org.jboss.quickstarts.wfk.user;
 
+import org.jboss.quickstarts.wfk.restaurant.RestaurantService;
+import org.jboss.quickstarts.wfk.review.Review;
+import org.jboss.quickstarts.wfk.review.ReviewChangedEvent;
+import org.jboss.quickstarts.wfk.util.Log;
+
 import java.util.List;
-import java.util.logging.Logger;
 
 import javax.enterprise.context.Dependent;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 
@@ -44,7 +48,7 @@ import javax.validation.ValidationException;
 public class UserService {
 
     @Inject
-    private @Named("logger") Logger log;
+    private Log log;
 
     @Inject
     private UserValidator validator;
@@ -52,6 +56,12 @@ public class UserService {
     @Inject
     private UserRepository crud;
 
+    @Inject
+    private RestaurantService restaurantService;
+
+    @Inject
+    private Event<ReviewChangedEvent> reviewChanges;
+
     /**
      * <p>Create a new client which will be used for our outgoing REST client communication</p>
      */
@@ -87,7 +97,7 @@ public class UserService {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     public User create(User user) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("UserService.create() - Creating " + user.getName());
+        log.info("UserService.create() - Creating {0}", user.getName());
         
         // Check to make sure the data fits with the parameters in the User model and passes validation.
         validator.validateUser(user);
@@ -99,16 +109,25 @@ public class UserService {
     /**
      * <p>Deletes the provided User object from the application database if found there.<p/>
      *
+     * <p>The User's Reviews are deleted with it, so their ratings are removed from the rating summaries of the reviewed
+     * Restaurants in the same transaction, and a {@link ReviewChangedEvent} is fired for each.</p>
+     *
      * @param user The User object to be removed from the application database
      * @return The User object that has been successfully removed from the application database; or null
      * @throws Exception
      */
     User delete(User user) throws Exception {
-        log.info("delete() - Deleting " + user.toString());
+        log.info("delete() - Deleting {0}", user.getId());
 
         User deletedUser = null;
 
         if (user.getId() != null) {
+            if (user.getReviews() != null) {
+                for (Review review : user.getReviews()) {
+                    restaurantService.removeRating(review.getRestaurant().getId(), review.getRating());
+                    reviewChanges.fire(new ReviewChangedEvent(ReviewChangedEvent.Type.DELETED, review));
+                }
+            }
             deletedUser = crud.delete(user);
         } else {
             log.info("delete() - No ID was found so can't Delete.");
@@ -0,0 +1,281 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A count based circuit breaker protecting calls to an upstream service.</p>
+ *
+ * <p>The outcome of the last <code>windowSize</code> calls is kept in a ring buffer. A call is recorded as failed if it
+ * threw, and as slow if it took longer than <code>slowCallMillis</code>. Once the window is full the breaker trips from
+ * CLOSED to OPEN if either the failure rate or the slow call rate reaches its threshold (a percentage). While OPEN every
+ * call is refused without contacting the upstream. After <code>openMillis</code> the breaker moves to HALF_OPEN and lets
+ * <code>halfOpenCalls</code> trial calls through. If the share of trial calls which failed or were slow reaches the lower
+ * of the two thresholds it opens again, otherwise it closes with an empty window.</p>
+ *
+ * <p>Every state transition is logged and the last few are kept for {@link #getStatistics()}.</p>
+ *
+ * <p>Callers follow the pattern:</p>
+ * <pre>
+ *     if (!breaker.tryAcquirePermission()) { fail fast }
+ *     long start = System.nanoTime();
+ *     try { call upstream; breaker.onSuccess(System.nanoTime() - start); }
+ *     catch (RuntimeException e) { breaker.onError(System.nanoTime() - start); }
+ * </pre>
+ *
+ * @author Jiaxuan Xu
+ * @see ApplicationConfig
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int MAX_TRANSITIONS = 20;
+
+    private static final int OUTCOME_OK = 0;
+    private static final int OUTCOME_SLOW = 1;
+    private static final int OUTCOME_FAILED = 2;
+    private static final int OUTCOME_SLOW_FAILED = OUTCOME_SLOW | OUTCOME_FAILED;
+
+    private final Log log;
+    private final String name;
+    private final int windowSize;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openMillis;
+    private final int halfOpenCalls;
+
+    private final int[] outcomes;
+    private int next;
+    private int recorded;
+    private int failedCalls;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermitted;
+    private int halfOpenCompleted;
+    private int halfOpenBad;
+
+    private long successfulCalls;
+    private long totalFailedCalls;
+    private long totalSlowCalls;
+    private long notPermittedCalls;
+    private final Deque<Map<String, Object>> transitions = new ArrayDeque<>();
+
+    public CircuitBreaker(String name, int windowSize, double failureRateThreshold, double slowCallRateThreshold,
+                          long slowCallMillis, long openMillis, int halfOpenCalls, Log log) {
+        if (windowSize < 1 || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Circuit breaker " + name + " needs a window and at least one trial call");
+        }
+        this.name = name;
+        this.windowSize = windowSize;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+        this.log = log;
+        this.outcomes = new int[windowSize];
+    }
+
+    /**
+     * <p>Creates a circuit breaker from the <code>&lt;name&gt;.breaker.*</code> settings.</p>
+     *
+     * @param name The name of the breaker, also the prefix of its settings
+     * @param config The application configuration
+     * @param log The logger transitions are reported to
+     * @return The new circuit breaker, initially CLOSED
+     */
+    public static CircuitBreaker fromConfig(String name, ApplicationConfig config, Log log) {
+        String prefix = name + ".breaker.";
+        return new CircuitBreaker(name,
+                config.getInt(prefix + "windowSize", 20),
+                config.getDouble(prefix + "failureRateThreshold", 50),
+                config.getDouble(prefix + "slowCallRateThreshold", 80),
+                config.getLong(prefix + "slowCallMillis", 2000),
+                config.getLong(prefix + "openMillis", 30000),
+                config.getInt(prefix + "halfOpenCalls", 3),
+                log);
+    }
+
+    /**
+     * <p>Decides whether a call to the upstream may be made now. Every permitted call must be followed by exactly one of
+     * {@link #onSuccess(long)} or {@link #onError(long)}.</p>
+     *
+     * @return true if the call may go ahead, false if it should fail fast
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                notPermittedCalls++;
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermitted >= halfOpenCalls) {
+                notPermittedCalls++;
+                return false;
+            }
+            halfOpenPermitted++;
+        }
+        return true;
+    }
+
+    /**
+     * <p>Records a call which completed normally.</p>
+     *
+     * @param durationNanos How long the call took
+     */
+    public synchronized void onSuccess(long durationNanos) {
+        successfulCalls++;
+        record(durationNanos >= slowCallNanos ? OUTCOME_SLOW : OUTCOME_OK);
+    }
+
+    /**
+     * <p>Records a call which failed.</p>
+     *
+     * @param durationNanos How long the call took before failing
+     */
+    public synchronized void onError(long durationNanos) {
+        totalFailedCalls++;
+        record(durationNanos >= slowCallNanos ? OUTCOME_SLOW_FAILED : OUTCOME_FAILED);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * <p>Returns how long callers should wait before trying again, for use in a Retry-After header.</p>
+     *
+     * @return Whole seconds until the breaker will next let a trial call through; at least 1
+     */
+    public synchronized long getRetryAfterSeconds() {
+        long remaining = state == State.OPEN ? openMillis - (System.currentTimeMillis() - openedAt) : 0;
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remaining + 999));
+    }
+
+    /**
+     * <p>Returns the state, current rates and lifetime counters of the breaker together with its most recent transitions.</p>
+     *
+     * @return Map of statistic name to value
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("name", name);
+        statistics.put("state", state.name());
+        statistics.put("bufferedCalls", recorded);
+        statistics.put("failureRate", rate(failedCalls));
+        statistics.put("slowCallRate", rate(slowCalls));
+        statistics.put("successfulCalls", successfulCalls);
+        statistics.put("failedCalls", totalFailedCalls);
+        statistics.put("slowCalls", totalSlowCalls);
+        statistics.put("notPermittedCalls", notPermittedCalls);
+        statistics.put("transitions", new ArrayList<>(transitions));
+        return statistics;
+    }
+
+    private void record(int outcome) {
+        if ((outcome & OUTCOME_SLOW) != 0) {
+            totalSlowCalls++;
+        }
+
+        if (state == State.HALF_OPEN) {
+            halfOpenCompleted++;
+            if (outcome != OUTCOME_OK) {
+                halfOpenBad++;
+            }
+            if (halfOpenCompleted >= halfOpenCalls) {
+                transitionTo(halfOpenBad * 100.0 / halfOpenCompleted >= Math.min(failureRateThreshold, slowCallRateThreshold)
+                        ? State.OPEN : State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // A call which was permitted before the breaker opened has finished; it does not count any more.
+            return;
+        }
+
+        if (recorded == windowSize) {
+            forget(outcomes[next]);
+        } else {
+            recorded++;
+        }
+        outcomes[next] = outcome;
+        next = (next + 1) % windowSize;
+        if ((outcome & OUTCOME_FAILED) != 0) {
+            failedCalls++;
+        }
+        if ((outcome & OUTCOME_SLOW) != 0) {
+            slowCalls++;
+        }
+
+        if (recorded == windowSize
+                && (rate(failedCalls) >= failureRateThreshold || rate(slowCalls) >= slowCallRateThreshold)) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void forget(int outcome) {
+        if ((outcome & OUTCOME_FAILED) != 0) {
+            failedCalls--;
+        }
+        if ((outcome & OUTCOME_SLOW) != 0) {
+            slowCalls--;
+        }
+    }
+
+    private double rate(int calls) {
+        return recorded == 0 ? 0 : calls * 100.0 / recorded;
+    }
+
+    private void transitionTo(State target) {
+        Map<String, Object> transition = new LinkedHashMap<>();
+        transition.put("from", state.name());
+        transition.put("to", target.name());
+        transition.put("failureRate", rate(failedCalls));
+        transition.put("slowCallRate", rate(slowCalls));
+        transition.put("timestampMillis", System.currentTimeMillis());
+        if (transitions.size() == MAX_TRANSITIONS) {
+            transitions.removeFirst();
+        }
+        transitions.addLast(transition);
+        log.warning("CircuitBreaker {0} - {1} -> {2}", name, state, target);
+
+        state = target;
+        halfOpenPermitted = 0;
+        halfOpenCompleted = 0;
+        halfOpenBad = 0;
+        if (target == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        } else if (target == State.CLOSED) {
+            recorded = 0;
+            next = 0;
+            failedCalls = 0;
+            slowCalls = 0;
+        }
+    }
+}
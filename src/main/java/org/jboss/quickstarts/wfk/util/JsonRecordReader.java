@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>Reads JSON objects one at a time from a stream which holds either a JSON array of objects or newline delimited JSON
+ * (one object per line, NDJSON).</p>
+ *
+ * <p>Only the current object is held in memory, so arbitrarily large uploads can be processed in constant space. Each
+ * object is returned as a tree, so that a record which can not be bound to the target type can be reported on its own
+ * without losing the position in the stream.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+public class JsonRecordReader implements Closeable {
+
+    private final ObjectMapper mapper;
+    private final JsonParser parser;
+
+    private boolean started;
+    private boolean inArray;
+    private boolean finished;
+
+    public JsonRecordReader(ObjectMapper mapper, InputStream in) throws IOException {
+        this.mapper = mapper;
+        this.parser = mapper.getFactory().createParser(in);
+    }
+
+    /**
+     * <p>Reads the next object from the stream.</p>
+     *
+     * @return The next object, or null once the stream has been read to the end
+     * @throws IOException If the stream can not be read or is not well formed JSON
+     */
+    public JsonNode next() throws IOException {
+        if (finished) {
+            return null;
+        }
+
+        JsonToken token = parser.nextToken();
+        if (!started) {
+            started = true;
+            if (token == JsonToken.START_ARRAY) {
+                inArray = true;
+                token = parser.nextToken();
+            }
+        }
+
+        if (token == null || (inArray && token == JsonToken.END_ARRAY)) {
+            finished = true;
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object but found " + token);
+        }
+        return mapper.readTree(parser);
+    }
+
+    /**
+     * @return The line of the stream the reader has reached, for error messages
+     */
+    public int getLineNumber() {
+        return parser.getCurrentLocation().getLineNr();
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import com.google.common.io.BaseEncoding;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Encodes and decodes the opaque cursor tokens used for keyset pagination.</p>
+ *
+ * <p>A cursor holds the sort key of the last row of a page, e.g. (lastName, firstName, id). The next page is then read
+ * with a query which seeks past that key using an index, rather than with an OFFSET which makes the database walk
+ * over every skipped row. The key is written as a sequence of length prefixed strings and base64url encoded, so that
+ * it can be passed around in a query parameter as it is.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+public final class KeysetCursor {
+
+    private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * <p>Builds a cursor from the components of a sort key.</p>
+     *
+     * @param parts The sort key, most significant component first; none may be null
+     * @return The cursor token
+     */
+    public static String encode(String... parts) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(parts.length);
+            for (String part : parts) {
+                out.writeUTF(part);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return ENCODING.encode(bytes.toByteArray());
+    }
+
+    /**
+     * <p>Reads the sort key back out of a cursor.</p>
+     *
+     * @param token The cursor token, as produced by {@link #encode(String...)}
+     * @param expectedParts The number of components the sort key must have
+     * @return The components of the sort key
+     * @throws IllegalArgumentException If the token was not produced by {@link #encode(String...)} or has the wrong shape
+     */
+    public static List<String> decode(String token, int expectedParts) throws IllegalArgumentException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(ENCODING.decode(token)))) {
+            if (in.readByte() != expectedParts) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            List<String> parts = new ArrayList<>(expectedParts);
+            for (int i = 0; i < expectedParts; i++) {
+                parts.add(in.readUTF());
+            }
+            if (in.read() != -1) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return parts;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * <p>Logging facade over java.util.logging for code on the request path.</p>
+ *
+ * <p>Messages are java.util.logging templates with <code>{0}</code>, <code>{1}</code>... placeholders (and so must not
+ * contain single quotes). Nothing is built unless the level is enabled: the template and its arguments are captured in a
+ * LogRecord, and the message is formatted and written by the {@link LogDispatcher}'s background thread. Arguments are
+ * converted to Strings before the record is queued, so entities are never read from another thread.</p>
+ *
+ * <p>The fixed arity methods avoid allocating a varargs array when the level is disabled.</p>
+ *
+ * <pre>
+ * &#064;Inject
+ * private Log log;
+ *
+ * log.info("ContactService.create() - Creating {0} {1}", contact.getFirstName(), contact.getLastName());
+ * </pre>
+ *
+ * @author Jiaxuan Xu
+ * @see Resources
+ * @see LogDispatcher
+ */
+public final class Log {
+
+    private final Logger logger;
+
+    private final LogDispatcher dispatcher;
+
+    Log(Logger logger, LogDispatcher dispatcher) {
+        this.logger = logger;
+        this.dispatcher = dispatcher;
+    }
+
+    public boolean isLoggable(Level level) {
+        return logger.isLoggable(level);
+    }
+
+    public void fine(String template, Object arg) {
+        if (logger.isLoggable(Level.FINE)) {
+            dispatch(Level.FINE, template, null, new Object[] {arg});
+        }
+    }
+
+    public void fine(String template, Object arg1, Object arg2) {
+        if (logger.isLoggable(Level.FINE)) {
+            dispatch(Level.FINE, template, null, new Object[] {arg1, arg2});
+        }
+    }
+
+    public void info(String message) {
+        if (logger.isLoggable(Level.INFO)) {
+            dispatch(Level.INFO, message, null, null);
+        }
+    }
+
+    public void info(String template, Object arg) {
+        if (logger.isLoggable(Level.INFO)) {
+            dispatch(Level.INFO, template, null, new Object[] {arg});
+        }
+    }
+
+    public void info(String template, Object arg1, Object arg2) {
+        if (logger.isLoggable(Level.INFO)) {
+            dispatch(Level.INFO, template, null, new Object[] {arg1, arg2});
+        }
+    }
+
+    public void info(String template, Object arg1, Object arg2, Object arg3) {
+        if (logger.isLoggable(Level.INFO)) {
+            dispatch(Level.INFO, template, null, new Object[] {arg1, arg2, arg3});
+        }
+    }
+
+    public void severe(String template, Object arg) {
+        if (logger.isLoggable(Level.SEVERE)) {
+            dispatch(Level.SEVERE, template, null, new Object[] {arg});
+        }
+    }
+
+    public void warning(String template, Object arg) {
+        if (logger.isLoggable(Level.WARNING)) {
+            dispatch(Level.WARNING, template, null, new Object[] {arg});
+        }
+    }
+
+    public void warning(String template, Object arg1, Object arg2) {
+        if (logger.isLoggable(Level.WARNING)) {
+            dispatch(Level.WARNING, template, null, new Object[] {arg1, arg2});
+        }
+    }
+
+    public void warning(String template, Object arg1, Object arg2, Object arg3) {
+        if (logger.isLoggable(Level.WARNING)) {
+            dispatch(Level.WARNING, template, null, new Object[] {arg1, arg2, arg3});
+        }
+    }
+
+    /**
+     * <p>Logs a message together with the stack trace of the exception.</p>
+     *
+     * @param level The level to log at
+     * @param thrown The exception
+     * @param template The message template
+     * @param args The values of the placeholders in the template
+     */
+    public void log(Level level, Throwable thrown, String template, Object... args) {
+        if (logger.isLoggable(level)) {
+            dispatch(level, template, thrown, args);
+        }
+    }
+
+    private void dispatch(Level level, String template, Throwable thrown, Object[] args) {
+        LogRecord record = new LogRecord(level, template);
+        record.setLoggerName(logger.getName());
+        // Naming the source stops java.util.logging from walking the stack of the dispatcher thread to find it
+        record.setSourceClassName(logger.getName());
+        record.setSourceMethodName(null);
+        record.setThrown(thrown);
+        if (args != null && args.length > 0) {
+            for (int i = 0; i < args.length; i++) {
+                args[i] = args[i] == null || args[i] instanceof String ? args[i] : args[i].toString();
+            }
+            record.setParameters(args);
+        }
+        dispatcher.dispatch(record);
+    }
+
+    /**
+     * <p>Lets through one in every <code>every</code> occurrences of something which is expected to happen often, such as
+     * a client error, and counts the rest.</p>
+     */
+    public static final class Sampler {
+
+        private final long every;
+
+        private final AtomicLong occurrences = new AtomicLong();
+
+        public Sampler(long every) {
+            this.every = Math.max(1, every);
+        }
+
+        /**
+         * @return true if this occurrence should be logged
+         */
+        public boolean sample() {
+            return occurrences.getAndIncrement() % every == 0;
+        }
+
+        /**
+         * @return How many occurrences there are for each one logged
+         */
+        public long getEvery() {
+            return every;
+        }
+    }
+}
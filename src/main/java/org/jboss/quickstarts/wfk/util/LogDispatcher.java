@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+/**
+ * <p>Hands log records from request threads to a single background thread, which formats them and passes them to the
+ * java.util.logging handlers.</p>
+ *
+ * <p>Records are queued in a ring buffer of <code>log.async.capacity</code> entries. Offering a record never blocks: when
+ * the buffer is full, WARNING and SEVERE records are logged on the calling thread and anything less severe is dropped and
+ * counted. Until the application has started, after it has stopped, or when <code>log.async.enabled</code> is false,
+ * records are logged on the calling thread.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see Log
+ */
+@ApplicationScoped
+public class LogDispatcher {
+
+    @Inject
+    private ApplicationConfig config;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private volatile BlockingQueue<LogRecord> buffer;
+
+    private Thread worker;
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong synchronous = new AtomicLong();
+
+    /**
+     * <p>Starts the background thread as soon as the application has started.</p>
+     *
+     * @param event The (unused) payload of the application scope initialisation event
+     */
+    void init(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!config.getBoolean("log.async.enabled", true)) {
+            return;
+        }
+
+        final BlockingQueue<LogRecord> queue = new ArrayBlockingQueue<>(config.getInt("log.async.capacity", 8192));
+        worker = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                drain(queue);
+            }
+        });
+        worker.setName("log-dispatcher");
+        buffer = queue;
+        worker.start();
+    }
+
+    /**
+     * <p>Stops the background thread and logs whatever is still queued.</p>
+     */
+    @PreDestroy
+    void destroy() {
+        BlockingQueue<LogRecord> queue = buffer;
+        buffer = null;
+        if (worker == null) {
+            return;
+        }
+
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LogRecord record;
+        while ((record = queue.poll()) != null) {
+            publish(record);
+        }
+    }
+
+    /**
+     * <p>Queues a record to be logged by the background thread.</p>
+     *
+     * @param record The record, which must not be modified afterwards
+     */
+    void dispatch(LogRecord record) {
+        BlockingQueue<LogRecord> queue = buffer;
+        if (queue == null) {
+            synchronous.incrementAndGet();
+            publish(record);
+        } else if (queue.offer(record)) {
+            dispatched.incrementAndGet();
+        } else if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+            synchronous.incrementAndGet();
+            publish(record);
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * <p>Returns the number of records queued, dropped and logged on the calling thread.</p>
+     *
+     * @return Map of statistic name to value
+     */
+    public Map<String, Object> getStatistics() {
+        BlockingQueue<LogRecord> queue = buffer;
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("async", queue != null);
+        statistics.put("dispatched", dispatched.get());
+        statistics.put("dropped", dropped.get());
+        statistics.put("synchronous", synchronous.get());
+        statistics.put("queued", queue == null ? 0 : queue.size());
+        statistics.put("remainingCapacity", queue == null ? 0 : queue.remainingCapacity());
+        return statistics;
+    }
+
+    private void drain(BlockingQueue<LogRecord> queue) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                publish(queue.take());
+            }
+        } catch (InterruptedException e) {
+            // Stopping; destroy() logs what is left
+        }
+    }
+
+    private static void publish(LogRecord record) {
+        try {
+            Logger.getLogger(record.getLoggerName()).log(record);
+        } catch (RuntimeException e) {
+            // A failing handler must not stop the dispatcher, and there is nowhere else to report it
+        }
+    }
+}
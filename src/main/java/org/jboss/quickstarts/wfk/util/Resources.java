@@ -51,6 +51,11 @@ public class Resources {
         return Logger.getLogger(injectionPoint.getMember().getDeclaringClass().getName());
     }
 
+    @Produces
+    public Log produceLogFacade(InjectionPoint injectionPoint, LogDispatcher dispatcher) {
+        return new Log(Logger.getLogger(injectionPoint.getMember().getDeclaringClass().getName()), dispatcher);
+    }
+
     @Produces
     @Named("mapper")
     public ObjectMapper produceMapper() {
@@ -20,6 +20,7 @@ package org.jboss.quickstarts.wfk.util;
 
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.ejb.ApplicationException;
@@ -40,6 +41,7 @@ public class RestServiceException extends RuntimeException implements
 
     private final Map<String, String> reasons;
     private final Response.Status status;
+    private final Map<String, Object> headers = new LinkedHashMap<>();
 
     public RestServiceException() {
         super(defaultMsg);
@@ -96,4 +98,20 @@ public class RestServiceException extends RuntimeException implements
     public Response.Status getStatus() {
         return status;
     }
+
+    /**
+     * <p>Adds a header, such as Retry-After, to the response this exception is mapped to.</p>
+     *
+     * @param name The header name
+     * @param value The header value
+     * @return This exception
+     */
+    public RestServiceException header(String name, Object value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    public Map<String, Object> getHeaders() {
+        return headers;
+    }
 }
\ No newline at end of file
@@ -16,11 +16,14 @@
  */
 package org.jboss.quickstarts.wfk.util;
 
+import org.jboss.quickstarts.wfk.monitoring.RequestMetrics;
+
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.Map;
+import java.util.logging.Level;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
@@ -32,29 +35,57 @@ import javax.ws.rs.ext.Provider;
  * <p>Handler object to convert {@link RestServiceException} exception into an actual {@link Response} containing JSON
  * so we can get a nice friendly error message, easily parsable by our API clients.</p>
  *
+ * <p>Server errors are logged at SEVERE with their stack trace. Client errors, such as 404 for an unknown id, are an
+ * expected outcome: they are logged at FINE, and otherwise only one in every <code>log.clientErrors.sampleEvery</code>
+ * is logged at INFO.</p>
+ *
  */
 @Provider
 public class RestServiceExceptionHandler implements ExceptionMapper<RestServiceException> {
 
     @Inject
-    private @Named("logger") Logger log;
+    private Log log;
+
+    @Inject
+    private ApplicationConfig config;
+
+    @Inject
+    private RequestMetrics metrics;
 
     @Context
     private HttpHeaders headers;
 
+    private Log.Sampler clientErrors;
+
+    @PostConstruct
+    void init() {
+        clientErrors = new Log.Sampler(config.getLong("log.clientErrors.sampleEvery", 100));
+    }
+
     @Override
     public Response toResponse(final RestServiceException e) {
+        metrics.error(e.getCause() != null ? e.getCause() : e);
 
-        log.severe("Mapping RestServiceException with status + \"" + e.getStatus() + "\", message: \"" + e.getMessage()
-                + "\" and stack trace:" + System.getProperty("line.separator") + e.toString());
+        if (e.getStatus().getFamily() == Response.Status.Family.SERVER_ERROR) {
+            log.log(Level.SEVERE, e, "Mapping RestServiceException with status \"{0}\", message: \"{1}\"",
+                    e.getStatus(), e.getMessage());
+        } else if (log.isLoggable(Level.FINE)) {
+            log.fine("Mapping RestServiceException with status \"{0}\", message: \"{1}\"", e.getStatus(), e.getMessage());
+        } else if (clientErrors.sample()) {
+            log.info("Mapping RestServiceException with status \"{0}\", message: \"{1}\" (1 in {2} client errors is logged)",
+                    e.getStatus(), e.getMessage(), clientErrors.getEvery());
+        }
 
         Response.ResponseBuilder builder = Response.status(e.getStatus()).entity(new ErrorMessage(e.getMessage(), e.getReasons()));
+        for (Map.Entry<String, Object> header : e.getHeaders().entrySet()) {
+            builder = builder.header(header.getKey(), header.getValue());
+        }
 
         List<MediaType> accepts = headers.getAcceptableMediaTypes();
         if (accepts!=null && accepts.size() > 0) {
             //just pick the first one
             MediaType m = accepts.get(0);
-            log.info("Setting response type to " + m);
+            log.fine("Setting response type to {0}", m);
             builder = builder.type(m);
         }
         else {
@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import org.jboss.quickstarts.wfk.monitoring.RequestMetrics;
+import org.jboss.resteasy.spi.Failure;
+
+import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+
+/**
+ * <p>Handler object for exceptions which no more specific handler maps, so that every failed request gets a response
+ * (and so is seen by the {@link org.jboss.quickstarts.wfk.monitoring.RequestMetricsFilter}) and its exception is counted
+ * in {@link RequestMetrics}.</p>
+ *
+ * <p>Exceptions which already carry a response, such as a 404 for an unknown path or a 400 for an unreadable request
+ * body, are answered with that response as before. Anything else is answered in the same way as a
+ * {@link RestServiceException} with status 500.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see RestServiceExceptionHandler
+ */
+@Provider
+public class UnexpectedExceptionHandler implements ExceptionMapper<Exception> {
+
+    @Inject
+    private RequestMetrics metrics;
+
+    @Context
+    private Providers providers;
+
+    @Override
+    public Response toResponse(Exception e) {
+        if (e instanceof WebApplicationException) {
+            metrics.error(e);
+            return ((WebApplicationException) e).getResponse();
+        }
+        if (e instanceof Failure) {
+            metrics.error(e);
+            Failure failure = (Failure) e;
+            return failure.getResponse() != null ? failure.getResponse() : Response.status(failure.getErrorCode()).build();
+        }
+
+        // Counted by the RestServiceExceptionHandler
+        return providers.getExceptionMapper(RestServiceException.class).toResponse(new RestServiceException(e));
+    }
+}
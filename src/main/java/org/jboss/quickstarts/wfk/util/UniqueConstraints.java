@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+import javax.persistence.PersistenceException;
+
+/**
+ * <p>Recognises violations of named database unique constraints, so that uniqueness can be left to the database.</p>
+ *
+ * <p>Rather than look up whether a value is already taken before every write, which costs a query and still races with
+ * concurrent writes, a repository writes optimistically, flushes, and passes any {@link PersistenceException} to
+ * {@link #isViolated(PersistenceException, String)} to find out whether it was caused by its constraint. Only the database
+ * can decide that correctly under contention.</p>
+ *
+ * <p>The constraint is found by name, so constraints used this way must be named, e.g.
+ * <code>@UniqueConstraint(name = "contact_email_uk", columnNames = "email")</code>.</p>
+ *
+ * <p>Named foreign key constraints are recognised the same way, so that a write can leave checking that the entities it
+ * refers to exist to the database as well.</p>
+ *
+ * @author Jiaxuan Xu
+ */
+public final class UniqueConstraints {
+
+    private UniqueConstraints() {
+    }
+
+    /**
+     * <p>Checks whether the exception was caused by a violation of the named constraint.</p>
+     *
+     * <p>The constraint name reported by Hibernate is used if there is one. Otherwise the messages of the underlying
+     * SQLExceptions are searched, as some databases (H2 among them) report the violated index rather than the constraint,
+     * under a name derived from the constraint name.</p>
+     *
+     * @param e The exception thrown while flushing
+     * @param constraintName The name of the unique constraint
+     * @return true if the exception is a violation of the constraint
+     */
+    public static boolean isViolated(PersistenceException e, String constraintName) {
+        String name = constraintName.toLowerCase(Locale.ROOT);
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof org.hibernate.exception.ConstraintViolationException) {
+                String violated = ((org.hibernate.exception.ConstraintViolationException) cause).getConstraintName();
+                if (violated != null && violated.toLowerCase(Locale.ROOT).contains(name)) {
+                    return true;
+                }
+            }
+            if (cause instanceof SQLException) {
+                String message = cause.getMessage();
+                if (message != null && message.toLowerCase(Locale.ROOT).contains(name)) {
+                    return true;
+                }
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
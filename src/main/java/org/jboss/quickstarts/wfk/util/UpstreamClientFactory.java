@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * <p>Provides typed proxies for the upstream REST services this application depends on.</p>
+ *
+ * <p>A single {@link ResteasyClient} is shared by the whole application. It keeps a pool of keep-alive connections, so
+ * requests to an upstream host reuse open sockets instead of connecting every time. Proxies are generated once per
+ * service interface and then reused, which is safe because the pooled client is thread safe.</p>
+ *
+ * <p>The base URL of each upstream service is read from the <code>upstream.&lt;name&gt;.url</code> setting, while the
+ * pool size and timeouts are shared by all of them (see {@link ApplicationConfig}).</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ApplicationConfig
+ */
+@ApplicationScoped
+public class UpstreamClientFactory {
+
+    @Inject
+    private Log log;
+
+    @Inject
+    private ApplicationConfig config;
+
+    private ResteasyClient client;
+
+    private final ConcurrentMap<String, Object> proxies = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        client = new ResteasyClientBuilder()
+                .connectionPoolSize(config.getInt("upstream.maxConnections", 50))
+                .maxPooledPerRoute(config.getInt("upstream.maxConnectionsPerRoute", 20))
+                .connectionTTL(config.getLong("upstream.connectionTtlSeconds", 60), TimeUnit.SECONDS)
+                .connectionCheckoutTimeout(config.getLong("upstream.checkoutTimeoutMillis", 1000), TimeUnit.MILLISECONDS)
+                .establishConnectionTimeout(config.getLong("upstream.connectTimeoutMillis", 2000), TimeUnit.MILLISECONDS)
+                .socketTimeout(config.getLong("upstream.readTimeoutMillis", 5000), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @PreDestroy
+    void destroy() {
+        client.close();
+    }
+
+    /**
+     * <p>Returns the proxy for the given service interface of the named upstream, creating it on first use.</p>
+     *
+     * @param api The JAX-RS client interface of the upstream service
+     * @param upstream The name of the upstream, used to look up <code>upstream.&lt;name&gt;.url</code>
+     * @return A proxy implementing the service interface
+     * @throws IllegalStateException If no base URL has been configured for the upstream
+     */
+    public <T> T proxy(Class<T> api, String upstream) {
+        String key = upstream + ":" + api.getName();
+        Object proxy = proxies.get(key);
+        if (proxy == null) {
+            String url = config.getString("upstream." + upstream + ".url", null);
+            if (url == null) {
+                throw new IllegalStateException("No URL configured for upstream " + upstream);
+            }
+            log.info("UpstreamClientFactory.proxy() - Creating {0} proxy for {1}", api.getSimpleName(), url);
+
+            Object created = client.target(url).proxy(api);
+            proxy = proxies.putIfAbsent(key, created);
+            if (proxy == null) {
+                proxy = created;
+            }
+        }
+        return api.cast(proxy);
+    }
+}
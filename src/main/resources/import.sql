@@ -18,9 +18,10 @@
 -- You can use this file to load seed data into the database using SQL statements
 -- Since the database doesn't know to increase the Sequence to match what is manually loaded here it starts at 1 and tries
 --  to enter a record with the same PK and create an error.  If we use a high we don't interfere with the sequencing (at least until later).
+-- The id sequences of every entity start at 100000 (see their @SequenceGenerator), well above the ids used here.
 -- NOTE: this file should be removed for production systems. 
-insert into CONTACT (id, first_name, last_name, email, phone_number, birth_date) values (10001, 'John', 'Smith', 'john.smith@mailinator.com', '(212) 555-1212', '1963-06-03');
-insert into CONTACT (id, first_name, last_name, email, phone_number, birth_date) values (10002, 'Davey', 'Jones', 'davey.jones@locker.com', '(212) 555-3333', '1996-08-07');
+insert into CONTACT (id, first_name, last_name, email, phone_number, birth_date, enrichment_pending, version) values (10001, 'John', 'Smith', 'john.smith@mailinator.com', '(212) 555-1212', '1963-06-03', false, 0);
+insert into CONTACT (id, first_name, last_name, email, phone_number, birth_date, enrichment_pending, version) values (10002, 'Davey', 'Jones', 'davey.jones@locker.com', '(212) 555-3333', '1996-08-07', false, 0);
 
 insert into USER (id, `name`, email, phonenumber) values (1, 'John Smith', 'john.smith@mailinator.com', '02125551212');
 insert into USER (id, `name`, email, phonenumber) values (2, 'Davey Jones', 'davey.jones@locker.com', '02125553333');
@@ -28,6 +29,8 @@ insert into USER(id , name ,email ,phonenumber ) values ( 3, 'Test', 'test@test.
 
 insert into RESTAURANT (id, `name`, phonenumber, postcode) values (1, 'KFC', '04412345678', 'ABC123');
 insert into RESTAURANT (id, `name`, phonenumber, postcode) values (2, 'McDonald','04487654321', '321CBA');
+insert into RESTAURANT_RATING (restaurant_id, review_count, rating_sum, rating_0, rating_1, rating_2, rating_3, rating_4, rating_5) values (1, 0, 0, 0, 0, 0, 0, 0, 0);
+insert into RESTAURANT_RATING (restaurant_id, review_count, rating_sum, rating_0, rating_1, rating_2, rating_3, rating_4, rating_5) values (2, 0, 0, 0, 0, 0, 0, 0, 0);
 
 
 
@@ -0,0 +1,193 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.contact;
+
+import org.jboss.quickstarts.wfk.area.Area;
+import org.jboss.quickstarts.wfk.area.AreaCodeCache;
+import org.jboss.quickstarts.wfk.area.AreaServiceUnavailableException;
+import org.jboss.quickstarts.wfk.area.InvalidAreaCodeException;
+import org.jboss.quickstarts.wfk.util.ApplicationConfig;
+import org.jboss.quickstarts.wfk.util.Log;
+import org.jboss.quickstarts.wfk.util.LogDispatcher;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.enterprise.event.Event;
+import javax.enterprise.util.TypeLiteral;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <p>Unit tests of how {@link ContactService#importChunk(List)} decides the outcome of each record of a chunk.</p>
+ *
+ * <p>The service is given stand-ins for its collaborators: the database holds the emails in {@link #storedEmails}, area
+ * code 999 does not exist and the area code service fails for 998.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ContactService
+ */
+public class ContactServiceImportTest {
+
+	private static final String INVALID_AREA = "(999) 555-0100";
+	private static final String UNAVAILABLE_AREA = "(998) 555-0100";
+	private static final String VALID_AREA = "(212) 555-0100";
+
+	private final List<String> storedEmails = new ArrayList<>();
+
+	private final List<Contact> inserted = new ArrayList<>();
+
+	private ContactService service;
+
+	@Before
+	public void setUp() throws Exception {
+		service = new ContactService();
+		inject(service, "log", log());
+		inject(service, "config", new ApplicationConfig());
+		inject(service, "validator", new ContactValidator() {
+			@Override
+			void validateContact(Contact contact) {
+			}
+		});
+		inject(service, "crud", new ContactRepository() {
+			@Override
+			List<String> findExistingEmails(Collection<String> emails) {
+				List<String> existing = new ArrayList<>(storedEmails);
+				existing.retainAll(emails);
+				return existing;
+			}
+
+			@Override
+			void createAll(List<Contact> contacts) {
+				for (Contact contact : contacts) {
+					contact.setId((long) inserted.size() + 1);
+					inserted.add(contact);
+				}
+			}
+		});
+		inject(service, "areaCodes", new AreaCodeCache() {
+			@Override
+			public Area getAreaById(int code) throws InvalidAreaCodeException, AreaServiceUnavailableException {
+				if (code == 999) {
+					throw new InvalidAreaCodeException("The area code provided does not exist");
+				} else if (code == 998) {
+					throw new AreaServiceUnavailableException("The area code service is unavailable", 30);
+				}
+				Area area = new Area();
+				area.setId(code);
+				area.setState("New York");
+				return area;
+			}
+		});
+		inject(service, "changes", new Event<ContactChangedEvent>() {
+			@Override
+			public void fire(ContactChangedEvent event) {
+			}
+
+			@Override
+			public Event<ContactChangedEvent> select(Annotation... qualifiers) {
+				return this;
+			}
+
+			@Override
+			public <U extends ContactChangedEvent> Event<U> select(Class<U> subtype, Annotation... qualifiers) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public <U extends ContactChangedEvent> Event<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+				throw new UnsupportedOperationException();
+			}
+		});
+	}
+
+	private static Log log() throws Exception {
+		Constructor<Log> constructor = Log.class.getDeclaredConstructor(Logger.class, LogDispatcher.class);
+		constructor.setAccessible(true);
+		return constructor.newInstance(Logger.getLogger(ContactServiceImportTest.class.getName()), new LogDispatcher());
+	}
+
+	private static void inject(Object target, String name, Object value) throws Exception {
+		Field field = target.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(target, value);
+	}
+
+	private static Contact contact(String email, String phoneNumber) {
+		Contact contact = new Contact();
+		contact.setFirstName("Jane");
+		contact.setLastName("Doe");
+		contact.setEmail(email);
+		contact.setPhoneNumber(phoneNumber);
+		return contact;
+	}
+
+	private List<Integer> importChunk(Contact... contacts) {
+		List<Integer> statuses = new ArrayList<>();
+		for (ContactImportResult result : service.importChunk(Arrays.asList(contacts))) {
+			statuses.add(result.getStatus());
+		}
+		return statuses;
+	}
+
+	@Test
+	public void createsEveryValidContact() {
+		assertEquals(Arrays.asList(201, 201),
+				importChunk(contact("jane@mail.com", VALID_AREA), contact("john@mail.com", VALID_AREA)));
+		assertEquals(2, inserted.size());
+		assertEquals("New York", inserted.get(0).getState());
+	}
+
+	@Test
+	public void refusesAnEmailUsedTwiceInTheChunk() {
+		assertEquals(Arrays.asList(201, 409),
+				importChunk(contact("jane@mail.com", VALID_AREA), contact("jane@mail.com", VALID_AREA)));
+		assertEquals(1, inserted.size());
+	}
+
+	@Test
+	public void refusesAnEmailAlreadyStored() {
+		storedEmails.add("jane@mail.com");
+		assertEquals(Arrays.asList(409, 201),
+				importChunk(contact("jane@mail.com", VALID_AREA), contact("john@mail.com", VALID_AREA)));
+		assertEquals(1, inserted.size());
+	}
+
+	@Test
+	public void invalidAreaCodeDoesNotTakeTheEmail() {
+		assertEquals(Arrays.asList(400, 201),
+				importChunk(contact("jane@mail.com", INVALID_AREA), contact("jane@mail.com", VALID_AREA)));
+		assertEquals(1, inserted.size());
+		assertEquals(VALID_AREA, inserted.get(0).getPhoneNumber());
+	}
+
+	@Test
+	public void unavailableAreaServiceDoesNotTakeTheEmail() {
+		assertEquals(Arrays.asList(503, 201),
+				importChunk(contact("jane@mail.com", UNAVAILABLE_AREA), contact("jane@mail.com", VALID_AREA)));
+		assertEquals(1, inserted.size());
+		assertEquals(VALID_AREA, inserted.get(0).getPhoneNumber());
+	}
+}
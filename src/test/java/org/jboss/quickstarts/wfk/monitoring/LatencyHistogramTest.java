@@ -0,0 +1,168 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.monitoring;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Unit tests of the bucketing of {@link LatencyHistogram}, and of the quantiles and Prometheus bucket counts read from
+ * its snapshots.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see LatencyHistogram
+ */
+public class LatencyHistogramTest {
+
+	/** The largest value with a bucket of its own, 2^40 - 1 microseconds; larger values are clamped to it. */
+	private static final long MAX_VALUE = (1L << 40) - 1;
+
+	private static void assertInBucket(long micros) {
+		int index = LatencyHistogram.index(micros);
+		assertTrue("Bucket " + index + " of " + micros, index >= 0 && index < LatencyHistogram.BUCKETS);
+		assertTrue(micros + " below bucket " + index, LatencyHistogram.lowerBound(index) <= micros);
+		assertTrue(micros + " above bucket " + index, micros < LatencyHistogram.upperBound(index));
+	}
+
+	/** Records a latency given in microseconds, in the middle of the microsecond. */
+	private static void record(LatencyHistogram histogram, long micros, int times) {
+		for (int i = 0; i < times; i++) {
+			histogram.record(micros * 1000 + 500);
+		}
+	}
+
+	@Test
+	public void everySmallValueLiesWithinItsBucket() {
+		for (long micros = 0; micros <= 1 << 20; micros++) {
+			assertInBucket(micros);
+		}
+	}
+
+	@Test
+	public void valuesAroundEveryPowerOfTwoLieWithinTheirBuckets() {
+		for (int exponent = 1; exponent <= 40; exponent++) {
+			long power = 1L << exponent;
+			assertInBucket(power - 1);
+			if (power <= MAX_VALUE) {
+				assertInBucket(power);
+				assertInBucket(power + 1);
+			}
+		}
+		assertInBucket(MAX_VALUE);
+
+		Random random = new Random(42);
+		for (int i = 0; i < 1000000; i++) {
+			assertInBucket((random.nextLong() >>> 1) % (MAX_VALUE + 1));
+		}
+	}
+
+	@Test
+	public void bucketsAreContiguousAndNarrow() {
+		assertEquals(0, LatencyHistogram.lowerBound(0));
+		for (int i = 1; i < LatencyHistogram.BUCKETS; i++) {
+			assertEquals("Bucket " + i, LatencyHistogram.upperBound(i - 1), LatencyHistogram.lowerBound(i));
+			long width = LatencyHistogram.upperBound(i) - LatencyHistogram.lowerBound(i);
+			assertTrue("Bucket " + i + " is wider than 12.5%", width * LatencyHistogram.SUB_BUCKETS <= Math.max(
+					LatencyHistogram.SUB_BUCKETS, LatencyHistogram.lowerBound(i)));
+		}
+		assertEquals(MAX_VALUE + 1, LatencyHistogram.upperBound(LatencyHistogram.BUCKETS - 1));
+	}
+
+	@Test
+	public void valuesAboveTheMaximumAreClamped() {
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(MAX_VALUE));
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(MAX_VALUE + 1));
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void emptySnapshotHasNoQuantiles() {
+		LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+		assertEquals(0, snapshot.getCount());
+		assertEquals(0, snapshot.valueAt(0.5));
+		assertEquals(0, snapshot.countBelow(1000));
+	}
+
+	@Test
+	public void quantilesAreTheUpperEndsOfTheirBuckets() {
+		// One request each of 1 to 1000 microseconds, so the value of rank r is r.
+		LatencyHistogram histogram = new LatencyHistogram();
+		long sumNanos = 0;
+		for (long micros = 1; micros <= 1000; micros++) {
+			record(histogram, micros, 1);
+			sumNanos += micros * 1000 + 500;
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(sumNanos, snapshot.getSumNanos());
+		assertEquals("min", 1, snapshot.valueAt(0));
+		assertEquals("p50, in [480, 512)", 511, snapshot.valueAt(0.5));
+		assertEquals("p90, in [896, 960)", 959, snapshot.valueAt(0.9));
+		assertEquals("p99, in [960, 1024)", 1023, snapshot.valueAt(0.99));
+		assertEquals("max", 1023, snapshot.valueAt(1));
+	}
+
+	@Test
+	public void quantilesAreWithinOneBucketOfTheValue() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		record(histogram, 7, 1);
+		record(histogram, 15000, 98);
+		record(histogram, 3000000, 1);
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+		assertEquals(7, snapshot.valueAt(0.01));
+		long median = snapshot.valueAt(0.5);
+		assertTrue("Was " + median, median >= 15000 && median < 15000 * 9 / 8);
+		long max = snapshot.valueAt(1);
+		assertTrue("Was " + max, max >= 3000000 && max < 3000000 * 9 / 8);
+	}
+
+	@Test
+	public void countsBelowTheBucketBoundsOfTheExport() {
+		// The bounds of RequestMetrics, from 1 ms to 10 s, in microseconds.
+		long[] bounds = {1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000, 1000000, 2500000, 5000000,
+				10000000};
+		LatencyHistogram histogram = new LatencyHistogram();
+		record(histogram, 300, 100);      // in [288, 320)
+		record(histogram, 2000, 50);      // in [1920, 2048)
+		record(histogram, 40000, 10);     // in [36864, 40960)
+		record(histogram, 700000, 5);     // in [655360, 720896)
+		record(histogram, 20000000, 1);   // above the last bound
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+		long[] expected = {100, 150, 150, 150, 150, 160, 160, 160, 160, 165, 165, 165, 165};
+		for (int i = 0; i < bounds.length; i++) {
+			assertEquals("le " + bounds[i] + " us", expected[i], snapshot.countBelow(bounds[i]));
+		}
+		assertEquals("+Inf", 166, snapshot.getCount());
+	}
+
+	@Test
+	public void countBelowLeavesOutTheBucketWhichStraddlesTheBound() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		record(histogram, 990, 1);        // in [960, 1024), which straddles 1000
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+		assertEquals(0, snapshot.countBelow(1000));
+		assertEquals(1, snapshot.countBelow(1024));
+	}
+}
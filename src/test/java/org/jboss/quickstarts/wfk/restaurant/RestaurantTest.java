@@ -19,6 +19,7 @@ package org.jboss.quickstarts.wfk.restaurant;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.arquillian.junit.InSequence;
+import org.jboss.quickstarts.wfk.ArquillianTest;
 import org.jboss.quickstarts.wfk.util.RestServiceException;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
@@ -26,6 +27,7 @@ import org.jboss.shrinkwrap.api.asset.EmptyAsset;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
 import org.jboss.shrinkwrap.resolver.api.maven.Maven;
 import org.junit.Test;
+import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
 
 import java.io.File;
@@ -50,6 +52,7 @@ import static org.junit.Assert.fail;
  * @see RestaurantRestService
  */
 @RunWith(Arquillian.class)
+@Category(ArquillianTest.class)
 public class RestaurantTest {
 
 	/**
@@ -72,6 +75,7 @@ public class RestaurantTest {
 				.addPackages(true, "org.jboss.quickstarts.wfk")
 				.addAsLibraries(libs)
 				.addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
+				.addAsResource("application.properties")
 				.addAsWebInfResource("arquillian-ds.xml")
 				.addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml");
 	}
@@ -150,6 +154,41 @@ public class RestaurantTest {
 		}
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	@InSequence(5)
+	public void testDuplicatePhonenumberIsRolledBack() throws Exception {
+		Restaurant restaurant = createRestaurantInstance("Noodles","01310000222", "B16HOO");
+		restaurantRestService.createRestaurant(restaurant);
+
+		// The duplicate is only refused by the database's unique constraint, as its INSERT is flushed.
+		try {
+			restaurantRestService.createRestaurant(createRestaurantInstance("Dumplings", "01310000222", "B16HOO"));
+			fail("Expected a RestServiceException to be thrown");
+		} catch (RestServiceException e) {
+			assertEquals("Unexpected response status", Response.Status.CONFLICT, e.getStatus());
+			assertTrue("Unexecpted error. Should be Unique phonenumber violation", e.getCause() instanceof UniquePhonenumberException);
+		}
+
+		int withPhonenumber = 0;
+		for (Restaurant listed : (List<Restaurant>) restaurantRestService.retrieveAllRestaurants().getEntity()) {
+			if ("01310000222".equals(listed.getPhonenumber())) {
+				assertEquals("Unexpected restaurant with the phonenumber", "Noodles", listed.getName());
+				withPhonenumber++;
+			}
+		}
+		assertEquals("Unexpected number of restaurants with the phonenumber", 1, withPhonenumber);
+	}
+
+	@Test
+	@InSequence(6)
+	public void testSameNameDifferentPhonenumber() throws Exception {
+		restaurantRestService.createRestaurant(createRestaurantInstance("Curry","01310000333", "B16HOO"));
+
+		// Only the phonenumber is unique.
+		Response response = restaurantRestService.createRestaurant(createRestaurantInstance("Curry","01310000444", "B16HOO"));
+		assertEquals("Unexpected response status", Response.Status.CREATED.getStatusCode(), response.getStatus());
+	}
 
 	/**
 	 * <p>A utility method to construct a {@link Restaurant Restaurant} object for use in
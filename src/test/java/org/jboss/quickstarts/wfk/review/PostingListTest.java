@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <p>Unit tests of {@link PostingList}: the encoding of postings, and advancing a cursor with and without the skip
+ * data recorded every {@value PostingList#SKIP_INTERVAL} postings.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see PostingList
+ */
+public class PostingListTest {
+
+	/** The postings of {@link #evenDocs(int)}: document 2i, at positions i and i + 200 (which takes two bytes). */
+	private static int[] positionsOf(int doc) {
+		return new int[]{doc / 2, doc / 2 + 200};
+	}
+
+	/** A list of the even documents 0, 2, 4... */
+	private static PostingList evenDocs(int count) {
+		PostingList list = new PostingList();
+		for (int i = 0; i < count; i++) {
+			list.add(2 * i, positionsOf(2 * i));
+		}
+		return list;
+	}
+
+	private static void assertAt(PostingList.Cursor cursor, int doc) {
+		assertEquals("Unexpected document", doc, cursor.doc());
+		assertEquals("Unexpected frequency in " + doc, 2, cursor.freq());
+		assertArrayEquals("Unexpected positions in " + doc, positionsOf(doc), cursor.positions());
+	}
+
+	@Test
+	public void nextVisitsEveryPostingInOrder() {
+		PostingList list = evenDocs(300);
+		assertEquals(300, list.size());
+
+		PostingList.Cursor cursor = list.cursor();
+		assertEquals(-1, cursor.doc());
+		for (int i = 0; i < 300; i++) {
+			assertEquals(2 * i, cursor.next());
+			assertAt(cursor, 2 * i);
+		}
+		assertEquals(PostingList.NO_MORE_DOCS, cursor.next());
+		assertEquals(PostingList.NO_MORE_DOCS, cursor.next());
+	}
+
+	@Test
+	public void encodesLargeGapsAndPositions() {
+		PostingList list = new PostingList();
+		list.add(0, new int[]{0});
+		list.add(300, new int[]{5, 1000, 100000});
+		list.add(Integer.MAX_VALUE - 1, new int[]{Integer.MAX_VALUE - 1});
+
+		PostingList.Cursor cursor = list.cursor();
+		assertEquals(0, cursor.next());
+		assertEquals(300, cursor.next());
+		assertArrayEquals(new int[]{5, 1000, 100000}, cursor.positions());
+		assertEquals(Integer.MAX_VALUE - 1, cursor.next());
+		assertArrayEquals(new int[]{Integer.MAX_VALUE - 1}, cursor.positions());
+		assertEquals(PostingList.NO_MORE_DOCS, cursor.next());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesDocumentsOutOfOrder() {
+		PostingList list = evenDocs(10);
+		list.add(18, new int[]{0});
+	}
+
+	@Test
+	public void advanceFindsTheFirstDocumentAtOrAfterEveryTarget() {
+		PostingList list = evenDocs(1000);
+		for (int target = 0; target <= 2000; target++) {
+			PostingList.Cursor cursor = list.cursor();
+			int expected = target > 1998 ? PostingList.NO_MORE_DOCS : target + target % 2;
+			assertEquals("Advancing to " + target, expected, cursor.advance(target));
+			if (expected != PostingList.NO_MORE_DOCS) {
+				assertAt(cursor, expected);
+			}
+		}
+	}
+
+	@Test
+	public void advanceAroundTheSkipBoundaries() {
+		PostingList list = evenDocs(1000);
+		for (int block = 1; block * PostingList.SKIP_INTERVAL < 1000; block++) {
+			// The skip entry of a block holds the document just before it, the last of the previous block.
+			int first = block * PostingList.SKIP_INTERVAL;
+			for (int index = first - 2; index <= first + 1; index++) {
+				int doc = 2 * index;
+				PostingList.Cursor cursor = list.cursor();
+				assertEquals("Advancing to posting " + index, doc, cursor.advance(doc));
+				assertAt(cursor, doc);
+				assertEquals("Following posting " + index, doc + 2, cursor.next());
+				assertAt(cursor, doc + 2);
+
+				// Between two documents, just after a skip entry.
+				cursor = list.cursor();
+				assertEquals(doc + 2, cursor.advance(doc + 1));
+				assertAt(cursor, doc + 2);
+			}
+		}
+	}
+
+	@Test
+	public void advanceOnlyMovesForward() {
+		PostingList list = evenDocs(1000);
+		PostingList.Cursor cursor = list.cursor();
+
+		assertEquals(10, cursor.advance(10));
+		assertEquals("A target behind the cursor leaves it where it is", 10, cursor.advance(4));
+		assertEquals(12, cursor.next());
+		assertEquals("Jumps within the current block", 100, cursor.advance(99));
+		assertEquals("Jumps over several blocks", 1000, cursor.advance(1000));
+		assertAt(cursor, 1000);
+		assertEquals(1002, cursor.next());
+		assertEquals(1998, cursor.advance(1998));
+		assertEquals(PostingList.NO_MORE_DOCS, cursor.advance(1999));
+		assertEquals(PostingList.NO_MORE_DOCS, cursor.advance(5000));
+	}
+
+	@Test
+	public void cursorOnlySeesThePostingsAddedBeforeIt() {
+		// Exactly one block: its skip entry is only recorded once the next posting is added.
+		PostingList list = evenDocs(PostingList.SKIP_INTERVAL);
+		PostingList.Cursor oneBlock = list.cursor();
+		list.add(1000, positionsOf(1000));
+		PostingList.Cursor twoBlocks = list.cursor();
+		for (int i = 0; i < 200; i++) {
+			list.add(1002 + 2 * i, positionsOf(1002 + 2 * i));
+		}
+
+		assertEquals(PostingList.SKIP_INTERVAL, oneBlock.size());
+		assertEquals(PostingList.NO_MORE_DOCS, oneBlock.advance(1000));
+
+		assertEquals(PostingList.SKIP_INTERVAL + 1, twoBlocks.size());
+		assertEquals(1000, twoBlocks.advance(1000));
+		assertAt(twoBlocks, 1000);
+		assertEquals(PostingList.NO_MORE_DOCS, twoBlocks.advance(1001));
+
+		PostingList.Cursor all = list.cursor();
+		assertEquals(1400, all.advance(1400));
+		assertAt(all, 1400);
+	}
+}
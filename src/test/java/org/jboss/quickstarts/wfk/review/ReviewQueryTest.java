@@ -0,0 +1,128 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <p>Unit tests of the parsing of review search queries by {@link ReviewQuery#parse(String)}.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ReviewQuery
+ */
+public class ReviewQueryTest {
+
+	private static List<String> phrase(String... terms) {
+		return Arrays.asList(terms);
+	}
+
+	// The varargs arrays are only read here, never handed on, so the helpers are @SafeVarargs.
+	@SafeVarargs
+	private static List<List<String>> all(List<String>... phrases) {
+		List<List<String>> all = new ArrayList<>(phrases.length);
+		for (List<String> phrase : phrases) {
+			all.add(phrase);
+		}
+		return all;
+	}
+
+	@SafeVarargs
+	private static void assertParsed(String text, List<List<String>>... alternatives) {
+		List<List<List<String>>> expected = new ArrayList<>(alternatives.length);
+		for (List<List<String>> alternative : alternatives) {
+			expected.add(alternative);
+		}
+		assertEquals("Parsing " + text, expected, ReviewQuery.parse(text).getAlternatives());
+	}
+
+	@Test
+	public void wordsAreAndedTogether() {
+		assertParsed("Pizza  crust", all(phrase("pizza"), phrase("crust")));
+		assertParsed("pizza AND crust", all(phrase("pizza"), phrase("crust")));
+	}
+
+	@Test
+	public void orSeparatesAlternatives() {
+		assertParsed("pizza crust OR pasta", all(phrase("pizza"), phrase("crust")), all(phrase("pasta")));
+		assertParsed("OR pizza OR OR pasta OR", all(phrase("pizza")), all(phrase("pasta")));
+	}
+
+	@Test
+	public void onlyCapitalOperatorsAreOperators() {
+		assertParsed("pizza or pasta", all(phrase("pizza"), phrase("or"), phrase("pasta")));
+		assertParsed("pizza \"OR\" pasta", all(phrase("pizza"), phrase("or"), phrase("pasta")));
+	}
+
+	@Test
+	public void quotedTextIsAPhrase() {
+		assertParsed("\"Wood fired\" oven", all(phrase("wood", "fired"), phrase("oven")));
+		assertParsed("oven\"wood fired\"", all(phrase("oven"), phrase("wood", "fired")));
+		assertParsed("\"wood fired", all(phrase("wood", "fired")));
+	}
+
+	@Test
+	public void wordsSplitInTwoArePhrases() {
+		assertParsed("don't", all(phrase("don", "t")));
+		assertParsed("I don't OR wood-fired", all(phrase("i"), phrase("don", "t")), all(phrase("wood", "fired")));
+	}
+
+	@Test
+	public void termsAreNormalized() {
+		assertParsed("Cr\u00e8me BR\u00dbL\u00c9E", all(phrase("creme"), phrase("brulee")));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesAnEmptyQuery() {
+		ReviewQuery.parse("  ");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesAMissingQuery() {
+		ReviewQuery.parse(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesAQueryOfOperatorsAndPunctuation() {
+		ReviewQuery.parse("OR AND \"\" !?");
+	}
+
+	@Test
+	public void acceptsTheMostPhrases() {
+		StringBuilder text = new StringBuilder("\"two words\" OR");
+		for (int i = 1; i < ReviewQuery.MAX_PHRASES; i++) {
+			text.append(" word").append(i);
+		}
+		List<List<List<String>>> alternatives = ReviewQuery.parse(text.toString()).getAlternatives();
+		assertEquals(2, alternatives.size());
+		assertEquals(ReviewQuery.MAX_PHRASES - 1, alternatives.get(1).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesTooManyPhrases() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i <= ReviewQuery.MAX_PHRASES; i++) {
+			text.append(" word").append(i);
+		}
+		ReviewQuery.parse(text.toString());
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.review;
+
+import org.jboss.quickstarts.wfk.restaurant.Restaurant;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Unit tests of searching the {@link ReviewSearchIndex}.</p>
+ *
+ * <p>The index is filled from {@link ReviewChangedEvent}s as the application fills it once it is built; those sent
+ * before {@link ReviewSearchIndex#open()} are held back as they would be while it is built from the database.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see ReviewSearchIndex
+ */
+public class ReviewSearchIndexTest {
+
+	private static final long PIZZERIA = 10;
+	private static final long BISTRO = 20;
+
+	private ReviewSearchIndex index;
+
+	@Before
+	public void setUp() {
+		index = new ReviewSearchIndex();
+	}
+
+	private void created(long id, long restaurantId, String text) {
+		index.onReviewChanged(new ReviewChangedEvent(ReviewChangedEvent.Type.CREATED, review(id, restaurantId, text)));
+	}
+
+	private void deleted(long id, long restaurantId, String text) {
+		index.onReviewChanged(new ReviewChangedEvent(ReviewChangedEvent.Type.DELETED, review(id, restaurantId, text)));
+	}
+
+	private static Review review(long id, long restaurantId, String text) {
+		Restaurant restaurant = new Restaurant();
+		restaurant.setId(restaurantId);
+		Review review = new Review();
+		review.setId(id);
+		review.setRestaurant(restaurant);
+		review.setReview(text);
+		return review;
+	}
+
+	private List<Long> search(String query) {
+		return index.search(ReviewQuery.parse(query), null, 100);
+	}
+
+	private static void assertMatches(List<Long> expected, List<Long> actual) {
+		assertEquals("Unexpected matches " + actual, new HashSet<>(expected), new HashSet<>(actual));
+		assertEquals("Duplicate matches " + actual, expected.size(), actual.size());
+	}
+
+	private void createMenuReviews() {
+		created(1, PIZZERIA, "Great pizza with a thin crust");
+		created(2, BISTRO, "The pasta was great");
+		created(3, PIZZERIA, "Pizza was cold, the crust soggy");
+		created(4, PIZZERIA, "Wood fired pizza from a wood oven");
+		created(5, BISTRO, "The wood was never fired up, cold pasta");
+		created(6, BISTRO, "I don't like it");
+		created(7, BISTRO, "It is t I don like");
+		index.open();
+	}
+
+	@Test
+	public void searchesNothingUntilOpened() {
+		created(1, PIZZERIA, "Great pizza");
+		assertFalse(index.isReady());
+		assertEquals(Collections.<Long>emptyList(), search("pizza"));
+
+		index.open();
+		assertTrue(index.isReady());
+		assertEquals(Arrays.asList(1L), search("pizza"));
+	}
+
+	@Test
+	public void wordsMustAllMatch() {
+		createMenuReviews();
+		assertMatches(Arrays.asList(1L, 3L), search("pizza crust"));
+		assertMatches(Arrays.asList(1L, 3L), search("CRUST AND pizza"));
+		assertMatches(Arrays.asList(5L), search("cold pasta"));
+		assertMatches(Collections.<Long>emptyList(), search("pizza pasta"));
+		assertMatches(Collections.<Long>emptyList(), search("pizza anchovies"));
+	}
+
+	@Test
+	public void anyAlternativeMayMatch() {
+		createMenuReviews();
+		assertMatches(Arrays.asList(1L, 2L, 3L, 5L), search("crust OR pasta"));
+		assertMatches(Arrays.asList(1L, 3L, 5L), search("pizza crust OR cold"));
+		assertMatches(Arrays.asList(1L, 3L), search("pizza crust OR anchovies"));
+	}
+
+	@Test
+	public void phraseWordsMustBeAdjacentAndInOrder() {
+		createMenuReviews();
+		assertMatches(Arrays.asList(4L, 5L), search("wood fired"));
+		assertMatches(Arrays.asList(4L), search("\"wood fired\""));
+		assertMatches(Collections.<Long>emptyList(), search("\"fired wood\""));
+		assertMatches(Arrays.asList(4L), search("\"wood oven\" OR \"fired wood\""));
+	}
+
+	@Test
+	public void wordsSplitInTwoMustBeAdjacent() {
+		createMenuReviews();
+		// Review 7 holds both "don" and "t", but not one after the other.
+		assertMatches(Arrays.asList(6L), search("don't"));
+		assertMatches(Arrays.asList(6L), search("\"don t like\""));
+		assertMatches(Arrays.asList(6L, 7L), search("don t"));
+	}
+
+	@Test
+	public void filtersByRestaurant() {
+		createMenuReviews();
+		assertMatches(Arrays.asList(1L, 3L, 4L), index.search(ReviewQuery.parse("pizza"), PIZZERIA, 100));
+		assertMatches(Arrays.asList(2L, 5L), index.search(ReviewQuery.parse("pasta OR crust"), BISTRO, 100));
+		assertMatches(Arrays.asList(1L, 3L), index.search(ReviewQuery.parse("pasta OR crust"), PIZZERIA, 100));
+		assertMatches(Collections.<Long>emptyList(), index.search(ReviewQuery.parse("pizza"), 30L, 100));
+	}
+
+	@Test
+	public void leavesOutDeletedReviews() {
+		created(1, PIZZERIA, "Great pizza");
+		created(2, PIZZERIA, "Cold pizza");
+		created(3, PIZZERIA, "Soggy pizza");
+		// Deleted while the index is built, and after.
+		deleted(2, PIZZERIA, "Cold pizza");
+		index.open();
+		deleted(3, PIZZERIA, "Soggy pizza");
+
+		assertMatches(Arrays.asList(1L), search("pizza"));
+		assertMatches(Collections.<Long>emptyList(), search("cold OR soggy"));
+		assertMatches(Arrays.asList(1L), index.search(ReviewQuery.parse("pizza"), PIZZERIA, 100));
+		assertEquals(1, index.getStatistics().get("reviews"));
+		assertEquals(2, index.getStatistics().get("deletedReviews"));
+
+		deleted(1, PIZZERIA, "Great pizza");
+		assertMatches(Collections.<Long>emptyList(), search("pizza"));
+	}
+
+	@Test
+	public void indexesEachReviewOnce() {
+		created(1, PIZZERIA, "Great pizza");
+		index.open();
+		created(1, PIZZERIA, "Great pizza");
+		created(2, PIZZERIA, "More pizza");
+
+		assertEquals(Arrays.asList(2L, 1L), search("pizza"));
+		assertEquals(2, index.getStatistics().get("reviews"));
+	}
+
+	@Test
+	public void ranksByTermFrequency() {
+		created(1, PIZZERIA, "Pizza and salad");
+		created(2, PIZZERIA, "Pizza, pizza, pizza!");
+		created(3, PIZZERIA, "Pizza again, and more pizza");
+		index.open();
+
+		assertEquals(Arrays.asList(2L, 3L, 1L), search("pizza"));
+	}
+
+	@Test
+	public void ranksRareTermsAboveCommonOnes() {
+		created(1, PIZZERIA, "Truffle");
+		for (long id = 2; id <= 20; id++) {
+			created(id, PIZZERIA, "Pizza");
+		}
+		index.open();
+
+		List<Long> ids = search("pizza OR truffle");
+		assertEquals(20, ids.size());
+		assertEquals(Long.valueOf(1), ids.get(0));
+	}
+
+	@Test
+	public void ranksEqualScoresNewestFirst() {
+		created(1, PIZZERIA, "Great pizza");
+		created(2, BISTRO, "Great pizza");
+		created(3, PIZZERIA, "Great pizza");
+		index.open();
+
+		assertEquals(Arrays.asList(3L, 2L, 1L), search("pizza"));
+		assertEquals(Arrays.asList(3L, 1L), index.search(ReviewQuery.parse("great pizza"), PIZZERIA, 100));
+	}
+
+	@Test
+	public void keepsTheBestMatchesUpToTheLimit() {
+		created(1, PIZZERIA, "Pizza and salad");
+		created(2, PIZZERIA, "Pizza, pizza, pizza!");
+		created(3, PIZZERIA, "Pizza again, and more pizza");
+		created(4, PIZZERIA, "Some pizza");
+		index.open();
+
+		assertEquals(Arrays.asList(2L, 3L), index.search(ReviewQuery.parse("pizza"), null, 2));
+		// A Review scores as its best alternative; salad and more are rarer than pizza, so either outranks it.
+		assertEquals(Arrays.asList(3L, 1L), index.search(ReviewQuery.parse("pizza OR salad OR more"), null, 2));
+	}
+
+	@Test
+	public void intersectsListsLongerThanASkipInterval() {
+		// Every Review mentions pizza, and every 97th anchovies; only the second half are in the Bistro.
+		List<Long> expected = new ArrayList<>();
+		for (long id = 1; id <= 1000; id++) {
+			boolean anchovies = id % 97 == 0;
+			long restaurant = id > 500 ? BISTRO : PIZZERIA;
+			created(id, restaurant, anchovies ? "Pizza with anchovies" : "Pizza number " + id);
+			if (anchovies && restaurant == BISTRO) {
+				expected.add(id);
+			}
+		}
+		index.open();
+
+		assertEquals(10, search("anchovies pizza").size());
+		assertMatches(expected, index.search(ReviewQuery.parse("pizza anchovies"), BISTRO, 100));
+		assertMatches(Arrays.asList(500L, 501L), index.search(ReviewQuery.parse("\"number 500\" OR \"number 501\""), null, 100));
+	}
+}
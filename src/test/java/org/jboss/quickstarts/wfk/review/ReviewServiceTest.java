@@ -19,6 +19,8 @@ package org.jboss.quickstarts.wfk.review;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.arquillian.junit.InSequence;
+import org.jboss.quickstarts.wfk.ArquillianTest;
+import org.jboss.quickstarts.wfk.restaurant.RatingSummary;
 import org.jboss.quickstarts.wfk.restaurant.Restaurant;
 import org.jboss.quickstarts.wfk.restaurant.RestaurantService;
 import org.jboss.quickstarts.wfk.user.User;
@@ -32,12 +34,15 @@ import org.jboss.shrinkwrap.api.asset.EmptyAsset;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
 import org.jboss.shrinkwrap.resolver.api.maven.Maven;
 import org.junit.Test;
+import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
 
 import java.io.File;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.logging.Logger;
 
@@ -60,6 +65,7 @@ import static org.junit.Assert.fail;
  * @see ReviewRestService
  */
 @RunWith(Arquillian.class)
+@Category(ArquillianTest.class)
 public class ReviewServiceTest {
 
 	/**
@@ -82,6 +88,7 @@ public class ReviewServiceTest {
 				.addPackages(true, "org.jboss.quickstarts.wfk")
 				.addAsLibraries(libs)
 				.addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
+				.addAsResource("application.properties")
 				.addAsWebInfResource("arquillian-ds.xml")
 				.addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml");
 	}
@@ -177,6 +184,89 @@ public class ReviewServiceTest {
 		}
 	}
 
+	@Test
+	@InSequence(5)
+	public void testUnknownUser() throws Exception {
+		Restaurant restaurant = createRestaurantInstance("Jones","01234567892", "AB16HO");
+		restaurantRestService.createRestaurant(restaurant);
+		RatingSummary before = findRating(restaurant.getId());
+
+		Review review = createReviewInstance(Long.MAX_VALUE, restaurant.getId(), "This is an excellent restaurant", 4);
+		try {
+			reviewRestService.createReview(review);
+			fail("Expected a RestServiceException to be thrown");
+		} catch (RestServiceException e) {
+			assertEquals("Unexpected response status", Response.Status.BAD_REQUEST, e.getStatus());
+			assertEquals("Unexpected message", "UserId is incorrect", e.getMessage());
+		}
+
+		// The rating was added to the summary before the Review was refused, and must have been rolled back with it.
+		assertEquals("Rating summary changed", before, findRating(restaurant.getId()));
+	}
+
+	@Test
+	@InSequence(6)
+	public void testUnknownRestaurant() throws Exception {
+		User user = createUserInstance("Jack Doe", "jack5@mailinator.com", "04475368830");
+		userRestService.createUser(user);
+		Map<Long, RatingSummary> before = findRatings();
+
+		Review review = createReviewInstance(user.getId(), Long.MAX_VALUE, "This is an excellent restaurant", 4);
+		try {
+			reviewRestService.createReview(review);
+			fail("Expected a RestServiceException to be thrown");
+		} catch (RestServiceException e) {
+			assertEquals("Unexpected response status", Response.Status.BAD_REQUEST, e.getStatus());
+			assertEquals("Unexpected message", "RestaurantId is incorrect", e.getMessage());
+		}
+
+		assertEquals("Rating summaries changed", before, findRatings());
+	}
+
+	@Test
+	@InSequence(7)
+	public void testDuplicateReview() throws Exception {
+		User user = createUserInstance("Jack Doe", "jack6@mailinator.com", "04475368831");
+		userRestService.createUser(user);
+		Restaurant restaurant = createRestaurantInstance("Browns","01234567893", "AB16HO");
+		restaurantRestService.createRestaurant(restaurant);
+
+		Review review = createReviewInstance(user.getId(), restaurant.getId(), "This is an excellent restaurant", 5);
+		Response response = reviewRestService.createReview(review);
+		assertEquals("Unexpected response status", Response.Status.CREATED.getStatusCode(), response.getStatus());
+		RatingSummary before = findRating(restaurant.getId());
+		assertEquals("Unexpected review count", 1, before.getCount());
+
+		Review another = createReviewInstance(user.getId(), restaurant.getId(), "This is a terrible restaurant", 0);
+		try {
+			reviewRestService.createReview(another);
+			fail("Expected a RestServiceException to be thrown");
+		} catch (RestServiceException e) {
+			assertEquals("Unexpected response status", Response.Status.CONFLICT, e.getStatus());
+			assertTrue("Unexpected cause", e.getCause() instanceof UniqueResturantOnReviewDateException);
+		}
+
+		assertEquals("Rating summary changed", before, findRating(restaurant.getId()));
+	}
+
+	/**
+	 * <p>Returns the rating summary of every Restaurant, as listed by {@link RestaurantRestService}.</p>
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<Long, RatingSummary> findRatings() {
+		Map<Long, RatingSummary> ratings = new HashMap<>();
+		for (Restaurant restaurant : (List<Restaurant>) restaurantRestService.retrieveAllRestaurants().getEntity()) {
+			ratings.put(restaurant.getId(), restaurant.getRating());
+		}
+		return ratings;
+	}
+
+	private RatingSummary findRating(Long restaurantId) {
+		RatingSummary rating = findRatings().get(restaurantId);
+		assertNotNull("No rating summary for Restaurant " + restaurantId, rating);
+		return rating;
+	}
+
 	/**
 	 * <p>A utility method to construct a {@link User User} object for use in
 	 * testing. This object is not persisted.</p>
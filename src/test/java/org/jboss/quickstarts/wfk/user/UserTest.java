@@ -19,6 +19,7 @@ package org.jboss.quickstarts.wfk.user;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.arquillian.junit.InSequence;
+import org.jboss.quickstarts.wfk.ArquillianTest;
 import org.jboss.quickstarts.wfk.contact.UniqueEmailException;
 import org.jboss.quickstarts.wfk.util.RestServiceException;
 import org.jboss.shrinkwrap.api.Archive;
@@ -27,6 +28,7 @@ import org.jboss.shrinkwrap.api.asset.EmptyAsset;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
 import org.jboss.shrinkwrap.resolver.api.maven.Maven;
 import org.junit.Test;
+import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
 
 import java.io.File;
@@ -51,6 +53,7 @@ import static org.junit.Assert.fail;
  * @see UserRestService
  */
 @RunWith(Arquillian.class)
+@Category(ArquillianTest.class)
 public class UserTest {
 
 	/**
@@ -73,6 +76,7 @@ public class UserTest {
 				.addPackages(true, "org.jboss.quickstarts.wfk")
 				.addAsLibraries(libs)
 				.addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
+				.addAsResource("application.properties")
 				.addAsWebInfResource("arquillian-ds.xml")
 				.addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml");
 	}
@@ -172,6 +176,35 @@ public class UserTest {
 		}
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	@InSequence(6)
+	public void testDuplicateEmailIsRolledBack() throws Exception {
+		User user = createUserInstance("Jiaxuan Xu", "jane2@mailinator.com", "04475368829");
+		userRestService.createUser(user);
+
+		// The duplicate is only refused by the database's unique constraint, as its INSERT is flushed.
+		try {
+			userRestService.createUser(createUserInstance("John Doe", "jane2@mailinator.com", "04475368829"));
+			fail("Expected a RestServiceException to be thrown");
+		} catch (RestServiceException e) {
+			assertEquals("Unexpected response status", Response.Status.CONFLICT, e.getStatus());
+			assertTrue("Unexecpted error. Should be Unique email violation", e.getCause() instanceof UniqueEmailException);
+		}
+
+		int withEmail = 0;
+		for (User listed : (List<User>) userRestService.retrieveAllUsers().getEntity()) {
+			if ("jane2@mailinator.com".equals(listed.getEmail())) {
+				withEmail++;
+			}
+		}
+		assertEquals("Unexpected number of users with the email", 1, withEmail);
+
+		// The failed INSERT must not affect the next one.
+		Response response = userRestService.createUser(createUserInstance("John Doe", "john2@mailinator.com", "04475368829"));
+		assertEquals("Unexpected response status", 201, response.getStatus());
+	}
+
 	/**
 	 * <p>A utility method to construct a {@link User User} object for use in
 	 * testing. This object is not persisted.</p>
@@ -0,0 +1,189 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import org.junit.Test;
+
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Unit tests of the state machine of {@link CircuitBreaker}.</p>
+ *
+ * <p>Durations are passed in directly, so only the OPEN timeout depends on the clock. Breakers which should move to
+ * HALF_OPEN straight away are given an <code>openMillis</code> of 0, the others one far longer than any test.</p>
+ *
+ * @author Jiaxuan Xu
+ * @see CircuitBreaker
+ */
+public class CircuitBreakerTest {
+
+	private static final Log log = new Log(Logger.getLogger(CircuitBreakerTest.class.getName()), new LogDispatcher());
+
+	private static final long FAST = 1000000L;       // 1 ms
+	private static final long SLOW = 3000000000L;    // 3 s, above the 2 s slow call threshold
+	private static final long LONG_OPEN = 3600000L;  // 1 hour
+
+	/** Window of 10 calls, 50% failure rate, 80% slow call rate, 2 s slow calls, 3 trial calls. */
+	private static CircuitBreaker breaker(long openMillis) {
+		return new CircuitBreaker("test", 10, 50, 80, 2000, openMillis, 3, log);
+	}
+
+	private static void succeed(CircuitBreaker breaker, int calls, long duration) {
+		for (int i = 0; i < calls; i++) {
+			assertTrue("Call should be permitted", breaker.tryAcquirePermission());
+			breaker.onSuccess(duration);
+		}
+	}
+
+	private static void fail(CircuitBreaker breaker, int calls) {
+		for (int i = 0; i < calls; i++) {
+			assertTrue("Call should be permitted", breaker.tryAcquirePermission());
+			breaker.onError(FAST);
+		}
+	}
+
+	@Test
+	public void staysClosedUntilTheWindowIsFull() {
+		CircuitBreaker breaker = breaker(LONG_OPEN);
+		fail(breaker, 9);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+		fail(breaker, 1);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquirePermission());
+	}
+
+	@Test
+	public void tripsWhenTheFailureRateReachesTheThreshold() {
+		CircuitBreaker breaker = breaker(LONG_OPEN);
+		succeed(breaker, 6, FAST);
+		fail(breaker, 4);
+		assertEquals("40% failed", CircuitBreaker.State.CLOSED, breaker.getState());
+
+		// The window slides: the oldest success drops out, leaving 5 failures in 10 calls.
+		fail(breaker, 1);
+		assertEquals("50% failed", CircuitBreaker.State.OPEN, breaker.getState());
+	}
+
+	@Test
+	public void tripsWhenTheSlowCallRateReachesTheThreshold() {
+		CircuitBreaker breaker = breaker(LONG_OPEN);
+		succeed(breaker, 3, FAST);
+		succeed(breaker, 7, SLOW);
+		assertEquals("70% slow", CircuitBreaker.State.CLOSED, breaker.getState());
+
+		succeed(breaker, 1, SLOW);
+		assertEquals("80% slow", CircuitBreaker.State.OPEN, breaker.getState());
+	}
+
+	@Test
+	public void refusesCallsWhileOpen() {
+		CircuitBreaker breaker = breaker(LONG_OPEN);
+		fail(breaker, 10);
+		for (int i = 0; i < 5; i++) {
+			assertFalse(breaker.tryAcquirePermission());
+		}
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertEquals(5L, breaker.getStatistics().get("notPermittedCalls"));
+	}
+
+	@Test
+	public void ignoresCallsWhichFinishAfterTheBreakerOpened() {
+		CircuitBreaker breaker = breaker(LONG_OPEN);
+		fail(breaker, 9);
+		// Permitted while CLOSED, but only finishes after the breaker has opened.
+		assertTrue(breaker.tryAcquirePermission());
+		fail(breaker, 1);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+		breaker.onSuccess(FAST);
+		breaker.onError(FAST);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertEquals(10, breaker.getStatistics().get("bufferedCalls"));
+		assertEquals(100.0, breaker.getStatistics().get("failureRate"));
+	}
+
+	@Test
+	public void halfOpenPermitsOnlyTheTrialCalls() {
+		CircuitBreaker breaker = breaker(0);
+		fail(breaker, 10);
+
+		assertTrue(breaker.tryAcquirePermission());
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertTrue(breaker.tryAcquirePermission());
+		assertTrue(breaker.tryAcquirePermission());
+		assertFalse("Only 3 trial calls", breaker.tryAcquirePermission());
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+	}
+
+	@Test
+	public void halfOpenClosesWhenTheTrialCallsSucceed() {
+		CircuitBreaker breaker = breaker(0);
+		fail(breaker, 10);
+
+		succeed(breaker, 2, FAST);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		succeed(breaker, 1, FAST);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+		// The window starts empty again, so nine failures do not trip it.
+		fail(breaker, 9);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void halfOpenClosesWhenTooFewTrialCallsFail() {
+		CircuitBreaker breaker = breaker(0);
+		fail(breaker, 10);
+
+		// One bad call in three is 33%, below the lower threshold of 50%.
+		succeed(breaker, 2, FAST);
+		fail(breaker, 1);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void halfOpenReopensWhenEnoughTrialCallsFail() {
+		CircuitBreaker halfOpen = breaker(0);
+		fail(halfOpen, 10);
+
+		// Two bad calls in three is 67%, above the lower threshold of 50%; slow calls count as bad.
+		succeed(halfOpen, 1, FAST);
+		succeed(halfOpen, 1, SLOW);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, halfOpen.getState());
+		fail(halfOpen, 1);
+		assertEquals(CircuitBreaker.State.OPEN, halfOpen.getState());
+	}
+
+	@Test
+	public void retryAfterIsTheTimeUntilTheNextTrialCall() {
+		CircuitBreaker breaker = new CircuitBreaker("test", 10, 50, 80, 2000, 30000, 3, log);
+		assertEquals("At least 1 second while CLOSED", 1, breaker.getRetryAfterSeconds());
+
+		fail(breaker, 10);
+		long retryAfter = breaker.getRetryAfterSeconds();
+		assertTrue("Was " + retryAfter, retryAfter >= 29 && retryAfter <= 30);
+
+		CircuitBreaker elapsed = breaker(0);
+		fail(elapsed, 10);
+		assertEquals("At least 1 second once the open period is over", 1, elapsed.getRetryAfterSeconds());
+	}
+}